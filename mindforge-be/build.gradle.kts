@@ -6,6 +6,7 @@ plugins {
 	id("io.spring.dependency-management") version "1.1.7"
     id("org.openapi.generator") version "7.15.0"
     id("org.owasp.dependencycheck") version "10.0.4"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "mindforge"
@@ -30,6 +31,7 @@ dependencies {
 	implementation("org.springframework.boot:spring-boot-starter-web")
 	implementation("org.springframework.boot:spring-boot-starter-actuator")
 	implementation("org.liquibase:liquibase-core")
+	implementation("com.github.ben-manes.caffeine:caffeine")
     implementation("org.springdoc:springdoc-openapi-starter-webmvc-ui:2.8.14")
     implementation("jakarta.validation:jakarta.validation-api:3.1.0")
     implementation("org.hibernate.validator:hibernate-validator:8.0.1.Final") // Implementierung
@@ -70,11 +72,32 @@ tasks.register<JavaExec>("runProd") {
     environment("SPRING_PROFILES_ACTIVE", "prod")
 }
 
+// ./gradlew buildPasswordDictionary -Psource=<one password per line> -Ptarget=<dictionary file>
+tasks.register<JavaExec>("buildPasswordDictionary") {
+    group = "application"
+    description = "Builds the memory-mapped common password dictionary"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("mindforge.service.CommonPasswordDictionary")
+    args(
+        providers.gradleProperty("source").orNull ?: "",
+        providers.gradleProperty("target").orNull ?: "common-passwords.bin"
+    )
+}
+
 tasks.test {
     useJUnitPlatform()
     systemProperty("spring.profiles.active", "test")
 }
 
+// Microbenchmarks live in src/jmh; run with ./gradlew jmh -Pjmh.includes=<BenchmarkClass>
+jmh {
+    jmhVersion = "1.37"
+    warmupIterations = 3
+    iterations = 5
+    fork = 1
+    providers.gradleProperty("jmh.includes").orNull?.let { includes = listOf(it) }
+}
+
 tasks.withType<JavaCompile> {
     options.compilerArgs.add("-Xlint:deprecation")
 }
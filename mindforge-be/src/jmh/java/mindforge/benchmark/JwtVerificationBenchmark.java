@@ -0,0 +1,67 @@
+package mindforge.benchmark;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import mindforge.service.JwtService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-call jjwt parser that {@code JwtService.extractUsername} used to build with the
+ * shared verification engine. Run with {@code ./gradlew jmh -Pjmh.includes=JwtVerificationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JwtVerificationBenchmark {
+
+    private SecretKey key;
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        key = Keys.hmacShaKeyFor("verylongrandomstringwithatleast32chars!!!".getBytes(StandardCharsets.UTF_8));
+        jwtService = new JwtService(key, 3_600_000);
+        token = jwtService.generateToken("benchmark-user");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String jjwtParserPerCall() {
+        return Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody()
+                .getSubject();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String sharedVerifier() {
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String jjwtParserPerCall8Threads() {
+        return jjwtParserPerCall();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String sharedVerifier8Threads() {
+        return sharedVerifier();
+    }
+}
@@ -0,0 +1,82 @@
+package mindforge.benchmark;
+
+import mindforge.service.CommonPasswordDictionary;
+import mindforge.service.PasswordValidationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the regex scoring {@code PasswordValidationService} used to do (six patterns compiled per
+ * call) with the single-pass scan plus a lookup in a memory-mapped dictionary of {@code entries}
+ * passwords. Run with {@code ./gradlew jmh -Pjmh.includes=PasswordStrengthBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PasswordStrengthBenchmark {
+
+    @Param({"1000000"})
+    public int entries;
+
+    @Param({"StrongPass123", "Kx7#mQ2!vRt9-long-enough-passphrase"})
+    public String password;
+
+    private Path directory;
+    private PasswordValidationService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("password-dictionary");
+        Path list = directory.resolve("common.txt");
+        List<String> passwords = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            passwords.add("common-" + i);
+        }
+        Files.write(list, passwords);
+        Path file = directory.resolve("common.bin");
+        CommonPasswordDictionary.write(list, file);
+        service = new PasswordValidationService(new CommonPasswordDictionary(file.toString()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("common.txt"));
+        Files.deleteIfExists(directory.resolve("common.bin"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public int regexPerCall() {
+        int score = 0;
+        if (password.length() >= 12) score += 2;
+        else if (password.length() >= 8) score += 1;
+        if (Pattern.compile("[a-z]").matcher(password).find()) score += 1;
+        if (Pattern.compile("[A-Z]").matcher(password).find()) score += 1;
+        if (Pattern.compile("[0-9]").matcher(password).find()) score += 1;
+        if (Pattern.compile("[^a-zA-Z0-9]").matcher(password).find()) score += 1;
+        if (Pattern.compile("(.)\\1{2,}").matcher(password).find()) score -= 1;
+        if (Pattern.compile("123|abc|qwe|password|admin", Pattern.CASE_INSENSITIVE).matcher(password).find()) score -= 1;
+        return score;
+    }
+
+    @Benchmark
+    public PasswordValidationService.PasswordValidationResult singlePassWithDictionary() {
+        return service.validatePassword(password);
+    }
+}
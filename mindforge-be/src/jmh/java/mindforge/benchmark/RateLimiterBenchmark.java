@@ -0,0 +1,118 @@
+package mindforge.benchmark;
+
+import mindforge.service.RateLimitingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the map-of-windows limiter {@code RateLimitingService} used to be with the bounded CAS table
+ * behind it now, at 1, 8 and 64 threads over 4096 client keys. Run with
+ * {@code ./gradlew jmh -Pjmh.includes=RateLimiterBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RateLimiterBenchmark {
+
+    private static final int KEYS = 4096;
+
+    private String[] keys;
+    private MapRateLimiter mapLimiter;
+    private RateLimitingService boundedLimiter;
+
+    @Setup
+    public void setUp() {
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "10.0." + (i >> 8) + "." + (i & 0xFF) + ":/auth/login";
+        }
+        mapLimiter = new MapRateLimiter();
+        boundedLimiter = new RateLimitingService("sliding-window", 65536, "shared");
+    }
+
+    private String nextKey() {
+        return keys[ThreadLocalRandom.current().nextInt(KEYS)];
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean mapLimiter() {
+        return mapLimiter.isAllowed(nextKey(), 60, 1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean boundedLimiter() {
+        return boundedLimiter.isAllowed(nextKey(), 60, 1);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean mapLimiter8Threads() {
+        return mapLimiter();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean boundedLimiter8Threads() {
+        return boundedLimiter();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean mapLimiter64Threads() {
+        return mapLimiter();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean boundedLimiter64Threads() {
+        return boundedLimiter();
+    }
+
+    /** The logic of the previous {@code RateLimitingService}, kept as the baseline. */
+    static final class MapRateLimiter {
+
+        private final ConcurrentHashMap<String, RateLimitInfo> rateLimitMap = new ConcurrentHashMap<>();
+
+        private static class RateLimitInfo {
+            private final AtomicInteger attempts;
+            private final LocalDateTime windowEnd;
+
+            RateLimitInfo(int windowMinutes) {
+                this.attempts = new AtomicInteger(0);
+                this.windowEnd = LocalDateTime.now().plusMinutes(windowMinutes);
+            }
+
+            boolean isExpired() {
+                return LocalDateTime.now().isAfter(windowEnd);
+            }
+
+            boolean tryIncrement(int maxAttempts) {
+                return attempts.incrementAndGet() <= maxAttempts;
+            }
+        }
+
+        boolean isAllowed(String key, int maxAttempts, int windowMinutes) {
+            RateLimitInfo info = rateLimitMap.computeIfAbsent(key, k -> new RateLimitInfo(windowMinutes));
+            if (info.isExpired()) {
+                rateLimitMap.remove(key);
+                info = new RateLimitInfo(windowMinutes);
+                rateLimitMap.put(key, info);
+            }
+            return info.tryIncrement(maxAttempts);
+        }
+    }
+}
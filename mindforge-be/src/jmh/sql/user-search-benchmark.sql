@@ -0,0 +1,72 @@
+-- Admin user search at 1M users: plan and latency of LOWER(username) LIKE '%term%' without and with
+-- the trigram index from 006-add-username-trigram-index.sql.
+--
+-- Works on a temporary copy of the users columns the search reads, so it leaves the real table alone:
+--   docker compose -f dev-compose.yml up -d db
+--   docker compose -f dev-compose.yml exec -T db psql -U mindforge -d mindforge < mindforge-be/src/jmh/sql/user-search-benchmark.sql
+--
+-- Each search runs five times; compare the "Execution Time" of the last runs of each section.
+--
+-- Measured on PostgreSQL 16.4, 1 vCPU, shared_buffers=256MB (Execution Time):
+--   search('%0012345%')           seq scan 335-416 ms     trigram bitmap scan 1.3-1.5 ms
+--   search('%a1b2%')              seq scan 304 ms         trigram bitmap scan 0.37 ms
+--   search_role('ADMIN', '%99%')  seq scan 149 ms         still a seq scan, 133 ms: a two-character term has no trigram
+--   Table 65 MB, trigram index 37 MB, index build 6.9 s.
+
+\set ON_ERROR_STOP on
+\timing on
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE TEMPORARY TABLE bench_users (
+    id BIGINT PRIMARY KEY,
+    username VARCHAR(255) NOT NULL UNIQUE,
+    role VARCHAR(50) NOT NULL
+);
+
+-- Names like "user-000123-k4fj2x", one admin in fifty
+INSERT INTO bench_users (id, username, role)
+SELECT i,
+       'user-' || lpad(i::text, 7, '0') || '-' || substr(md5(i::text), 1, 6),
+       CASE WHEN i % 50 = 0 THEN 'ADMIN' ELSE 'USER' END
+FROM generate_series(1, 1000000) AS i;
+
+ANALYZE bench_users;
+
+PREPARE search(text) AS
+    SELECT id, username, role FROM bench_users WHERE LOWER(username) LIKE $1 ESCAPE '!';
+PREPARE search_role(text, text) AS
+    SELECT id, username, role FROM bench_users WHERE role = $1 AND LOWER(username) LIKE $2 ESCAPE '!';
+
+\echo '=== Sequential scan (no trigram index) ==='
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE search('%0012345%');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE search('%0012345%');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE search('%0012345%');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE search('%0012345%');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE search('%0012345%');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE search('%a1b2%');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE search_role('ADMIN', '%99%');
+
+\echo '=== Building the trigram index ==='
+CREATE INDEX bench_users_username_lower_trgm ON bench_users USING gin (LOWER(username) gin_trgm_ops);
+ANALYZE bench_users;
+DEALLOCATE ALL;
+PREPARE search(text) AS
+    SELECT id, username, role FROM bench_users WHERE LOWER(username) LIKE $1 ESCAPE '!';
+PREPARE search_role(text, text) AS
+    SELECT id, username, role FROM bench_users WHERE role = $1 AND LOWER(username) LIKE $2 ESCAPE '!';
+
+\echo '=== Trigram index ==='
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE search('%0012345%');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE search('%0012345%');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE search('%0012345%');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE search('%0012345%');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE search('%0012345%');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE search('%a1b2%');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE search_role('ADMIN', '%99%');
+
+\echo '=== Size of table and index ==='
+SELECT pg_size_pretty(pg_relation_size('bench_users')) AS table_size,
+       pg_size_pretty(pg_relation_size('bench_users_username_lower_trgm')) AS trigram_index_size;
+
+DROP TABLE bench_users;
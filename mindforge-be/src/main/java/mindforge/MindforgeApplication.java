@@ -2,8 +2,12 @@ package mindforge;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(scanBasePackages = "mindforge")
+@EnableScheduling
+@ConfigurationPropertiesScan
 public class MindforgeApplication {
 
   public static void main(String[] args) {
@@ -1,15 +1,43 @@
 package mindforge.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import mindforge.service.PasswordHashingExecutor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
+
 @Configuration
+@Slf4j
 public class ApplicationConfig {
 
+  /**
+   * BCrypt encoder whose cost is either fixed by {@code security.password-hashing.bcrypt.strength} or,
+   * when that is 0, calibrated at startup so one hash takes at most
+   * {@code security.password-hashing.bcrypt.target-millis} on this machine. Hashes run on the
+   * {@link PasswordHashingExecutor}.
+   */
   @Bean
-  public PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
+  public PasswordEncoder passwordEncoder(
+      MeterRegistry meterRegistry,
+      PasswordHashingExecutor hashingExecutor,
+      @Value("${security.password-hashing.bcrypt.strength:0}") int strength,
+      @Value("${security.password-hashing.bcrypt.target-millis:80}") long targetMillis) {
+
+    int bcryptStrength = strength;
+    if (bcryptStrength <= 0) {
+      bcryptStrength = BCryptStrengthCalibrator.calibrate(Duration.ofMillis(targetMillis));
+      log.info("Calibrated BCrypt strength {} for a {} ms hashing budget", bcryptStrength, targetMillis);
+    }
+    Gauge.builder("auth.password-hashing.bcrypt.strength", bcryptStrength, Integer::doubleValue)
+        .description("BCrypt cost used for new password hashes")
+        .strongReference(true)
+        .register(meterRegistry);
+    return new TimedPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength), hashingExecutor, meterRegistry);
   }
 }
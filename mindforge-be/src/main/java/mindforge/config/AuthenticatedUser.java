@@ -0,0 +1,12 @@
+package mindforge.config;
+
+/**
+ * Caller of the current request, resolved once from the bearer token.
+ * Controllers declare it as a handler method parameter instead of reading the Authorization header.
+ */
+public record AuthenticatedUser(String username, Long userId, String role) {
+
+    public boolean isAdmin() {
+        return "ADMIN".equals(role);
+    }
+}
@@ -0,0 +1,81 @@
+package mindforge.config;
+
+import lombok.RequiredArgsConstructor;
+import mindforge.repository.UserRepository;
+import mindforge.service.JwtService;
+import mindforge.service.TokenRevocationRegistry;
+import mindforge.service.VerifiedToken;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Resolves {@link AuthenticatedUser} handler parameters.
+ * <p>
+ * When the resource server already decoded the bearer token, the principal is built from that {@link Jwt};
+ * filter chains without a resource server (the test profile) fall back to verifying the header once here.
+ * Tokens issued before the {@code uid}/{@code role} claims existed are completed with a single lookup.
+ */
+@Component
+@RequiredArgsConstructor
+public class AuthenticatedUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtService jwtService;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final UserRepository userRepository;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return AuthenticatedUser.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public AuthenticatedUser resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                             NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication instanceof JwtAuthenticationToken jwtAuthentication) {
+            Jwt jwt = jwtAuthentication.getToken();
+            Number userId = jwt.getClaim("uid");
+            return toPrincipal(jwt.getSubject(), userId != null ? userId.longValue() : null, jwt.getClaimAsString("role"));
+        }
+
+        String authHeader = webRequest.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith(BEARER_PREFIX)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+        VerifiedToken token;
+        try {
+            token = jwtService.verifyToken(authHeader.substring(BEARER_PREFIX.length()));
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+        if (tokenRevocationRegistry.isRevoked(token)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+        return toPrincipal(token.subject(), token.userId(), token.role());
+    }
+
+    private AuthenticatedUser toPrincipal(String username, Long userId, String role) {
+        if (username == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+        if (userId != null && role != null) {
+            return new AuthenticatedUser(username, userId, role);
+        }
+        return userRepository.findIdentityByUsername(username)
+                .map(identity -> new AuthenticatedUser(username, identity.getId(), identity.getRole()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED));
+    }
+}
@@ -0,0 +1,57 @@
+package mindforge.config;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Picks the BCrypt cost whose hash time on this machine comes closest to a latency budget without
+ * exceeding it.
+ * <p>
+ * Every cost step doubles the work, so it is enough to time {@link #MIN_STRENGTH} and extrapolate.
+ * The cost never drops below {@link #MIN_STRENGTH}, even on hardware too slow to meet the budget.
+ */
+final class BCryptStrengthCalibrator {
+
+  static final int MIN_STRENGTH = 10;
+  static final int MAX_STRENGTH = 16;
+
+  private static final int SAMPLES = 3;
+
+  private BCryptStrengthCalibrator() {
+  }
+
+  static int calibrate(Duration target) {
+    return calibrate(target, BCryptStrengthCalibrator::timeHash);
+  }
+
+  /**
+   * @param nanosPerHash measures one hash at the given cost, in nanoseconds
+   */
+  static int calibrate(Duration target, IntToLongFunction nanosPerHash) {
+    nanosPerHash.applyAsLong(MIN_STRENGTH); // warm-up
+    long[] samples = new long[SAMPLES];
+    for (int i = 0; i < SAMPLES; i++) {
+      samples[i] = nanosPerHash.applyAsLong(MIN_STRENGTH);
+    }
+    Arrays.sort(samples);
+
+    long estimate = samples[SAMPLES / 2];
+    long budget = target.toNanos();
+    int strength = MIN_STRENGTH;
+    while (strength < MAX_STRENGTH && estimate * 2 <= budget) {
+      strength++;
+      estimate *= 2;
+    }
+    return strength;
+  }
+
+  private static long timeHash(int strength) {
+    String salt = BCrypt.gensalt(strength);
+    long start = System.nanoTime();
+    BCrypt.hashpw("calibration-password", salt);
+    return System.nanoTime() - start;
+  }
+}
@@ -30,11 +30,17 @@ public class DataSourceConfig {
          .build();
    }
 
+   /**
+    * H2 for tests, at {@code spring.datasource.url} from application-test.yml. That URL must keep
+    * PostgreSQL mode: the JDBC repositories use ON CONFLICT and nextval().
+    */
    @Bean
    @Profile("test")
-   public DataSource h2DataSource() {
+   public DataSource h2DataSource(
+       @Value("${spring.datasource.url:jdbc:h2:mem:mindforge;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+           + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH}") String url) {
      return DataSourceBuilder.create()
-         .url("jdbc:h2:mem:mindforge;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+         .url(url)
          .driverClassName("org.h2.Driver")
          .username("sa")
          .build();
@@ -0,0 +1,54 @@
+package mindforge.config;
+
+import mindforge.service.RateLimiter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Route policies of {@link RateLimitingFilter}.
+ *
+ * @param enabled           whether requests are limited at all
+ * @param requestsPerMinute limit per client of routes no policy matches
+ * @param policies          route policies; the most specific matching pattern wins
+ */
+@ConfigurationProperties("security.rate-limit")
+public record RateLimitProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("10") int requestsPerMinute,
+    List<Policy> policies) {
+
+  public RateLimitProperties {
+    policies = policies == null ? List.of() : List.copyOf(policies);
+  }
+
+  /**
+   * One limit per client for a set of routes.
+   *
+   * @param name      identifies the policy's budget
+   * @param patterns  paths with literal segments, {@code *} or {@code {name}} for one segment and a
+   *                  trailing {@code **} for any rest
+   * @param methods   HTTP methods the policy applies to; empty for all
+   * @param limit     requests allowed per {@code period}
+   * @param period    defaults to one minute
+   * @param algorithm defaults to {@code security.rate-limit.algorithm}
+   * @param exempt    if set, matching requests are never limited
+   */
+  public record Policy(
+      String name,
+      List<String> patterns,
+      List<String> methods,
+      int limit,
+      Duration period,
+      RateLimiter.Algorithm algorithm,
+      boolean exempt) {
+
+    public Policy {
+      patterns = patterns == null ? List.of() : List.copyOf(patterns);
+      methods = methods == null ? List.of() : List.copyOf(methods);
+      period = period == null ? Duration.ofMinutes(1) : period;
+    }
+  }
+}
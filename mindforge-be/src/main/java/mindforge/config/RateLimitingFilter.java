@@ -1,54 +1,145 @@
 package mindforge.config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mindforge.service.KeyedLimiter;
+import mindforge.service.RateLimiter;
 import mindforge.service.RateLimitingService;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Limits requests per client IP according to the route policies in {@link RateLimitProperties}.
+ * <p>
+ * Every policy has its own budget, shared by all routes it matches, so {@code /api/projects/1} and
+ * {@code /api/projects/2} draw from the same one. The patterns are compiled once at startup; per request
+ * the filter only walks the compiled tree and hashes the client address in place.
+ * <p>
+ * Responses on limited routes carry {@code X-RateLimit-Limit} and {@code X-RateLimit-Remaining}; a 429
+ * adds {@code Retry-After} in whole seconds. Decisions are counted per policy in
+ * {@code http.rate-limit.requests} tagged {@code result=allowed|denied}.
+ */
 @Component
-@RequiredArgsConstructor
+@Slf4j
 public class RateLimitingFilter extends OncePerRequestFilter {
 
-    private final RateLimitingService rateLimitingService;
+    public static final String LIMIT_HEADER = "X-RateLimit-Limit";
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    public static final String RETRY_AFTER_HEADER = "Retry-After";
 
-    @Value("${security.rate-limit.requests-per-minute:10}")
-    private int requestsPerMinute;
+    private static final String DEFAULT_POLICY = "default";
+
+    private final boolean enabled;
+    private final RoutePolicyMatcher<RoutePolicy> matcher = new RoutePolicyMatcher<>();
+    private final RoutePolicy defaultPolicy;
+
+    public RateLimitingFilter(RateLimitingService rateLimitingService, RateLimitProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        this.defaultPolicy = RoutePolicy.of(DEFAULT_POLICY, rateLimitingService.limiter(
+                DEFAULT_POLICY, null, properties.requestsPerMinute(), Duration.ofMinutes(1)), meterRegistry);
+        for (RateLimitProperties.Policy policy : properties.policies()) {
+            KeyedLimiter limiter = policy.exempt() ? null
+                    : rateLimitingService.limiter(policy.name(), policy.algorithm(), policy.limit(), policy.period());
+            RoutePolicy routePolicy = RoutePolicy.of(policy.name(), limiter, meterRegistry);
+            for (String pattern : policy.patterns()) {
+                matcher.add(pattern, policy.methods(), routePolicy);
+            }
+        }
+        log.info("Rate limiting {} with {} route policies", enabled ? "enabled" : "disabled", properties.policies().size());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
-        String clientIp = getClientIpAddress(request);
-        String key = clientIp + ":" + request.getRequestURI();
+        RoutePolicy policy = policyFor(request.getMethod(), request.getRequestURI());
+        if (policy.limiter() == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
 
-        if (!rateLimitingService.isAllowed(key, requestsPerMinute, 1)) {
+        long result = policy.limiter().tryAcquire(clientKey(request));
+        response.setHeader(LIMIT_HEADER, policy.limitHeader());
+        if (!RateLimiter.isAllowed(result)) {
+            policy.denied().increment();
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(
+                    RateLimiter.retryAfterNanos(result) + TimeUnit.SECONDS.toNanos(1) - 1));
+            response.setHeader(REMAINING_HEADER, "0");
+            response.setHeader(RETRY_AFTER_HEADER, Long.toString(retryAfterSeconds));
             response.setStatus(429);
             response.setContentType("application/json");
             response.getWriter().write("{\"error\":\"Too many requests. Please try again later.\"}");
             return;
         }
 
+        policy.allowed().increment();
+        response.setHeader(REMAINING_HEADER, Long.toString(result));
         filterChain.doFilter(request, response);
     }
 
-    private String getClientIpAddress(HttpServletRequest request) {
+    RoutePolicy policyFor(String method, String path) {
+        RoutePolicy policy = matcher.match(method, path);
+        return policy != null ? policy : defaultPolicy;
+    }
+
+    /** Hash of the client address: first {@code X-Forwarded-For} entry, {@code X-Real-IP} or the peer. */
+    static long clientKey(HttpServletRequest request) {
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
+            int end = xForwardedFor.indexOf(',');
+            if (end < 0) {
+                end = xForwardedFor.length();
+            }
+            int start = 0;
+            while (start < end && Character.isWhitespace(xForwardedFor.charAt(start))) {
+                start++;
+            }
+            while (end > start && Character.isWhitespace(xForwardedFor.charAt(end - 1))) {
+                end--;
+            }
+            return RateLimiter.hash(xForwardedFor, start, end);
         }
 
         String xRealIp = request.getHeader("X-Real-IP");
         if (xRealIp != null && !xRealIp.isEmpty()) {
-            return xRealIp;
+            return RateLimiter.hash(xRealIp);
+        }
+
+        return RateLimiter.hash(request.getRemoteAddr());
+    }
+
+    /** A compiled policy; {@code limiter} is {@code null} for exempt routes. */
+    record RoutePolicy(String name, KeyedLimiter limiter, String limitHeader, Counter allowed, Counter denied) {
+
+        static RoutePolicy of(String name, KeyedLimiter limiter, MeterRegistry meterRegistry) {
+            if (limiter == null) {
+                return new RoutePolicy(name, null, null, null, null);
+            }
+            return new RoutePolicy(name, limiter, Long.toString(limiter.permits()),
+                    decisions(meterRegistry, name, "allowed"), decisions(meterRegistry, name, "denied"));
         }
 
-        return request.getRemoteAddr();
+        private static Counter decisions(MeterRegistry meterRegistry, String policy, String result) {
+            return Counter.builder("http.rate-limit.requests")
+                    .description("Requests checked against a rate limit policy")
+                    .tag("policy", policy)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,191 @@
+package mindforge.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Path patterns compiled once into a segment tree.
+ * <p>
+ * A lookup walks the request path segment by segment, comparing regions of the path in place, so it
+ * allocates nothing. Literal segments take precedence over {@code *}/{@code {name}}, which take
+ * precedence over a trailing {@code **}; on the same pattern a method-specific entry beats one for all
+ * methods.
+ */
+final class RoutePolicyMatcher<T> {
+
+  private static final String[] METHODS = {"GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "TRACE"};
+  private static final int OTHER_METHOD = 1 << METHODS.length;
+  private static final int ALL_METHODS = -1;
+
+  private final Node<T> root = new Node<>();
+
+  /**
+   * Maps {@code pattern} to {@code value} for {@code methods} (all if empty). An earlier registration of
+   * the same pattern and methods wins.
+   */
+  void add(String pattern, Collection<String> methods, T value) {
+    int mask = methodMask(methods);
+    Node<T> node = root;
+    List<String> segments = segments(pattern);
+    for (int i = 0; i < segments.size(); i++) {
+      String segment = segments.get(i);
+      if (segment.equals("**")) {
+        if (i != segments.size() - 1) {
+          throw new IllegalArgumentException("'**' is only supported at the end of a pattern: " + pattern);
+        }
+        node.rest = append(node.rest, mask, value);
+        return;
+      }
+      node = isSingleWildcard(segment) ? node.wildcard() : node.literal(segment);
+    }
+    node.exact = append(node.exact, mask, value);
+  }
+
+  /** The value registered for the most specific pattern matching {@code path}, or {@code null}. */
+  T match(String method, String path) {
+    int bit = methodBit(method);
+    return match(root, path, skipSlashes(path, 0), bit);
+  }
+
+  private T match(Node<T> node, String path, int start, int methodBit) {
+    if (start >= path.length()) {
+      T value = select(node.exact, methodBit);
+      return value != null ? value : select(node.rest, methodBit);
+    }
+    int end = path.indexOf('/', start);
+    if (end < 0) {
+      end = path.length();
+    }
+    int next = skipSlashes(path, end);
+
+    Node<T> literal = node.findLiteral(path, start, end);
+    if (literal != null) {
+      T value = match(literal, path, next, methodBit);
+      if (value != null) {
+        return value;
+      }
+    }
+    if (node.wildcard != null) {
+      T value = match(node.wildcard, path, next, methodBit);
+      if (value != null) {
+        return value;
+      }
+    }
+    return select(node.rest, methodBit);
+  }
+
+  private static <T> T select(Entry<T>[] entries, int methodBit) {
+    if (entries != null) {
+      for (Entry<T> entry : entries) {
+        if ((entry.methods & methodBit) != 0) {
+          return entry.value;
+        }
+      }
+    }
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Entry<T>[] append(Entry<T>[] entries, int mask, T value) {
+    List<Entry<T>> list = new ArrayList<>();
+    if (entries != null) {
+      list.addAll(List.of(entries));
+    }
+    list.add(new Entry<>(mask, value));
+    // Method-specific entries are checked first; otherwise registration order decides
+    list.sort((a, b) -> Boolean.compare(a.methods == ALL_METHODS, b.methods == ALL_METHODS));
+    return list.toArray(new Entry[0]);
+  }
+
+  private static List<String> segments(String pattern) {
+    List<String> segments = new ArrayList<>();
+    for (String segment : pattern.split("/")) {
+      if (!segment.isEmpty()) {
+        segments.add(segment);
+      }
+    }
+    return segments;
+  }
+
+  private static boolean isSingleWildcard(String segment) {
+    return segment.equals("*") || (segment.startsWith("{") && segment.endsWith("}"));
+  }
+
+  private static int skipSlashes(String path, int index) {
+    while (index < path.length() && path.charAt(index) == '/') {
+      index++;
+    }
+    return index;
+  }
+
+  private static int methodMask(Collection<String> methods) {
+    if (methods == null || methods.isEmpty()) {
+      return ALL_METHODS;
+    }
+    int mask = 0;
+    for (String method : methods) {
+      int bit = methodBit(method.toUpperCase(Locale.ROOT));
+      if (bit == OTHER_METHOD) {
+        throw new IllegalArgumentException("Unknown HTTP method: " + method);
+      }
+      mask |= bit;
+    }
+    return mask;
+  }
+
+  private static int methodBit(String method) {
+    for (int i = 0; i < METHODS.length; i++) {
+      if (METHODS[i].equals(method)) {
+        return 1 << i;
+      }
+    }
+    // Only entries for all methods apply to methods outside the list
+    return OTHER_METHOD;
+  }
+
+  private record Entry<T>(int methods, T value) {
+  }
+
+  private static final class Node<T> {
+    private String[] literals = new String[0];
+    private final List<Node<T>> literalChildren = new ArrayList<>();
+    private Node<T> wildcard;
+    private Entry<T>[] exact;
+    private Entry<T>[] rest;
+
+    Node<T> literal(String segment) {
+      for (int i = 0; i < literals.length; i++) {
+        if (literals[i].equals(segment)) {
+          return literalChildren.get(i);
+        }
+      }
+      String[] grown = Arrays.copyOf(literals, literals.length + 1);
+      grown[literals.length] = segment;
+      literals = grown;
+      Node<T> child = new Node<>();
+      literalChildren.add(child);
+      return child;
+    }
+
+    Node<T> wildcard() {
+      if (wildcard == null) {
+        wildcard = new Node<>();
+      }
+      return wildcard;
+    }
+
+    Node<T> findLiteral(String path, int start, int end) {
+      int length = end - start;
+      for (int i = 0; i < literals.length; i++) {
+        String literal = literals[i];
+        if (literal.length() == length && path.regionMatches(start, literal, 0, length)) {
+          return literalChildren.get(i);
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -2,23 +2,27 @@ package mindforge.config;
 
 import java.util.List;
 
-import javax.crypto.SecretKey;
-
+import mindforge.dto.CursorPage;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
-import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import mindforge.config.RateLimitingFilter;
+import mindforge.service.JwtService;
+import mindforge.service.TokenRevocationRegistry;
 
 @Configuration
 @Profile("!test")
@@ -29,16 +33,20 @@ public class SecurityConfig {
   private String frontendUrl;
 
   @Bean
-  public SecurityFilterChain securityFilterChain(HttpSecurity http, CorsConfigurationSource corsConfigSource, JwtDecoder jwtDecoder, RateLimitingFilter rateLimitingFilter)
+  public SecurityFilterChain securityFilterChain(HttpSecurity http, CorsConfigurationSource corsConfigSource, JwtDecoder jwtDecoder,
+      JwtAuthenticationConverter jwtAuthenticationConverter, RateLimitingFilter rateLimitingFilter)
       throws Exception {
     http
         .csrf(csrf -> csrf.disable())
         .cors(cors -> cors.configurationSource(corsConfigSource))
         .addFilterBefore(rateLimitingFilter, org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter.class)
         .authorizeHttpRequests(auth -> auth
-            .requestMatchers("/actuator/health", "/api/health", "/auth/register", "/auth/login").permitAll()
+            .requestMatchers("/actuator/health", "/api/health", "/auth/register", "/auth/login", "/auth/refresh",
+                "/auth/logout").permitAll()
             .anyRequest().authenticated())
-        .oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt -> jwt.decoder(jwtDecoder)))
+        .oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt -> jwt
+            .decoder(jwtDecoder)
+            .jwtAuthenticationConverter(jwtAuthenticationConverter)))
         .headers(headers -> headers
             .frameOptions().deny()
             .contentTypeOptions());
@@ -46,8 +54,25 @@ public class SecurityConfig {
   }
 
   @Bean
-  public JwtDecoder jwtDecoder(SecretKey jwtSecretKey) {
-    return NimbusJwtDecoder.withSecretKey(jwtSecretKey).build();
+  public JwtDecoder jwtDecoder(JwtService jwtService, TokenRevocationRegistry tokenRevocationRegistry) {
+    return new VerifiedTokenJwtDecoder(jwtService, tokenRevocationRegistry);
+  }
+
+  /** Maps the {@code role} claim to {@code ROLE_*} authorities so authorization needs no user lookup. */
+  @Bean
+  public JwtAuthenticationConverter jwtAuthenticationConverter() {
+    JwtGrantedAuthoritiesConverter authoritiesConverter = new JwtGrantedAuthoritiesConverter();
+    authoritiesConverter.setAuthoritiesClaimName("role");
+    authoritiesConverter.setAuthorityPrefix("ROLE_");
+
+    JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
+    converter.setJwtGrantedAuthoritiesConverter(authoritiesConverter);
+    return converter;
+  }
+
+  @Bean
+  public RoleHierarchy roleHierarchy() {
+    return RoleHierarchyImpl.fromHierarchy("ROLE_ADMIN > ROLE_USER");
   }
 
   @Bean
@@ -57,6 +82,8 @@ public class SecurityConfig {
     corsConfig.setAllowedOrigins(List.of(frontendUrl));
     corsConfig.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
     corsConfig.setAllowedHeaders(List.of("*"));
+    corsConfig.setExposedHeaders(List.of(RateLimitingFilter.LIMIT_HEADER, RateLimitingFilter.REMAINING_HEADER,
+        RateLimitingFilter.RETRY_AFTER_HEADER, CursorPage.NEXT_CURSOR_HEADER));
     corsConfig.setAllowCredentials(true);
 
     UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -0,0 +1,52 @@
+package mindforge.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import mindforge.service.PasswordHashingExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Runs each hash and verification on the {@link PasswordHashingExecutor} and records how long it takes
+ * as {@code auth.password-hashing.hash}, tagged {@code operation=encode|matches}. The caller waits for
+ * the result, at most {@code security.password-hashing.timeout}, so everything around the hash stays on
+ * its own thread.
+ */
+class TimedPasswordEncoder implements PasswordEncoder {
+
+  private final PasswordEncoder delegate;
+  private final PasswordHashingExecutor hashingExecutor;
+  private final Timer encodeTimer;
+  private final Timer matchesTimer;
+
+  TimedPasswordEncoder(PasswordEncoder delegate, PasswordHashingExecutor hashingExecutor,
+                       MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.hashingExecutor = hashingExecutor;
+    this.encodeTimer = timer(meterRegistry, "encode");
+    this.matchesTimer = timer(meterRegistry, "matches");
+  }
+
+  private static Timer timer(MeterRegistry meterRegistry, String operation) {
+    return Timer.builder("auth.password-hashing.hash")
+        .description("Time spent hashing or verifying a password")
+        .tag("operation", operation)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    return hashingExecutor.call(() -> encodeTimer.record(() -> delegate.encode(rawPassword)));
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    Boolean matches = hashingExecutor.call(
+        () -> matchesTimer.record(() -> delegate.matches(rawPassword, encodedPassword)));
+    return Boolean.TRUE.equals(matches);
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+    return delegate.upgradeEncoding(encodedPassword);
+  }
+}
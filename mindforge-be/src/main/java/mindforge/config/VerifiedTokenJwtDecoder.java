@@ -0,0 +1,54 @@
+package mindforge.config;
+
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import mindforge.service.JwtService;
+import mindforge.service.TokenRevocationRegistry;
+import mindforge.service.VerifiedToken;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+/**
+ * {@link JwtDecoder} for the resource server backed by {@link JwtService#verifyToken}, so bearer tokens
+ * go through the shared verifier and verified-token cache instead of a second Nimbus parse.
+ */
+@RequiredArgsConstructor
+public class VerifiedTokenJwtDecoder implements JwtDecoder {
+
+    private final JwtService jwtService;
+    private final TokenRevocationRegistry revocations;
+
+    @Override
+    public Jwt decode(String token) {
+        VerifiedToken verified;
+        try {
+            verified = jwtService.verifyToken(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new BadJwtException(e.getMessage(), e);
+        }
+        if (verified.subject() == null) {
+            throw new BadJwtException("Token has no subject");
+        }
+        if (revocations.isRevoked(verified)) {
+            throw new BadJwtException("Token was issued before the user's role or account changed");
+        }
+
+        Jwt.Builder jwt = Jwt.withTokenValue(token)
+                .header("alg", "HS256")
+                .subject(verified.subject());
+        if (verified.issuedAt() != 0) {
+            jwt.issuedAt(verified.issuedAtInstant());
+        }
+        if (verified.expiresAt() != VerifiedToken.NO_EXPIRY) {
+            jwt.expiresAt(verified.expiresAtInstant());
+        }
+        if (verified.userId() != null) {
+            jwt.claim("uid", verified.userId());
+        }
+        if (verified.role() != null) {
+            jwt.claim("role", verified.role());
+        }
+        return jwt.build();
+    }
+}
@@ -1,11 +1,21 @@
 package mindforge.controller;
 
 import lombok.RequiredArgsConstructor;
+import mindforge.config.AuthenticatedUser;
+import mindforge.dto.BulkActionResult;
+import mindforge.dto.UserImportReport;
 import mindforge.dto.UserResponseDto;
+import mindforge.dto.UserSelectionDto;
 import mindforge.service.AdminService;
+import mindforge.service.UserImportService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -14,10 +24,38 @@ import java.util.List;
 public class AdminController {
 
     private final AdminService adminService;
+    private final UserImportService userImportService;
 
     @GetMapping("/users")
-    public ResponseEntity<List<UserResponseDto>> getAllUsers() {
-        return ResponseEntity.ok(adminService.getAllUsers());
+    public ResponseEntity<List<UserResponseDto>> getAllUsers(@RequestParam(required = false) String search,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(required = false) Integer limit) {
+        return adminService.getAllUsers(search, cursor, limit).toResponse();
+    }
+
+    /** Every user matching the optional filters of {@code /auth/users}, streamed as NDJSON. */
+    @GetMapping(value = "/users/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(required = false) String search,
+                                                             @RequestParam(required = false) String role) {
+        return ndjson("users.ndjson", out -> adminService.exportUsers(search, role, out));
+    }
+
+    /** Every project, streamed as NDJSON. */
+    @GetMapping(value = "/projects/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProjects() {
+        return ndjson("projects.ndjson", adminService::exportProjects);
+    }
+
+    /** Creates users from a CSV upload; see {@link UserImportService#importCsv}. */
+    @PostMapping(value = "/users/import", consumes = "text/csv")
+    public ResponseEntity<UserImportReport> importUsersCsv(InputStream body) throws IOException {
+        return ResponseEntity.ok(userImportService.importCsv(body));
+    }
+
+    /** Creates users from an NDJSON upload, one {@code UserRequestDto} per line. */
+    @PostMapping(value = "/users/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<UserImportReport> importUsersNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(userImportService.importNdjson(body));
     }
 
     @GetMapping("/users/{userId}")
@@ -46,4 +84,36 @@ public class AdminController {
     public ResponseEntity<UserResponseDto> unlockUserAccount(@PathVariable Long userId) {
         return ResponseEntity.ok(adminService.unlockUserAccount(userId));
     }
+
+    /** Locks the selected users until unlocked; see {@link AdminService#lockUserAccounts}. */
+    @PostMapping("/users/bulk/lock")
+    public ResponseEntity<BulkActionResult> lockUserAccounts(@RequestBody UserSelectionDto selection,
+                                                             AuthenticatedUser currentUser) {
+        return ResponseEntity.ok(adminService.lockUserAccounts(selection, currentUser.userId()));
+    }
+
+    @PostMapping("/users/bulk/unlock")
+    public ResponseEntity<BulkActionResult> unlockUserAccounts(@RequestBody UserSelectionDto selection) {
+        return ResponseEntity.ok(adminService.unlockUserAccounts(selection));
+    }
+
+    @PutMapping("/users/bulk/role")
+    public ResponseEntity<BulkActionResult> updateUserRoles(@RequestBody UserSelectionDto selection,
+                                                            @RequestParam String role,
+                                                            AuthenticatedUser currentUser) {
+        return ResponseEntity.ok(adminService.updateUserRoles(selection, role, currentUser.userId()));
+    }
+
+    /** Deletes the selected users except admins and project owners; see {@link AdminService#deleteUsers}. */
+    @PostMapping("/users/bulk/delete")
+    public ResponseEntity<BulkActionResult> deleteUsers(@RequestBody UserSelectionDto selection) {
+        return ResponseEntity.ok(adminService.deleteUsers(selection));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> ndjson(String filename, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
 }
\ No newline at end of file
@@ -1,11 +1,14 @@
 package mindforge.controller;
 
 import lombok.RequiredArgsConstructor;
+import mindforge.config.AuthenticatedUser;
 import mindforge.dto.AuthenticationResponseDto;
 import mindforge.dto.UserRequestDto;
+import mindforge.dto.CursorPage;
 import mindforge.dto.UserResponseDto;
 import mindforge.service.AuthenticationService;
-import mindforge.service.JwtService;
+import mindforge.service.RefreshTokenService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -16,8 +19,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
 
 import java.util.List;
-import java.util.Optional;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/auth")
@@ -25,25 +28,29 @@ import java.util.Map;
 public class AuthController {
 
     private final AuthenticationService authService;
-    private final JwtService jwtService;
 
     @PostMapping("/register")
     @Operation(summary = "Register a new user")
     @ApiResponses({
         @ApiResponse(responseCode = "201", description = "User successfully created"),
+        @ApiResponse(responseCode = "400", description = "Password does not meet the strength requirements"),
         @ApiResponse(responseCode = "409", description = "Username already exists"),
-        @ApiResponse(responseCode = "500", description = "Internal server error")
+        @ApiResponse(responseCode = "500", description = "Internal server error"),
+        @ApiResponse(responseCode = "503", description = "Too many concurrent password operations, retry later")
     })
     public ResponseEntity<?> register(@Valid @RequestBody UserRequestDto request) {
         try {
-            if (authService.findByUsername(request.getUsername()).isPresent()) {
-                return ResponseEntity.status(409)
-                        .body(Map.of("error", "Benutzername existiert bereits"));
-            }
-
             UserResponseDto createdUser = authService.register(request);
             return ResponseEntity.status(201).body(createdUser);
 
+        } catch (IllegalArgumentException e) {
+            if ("Username already exists".equals(e.getMessage())) {
+                return ResponseEntity.status(409)
+                        .body(Map.of("error", "Benutzername existiert bereits"));
+            }
+            return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.status(500)
                     .body(Map.of("error", "Interner Serverfehler"));
@@ -54,10 +61,12 @@ public class AuthController {
     @Operation(summary = "Login user and get JWT")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "Login successful"),
-        @ApiResponse(responseCode = "401", description = "Invalid credentials")
+        @ApiResponse(responseCode = "401", description = "Invalid credentials"),
+        @ApiResponse(responseCode = "503", description = "Too many concurrent password operations, retry later")
     })
-    public ResponseEntity<AuthenticationResponseDto> login(@RequestBody UserRequestDto request) {
-        return authService.loginWithTokens(request)
+    public ResponseEntity<AuthenticationResponseDto> login(@RequestBody UserRequestDto request,
+                                                           @RequestHeader(value = RefreshTokenService.DEVICE_ID_HEADER, required = false) String deviceId) {
+        return authService.loginWithTokens(request, deviceId)
                 .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.status(401).build());
     }
@@ -75,52 +84,58 @@ public class AuthController {
         }
 
         return authService.refreshToken(refreshToken)
-                .map(token -> ResponseEntity.ok(AuthenticationResponseDto.builder()
-                        .username(jwtService.extractUsername(refreshToken))
-                        .token(token)
-                        .refreshToken(refreshToken)
-                        .build()))
+                .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.status(401).build());
     }
 
-    @GetMapping("/me")
-    @Operation(summary = "Get current user")
+    @PostMapping("/logout")
+    @Operation(summary = "Sign out the device holding the given refresh token")
     @ApiResponses({
-        @ApiResponse(responseCode = "200", description = "User found"),
-        @ApiResponse(responseCode = "401", description = "Unauthorized"),
-        @ApiResponse(responseCode = "403", description = "Forbidden"),
-        @ApiResponse(responseCode = "404", description = "User not found")
+        @ApiResponse(responseCode = "204", description = "Session ended"),
+        @ApiResponse(responseCode = "400", description = "Refresh token missing")
     })
-    public ResponseEntity<UserResponseDto> me(@RequestHeader(value = "Authorization", required = false) String authHeader) {
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            return ResponseEntity.status(401).build();
-        }
-
-        String jwt = authHeader.substring(7);
-        String username;
-        try {
-            username = jwtService.extractUsername(jwt);
-        } catch (Exception e) {
-            return ResponseEntity.status(401).build();
+    public ResponseEntity<Void> logout(@RequestBody Map<String, String> request) {
+        String refreshToken = request.get("refreshToken");
+        if (refreshToken == null) {
+            return ResponseEntity.badRequest().build();
         }
 
-        Optional<UserResponseDto> userDtoOpt = authService.findByUsername(username);
-
-        if (userDtoOpt.isEmpty()) {
-            return ResponseEntity.status(404).build();
-        }
+        authService.logout(refreshToken);
+        return ResponseEntity.noContent().build();
+    }
 
-        UserResponseDto userDto = userDtoOpt.get();
+    @PostMapping("/logout-all")
+    @Operation(summary = "Sign out all devices of the current user")
+    @ApiResponses({
+        @ApiResponse(responseCode = "204", description = "All sessions ended"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<Void> logoutAll(AuthenticatedUser currentUser) {
+        authService.logoutAll(currentUser.userId(), currentUser.username());
+        return ResponseEntity.noContent().build();
+    }
 
-        if (!"USER".equals(userDto.getRole()) && !"ADMIN".equals(userDto.getRole())) {
+    @GetMapping("/me")
+    @Operation(summary = "Get current user")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "User found"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "403", description = "Forbidden")
+    })
+    public ResponseEntity<UserResponseDto> me(AuthenticatedUser currentUser) {
+        if (!"USER".equals(currentUser.role()) && !currentUser.isAdmin()) {
             return ResponseEntity.status(403).build();
         }
 
-        return ResponseEntity.ok(userDto);
+        return ResponseEntity.ok(UserResponseDto.builder()
+                .id(currentUser.userId())
+                .username(currentUser.username())
+                .role(currentUser.role())
+                .build());
     }
 
     @DeleteMapping("/users/{username}")
-    @PreAuthorize("hasRole('ADMIN')")
+    @PreAuthorize("hasRole('ADMIN') or #username == authentication.name")
     @Operation(summary = "Delete a user account")
     @ApiResponses({
         @ApiResponse(responseCode = "204", description = "User deleted successfully"),
@@ -128,31 +143,11 @@ public class AuthController {
         @ApiResponse(responseCode = "403", description = "Forbidden - insufficient permissions"),
         @ApiResponse(responseCode = "404", description = "User not found")
     })
-    public ResponseEntity<?> deleteUser(@PathVariable String username,
-                                       @RequestHeader(value = "Authorization", required = false) String authHeader) {
-        // Authentication check
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            return ResponseEntity.status(401).build();
-        }
-
-        String tokenUsername;
-        try {
-            tokenUsername = jwtService.extractUsername(authHeader.substring(7));
-        } catch (Exception e) {
-            return ResponseEntity.status(401).build();
-        }
-
+    public ResponseEntity<?> deleteUser(@PathVariable String username, AuthenticatedUser currentUser) {
         // Authorization check - users can only delete their own account or admins can delete any account
-        Optional<UserResponseDto> currentUserOpt = authService.findByUsername(tokenUsername);
-        if (currentUserOpt.isEmpty()) {
-            return ResponseEntity.status(401).build();
-        }
-
-        UserResponseDto currentUser = currentUserOpt.get();
-        boolean isAdmin = "ADMIN".equals(currentUser.getRole());
-        boolean isOwnAccount = tokenUsername.equals(username);
+        boolean isOwnAccount = currentUser.username().equals(username);
 
-        if (!isAdmin && !isOwnAccount) {
+        if (!currentUser.isAdmin() && !isOwnAccount) {
             return ResponseEntity.status(403).build();
         }
 
@@ -172,30 +167,21 @@ public class AuthController {
         @ApiResponse(responseCode = "200", description = "Profile updated successfully"),
         @ApiResponse(responseCode = "400", description = "Invalid request data"),
         @ApiResponse(responseCode = "401", description = "Unauthorized"),
-        @ApiResponse(responseCode = "409", description = "Username already exists")
+        @ApiResponse(responseCode = "409", description = "Username already exists"),
+        @ApiResponse(responseCode = "503", description = "Too many concurrent password operations, retry later")
     })
     public ResponseEntity<?> updateProfile(@Valid @RequestBody UserRequestDto updateRequest,
-                                          @RequestHeader(value = "Authorization", required = false) String authHeader) {
-        // Authentication check
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            return ResponseEntity.status(401).build();
-        }
-
-        String username;
-        try {
-            username = jwtService.extractUsername(authHeader.substring(7));
-        } catch (Exception e) {
-            return ResponseEntity.status(401).build();
-        }
-
+                                           AuthenticatedUser currentUser) {
         try {
-            UserResponseDto updatedUser = authService.updateUserProfile(username, updateRequest);
+            UserResponseDto updatedUser = authService.updateUserProfile(currentUser.username(), updateRequest);
             return ResponseEntity.ok(updatedUser);
         } catch (IllegalArgumentException e) {
             if (e.getMessage().contains("Username already exists")) {
                 return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
             }
             return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", "Failed to update profile"));
         }
@@ -212,22 +198,9 @@ public class AuthController {
     })
     public ResponseEntity<?> updateUserRole(@PathVariable String username,
                                            @RequestBody Map<String, String> roleRequest,
-                                           @RequestHeader(value = "Authorization", required = false) String authHeader) {
-        // Authentication check
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            return ResponseEntity.status(401).build();
-        }
-
-        String tokenUsername;
-        try {
-            tokenUsername = jwtService.extractUsername(authHeader.substring(7));
-        } catch (Exception e) {
-            return ResponseEntity.status(401).build();
-        }
-
+                                           AuthenticatedUser currentUser) {
         // Authorization check - only admins can update roles
-        Optional<UserResponseDto> currentUserOpt = authService.findByUsername(tokenUsername);
-        if (currentUserOpt.isEmpty() || !"ADMIN".equals(currentUserOpt.get().getRole())) {
+        if (!currentUser.isAdmin()) {
             return ResponseEntity.status(403).build();
         }
 
@@ -258,30 +231,27 @@ public class AuthController {
     })
     public ResponseEntity<?> searchUsers(@RequestParam(required = false) String search,
                                         @RequestParam(required = false) String role,
-                                        @RequestHeader(value = "Authorization", required = false) String authHeader) {
-        // Authentication check
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            return ResponseEntity.status(401).build();
-        }
-
-        String username;
-        try {
-            username = jwtService.extractUsername(authHeader.substring(7));
-        } catch (Exception e) {
-            return ResponseEntity.status(401).build();
-        }
-
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(required = false) Integer limit,
+                                        AuthenticatedUser currentUser) {
         // Authorization check - only admins can search users
-        Optional<UserResponseDto> currentUserOpt = authService.findByUsername(username);
-        if (currentUserOpt.isEmpty() || !"ADMIN".equals(currentUserOpt.get().getRole())) {
+        if (!currentUser.isAdmin()) {
             return ResponseEntity.status(403).build();
         }
 
         try {
-            List<UserResponseDto> users = authService.searchUsers(search, role, username);
-            return ResponseEntity.ok(users);
+            return authService.searchUsers(search, role, currentUser.username(), cursor, limit).toResponse();
+        } catch (CursorPage.InvalidCursorException e) {
+            return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", "Failed to search users"));
         }
     }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, String>> passwordHashingBusy() {
+        return ResponseEntity.status(503)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", "Server busy, please retry"));
+    }
 }
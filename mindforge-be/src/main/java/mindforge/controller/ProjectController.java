@@ -1,8 +1,8 @@
 package mindforge.controller;
 
 import lombok.RequiredArgsConstructor;
+import mindforge.config.AuthenticatedUser;
 import mindforge.dto.ProjectDto;
-import mindforge.service.JwtService;
 import mindforge.service.ProjectService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,59 +15,48 @@ import java.util.List;
 public class ProjectController {
 
     private final ProjectService projectService;
-    private final JwtService jwtService;
 
     @GetMapping
-    public ResponseEntity<List<ProjectDto>> getAllProjects() {
-        return ResponseEntity.ok(projectService.getAllProjects());
+    public ResponseEntity<List<ProjectDto>> getAllProjects(@RequestParam(required = false) String cursor,
+                                                           @RequestParam(required = false) Integer limit) {
+        return projectService.getAllProjects(cursor, limit).toResponse();
     }
 
     @GetMapping("/public")
-    public ResponseEntity<List<ProjectDto>> getPublicProjects() {
-        return ResponseEntity.ok(projectService.getPublicProjects());
+    public ResponseEntity<byte[]> getPublicProjects(@RequestParam(required = false) String cursor,
+                                                    @RequestParam(required = false) Integer limit) {
+        return projectService.getPublicProjectsJson(cursor, limit).toResponse();
     }
 
     @GetMapping("/my")
-    public ResponseEntity<List<ProjectDto>> getMyProjects(@RequestHeader(value = "Authorization", required = false) String authHeader) {
-        String username = extractUsername(authHeader);
-        return ResponseEntity.ok(projectService.getUserProjects(username));
+    public ResponseEntity<List<ProjectDto>> getMyProjects(AuthenticatedUser currentUser) {
+        return ResponseEntity.ok(projectService.getUserProjects(currentUser.username()));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ProjectDto> getProjectById(@PathVariable Long id) {
-        return ResponseEntity.ok(projectService.getProjectById(id));
+    public ResponseEntity<byte[]> getProjectById(@PathVariable Long id) {
+        return projectService.getProjectJson(id).toResponse();
     }
 
     @PostMapping
     public ResponseEntity<ProjectDto> createProject(@RequestBody ProjectDto projectDto,
-                                                   @RequestHeader(value = "Authorization", required = false) String authHeader) {
-        String username = extractUsername(authHeader);
-        ProjectDto created = projectService.createProject(username, projectDto);
+                                                   AuthenticatedUser currentUser) {
+        ProjectDto created = projectService.createProject(currentUser.username(), projectDto);
         return ResponseEntity.ok(created);
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<ProjectDto> updateProject(@PathVariable Long id,
                                                    @RequestBody ProjectDto projectDto,
-                                                   @RequestHeader(value = "Authorization", required = false) String authHeader) {
-        String username = extractUsername(authHeader);
-        ProjectDto updated = projectService.updateProject(username, id, projectDto);
+                                                   AuthenticatedUser currentUser) {
+        ProjectDto updated = projectService.updateProject(currentUser.username(), id, projectDto);
         return ResponseEntity.ok(updated);
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteProject(@PathVariable Long id,
-                                             @RequestHeader(value = "Authorization", required = false) String authHeader) {
-        String username = extractUsername(authHeader);
-        projectService.deleteProject(username, id);
+                                             AuthenticatedUser currentUser) {
+        projectService.deleteProject(currentUser.username(), id);
         return ResponseEntity.noContent().build();
     }
-
-    private String extractUsername(String authHeader) {
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            throw new IllegalArgumentException("Invalid authorization header");
-        }
-        String token = authHeader.substring(7);
-        return jwtService.extractUsername(token);
-    }
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package mindforge.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/** Outcome of a bulk admin operation: how many users it changed or deleted, and which. */
+@Schema(description = "Outcome of a bulk admin operation")
+public record BulkActionResult(int affected, List<Long> userIds) {
+}
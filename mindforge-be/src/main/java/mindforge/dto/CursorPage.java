@@ -0,0 +1,85 @@
+package mindforge.dto;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * One page of a listing ordered by id, with the opaque cursor of the next page ({@code null} on the
+ * last one).
+ * <p>
+ * Listings fetch {@code limit + 1} rows with {@code id > afterId ORDER BY id}, so the primary key index
+ * serves every page at the same cost and the extra row tells whether another page follows. Over HTTP the
+ * body stays a plain array of {@link #items()} and the cursor travels in {@value #NEXT_CURSOR_HEADER}.
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+  public static final int DEFAULT_LIMIT = 50;
+  public static final int MAX_LIMIT = 200;
+
+  /** The requested page size, defaulted and capped at {@link #MAX_LIMIT}. */
+  public static int limit(Integer requested) {
+    if (requested == null) {
+      return DEFAULT_LIMIT;
+    }
+    return Math.max(1, Math.min(requested, MAX_LIMIT));
+  }
+
+  /** The id the page after {@code cursor} starts behind; {@code 0} for the first page. */
+  public static long afterId(String cursor) {
+    if (cursor == null || cursor.isEmpty()) {
+      return 0;
+    }
+    try {
+      byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+      if (bytes.length != Long.BYTES) {
+        throw new InvalidCursorException();
+      }
+      long afterId = ByteBuffer.wrap(bytes).getLong();
+      if (afterId < 0) {
+        throw new InvalidCursorException();
+      }
+      return afterId;
+    } catch (IllegalArgumentException e) {
+      throw new InvalidCursorException();
+    }
+  }
+
+  /**
+   * The page of {@code rows}, which were fetched with {@code limit + 1} rows in id order.
+   */
+  public static <E, T> CursorPage<T> of(List<E> rows, int limit, ToLongFunction<E> id, Function<E, T> mapper) {
+    boolean more = rows.size() > limit;
+    List<E> page = more ? rows.subList(0, limit) : rows;
+    String nextCursor = more ? encode(id.applyAsLong(page.get(page.size() - 1))) : null;
+    return new CursorPage<>(page.stream().map(mapper).toList(), nextCursor);
+  }
+
+  /** 200 with the items as body and, unless this is the last page, the next cursor as header. */
+  public ResponseEntity<List<T>> toResponse() {
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    if (nextCursor != null) {
+      response.header(NEXT_CURSOR_HEADER, nextCursor);
+    }
+    return response.body(items);
+  }
+
+  static String encode(long afterId) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(ByteBuffer.allocate(Long.BYTES).putLong(afterId).array());
+  }
+
+  @ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Invalid cursor")
+  public static class InvalidCursorException extends IllegalArgumentException {
+
+    public InvalidCursorException() {
+      super("Invalid cursor");
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package mindforge.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk user import. {@code failures} lists the rejected rows in input order, up to
+ * {@code UserImportService.MAX_REPORTED_FAILURES}; {@code failed} counts all of them.
+ */
+@Schema(description = "Outcome of a bulk user import")
+public record UserImportReport(long imported, long failed, List<RowFailure> failures) {
+
+  /** A rejected row, numbered from 1 among the data rows of the input. */
+  public record RowFailure(long row, String username, String reason) {
+  }
+}
@@ -0,0 +1,26 @@
+package mindforge.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Users a bulk admin operation applies to: the listed ids, narrowed by the optional filters")
+public class UserSelectionDto {
+
+  @Schema(description = "Ids of the users; omit to select by the filters alone", example = "[12, 15, 19]")
+  private List<Long> userIds;
+
+  @Schema(description = "Part of the username, ignoring case, as in the user search", example = "contractor-")
+  private String search;
+
+  @Schema(description = "Current role of the users", example = "USER")
+  private String role;
+}
@@ -0,0 +1,50 @@
+package mindforge.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Cluster-wide request count of one client key in one fixed window of a rate limit policy. Written only
+ * through {@code RateLimitCounterRepository}; mapped so the schema is known to Hibernate.
+ */
+@Entity
+@Table(name = "rate_limit_counters", indexes = {
+    @Index(name = "idx_rate_limit_counters_expires_at", columnList = "expires_at_ms")
+})
+@IdClass(RateLimitCounter.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateLimitCounter {
+
+    @Id
+    @Column(length = 64)
+    private String policy;
+
+    @Id
+    @Column(name = "key_hash")
+    private Long keyHash;
+
+    /** Window number: epoch millis divided by the policy period. */
+    @Id
+    @Column(name = "window_index")
+    private Long windowIndex;
+
+    @Column(name = "request_count", nullable = false)
+    private Long requestCount;
+
+    @Column(name = "expires_at_ms", nullable = false)
+    private Long expiresAtMs;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String policy;
+        private Long keyHash;
+        private Long windowIndex;
+    }
+}
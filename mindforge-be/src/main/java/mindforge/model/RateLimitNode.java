@@ -0,0 +1,23 @@
+package mindforge.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Heartbeat of an application instance taking part in cluster-wide rate limiting.
+ */
+@Entity
+@Table(name = "rate_limit_nodes")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateLimitNode {
+
+    @Id
+    @Column(name = "node_id", length = 64)
+    private String nodeId;
+
+    @Column(name = "last_seen_ms", nullable = false)
+    private Long lastSeenMs;
+}
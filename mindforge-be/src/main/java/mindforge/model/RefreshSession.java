@@ -0,0 +1,46 @@
+package mindforge.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * One signed-in device of a user. Only the SHA-256 digest of the opaque refresh token is stored.
+ */
+@Entity
+@Table(name = "refresh_sessions", indexes = {
+    @Index(name = "idx_refresh_sessions_token_hash", columnList = "token_hash", unique = true),
+    @Index(name = "idx_refresh_sessions_user_device", columnList = "user_id, device"),
+    @Index(name = "idx_refresh_sessions_expires_at", columnList = "expires_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RefreshSession {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @Column(name = "token_hash", nullable = false, length = 32)
+    private byte[] tokenHash;
+
+    @Column(nullable = false)
+    private String device;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,26 @@
+package mindforge.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Access tokens of {@code username} issued before {@code revokedAtMs} are no longer trusted. Written and
+ * polled by {@code TokenRevocationRegistry}, so a revocation reaches every instance.
+ */
+@Entity
+@Table(name = "token_revocations", indexes = {
+    @Index(name = "idx_token_revocations_revoked_at", columnList = "revoked_at_ms")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenRevocation {
+
+    @Id
+    @Column(name = "username")
+    private String username;
+
+    @Column(name = "revoked_at_ms", nullable = false)
+    private Long revokedAtMs;
+}
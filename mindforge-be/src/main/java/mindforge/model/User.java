@@ -12,8 +12,13 @@ import lombok.*;
 @Table(name = "users")
 public class User {
 
+  /** Ids reserved per {@code nextval('users_seq')}; the sequence's INCREMENT BY. */
+  public static final int ID_BLOCK_SIZE = 50;
+
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  // Pooled: one nextval per 50 ids, so inserts batch; see 007-pooled-id-sequences.sql
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+  @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = ID_BLOCK_SIZE)
   private Long id;
 
   @Column(unique = true, nullable = false)
@@ -34,8 +39,6 @@ public class User {
 
   private String avatarUrl;
 
-  private String refreshToken;
-
   @Builder.Default
   @Column(name = "failed_login_attempts")
   private Integer failedLoginAttempts = 0;
@@ -1,15 +1,69 @@
 package mindforge.repository;
 
+import jakarta.persistence.QueryHint;
 import mindforge.model.Project;
 import mindforge.model.User;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProjectRepository extends JpaRepository<Project, Long> {
     List<Project> findByOwner(User owner);
     List<Project> findByIsPublicTrue();
     List<Project> findByOwnerAndIsPublic(User owner, boolean isPublic);
+
+    String VIEW = "SELECT p.id AS id, p.name AS name, p.description AS description, p.isPublic AS isPublic,"
+            + " o.id AS ownerId, o.username AS ownerUsername FROM Project p JOIN p.owner o";
+
+    /** Projects with their owner in one join, in id order after {@code afterId}, one keyset page at a time. */
+    @Query(VIEW + " WHERE p.id > :afterId ORDER BY p.id")
+    List<ProjectView> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(VIEW + " WHERE p.isPublic = true AND p.id > :afterId ORDER BY p.id")
+    List<ProjectView> findPublicPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(VIEW + " WHERE o.username = :username ORDER BY p.id")
+    List<ProjectView> findViewsByOwnerUsername(@Param("username") String username);
+
+    @Query(VIEW + " WHERE p.id = :id")
+    Optional<ProjectView> findViewById(@Param("id") Long id);
+
+    /** The project with its owner fetched in the same statement, for ownership checks. */
+    @Query("SELECT p FROM Project p JOIN FETCH p.owner WHERE p.id = :id")
+    Optional<Project> findWithOwnerById(@Param("id") Long id);
+
+    /**
+     * All projects with their owner, in id order, read through a forward-only cursor
+     * {@value UserRepository#EXPORT_FETCH_SIZE} rows at a time; see {@link UserRepository#streamForExport}.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = UserRepository.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(VIEW + " ORDER BY p.id")
+    Stream<ProjectView> streamForExport();
+
+    /** What project listings show: the project and the id and name of its owner. */
+    interface ProjectView {
+        Long getId();
+
+        String getName();
+
+        String getDescription();
+
+        Boolean getIsPublic();
+
+        Long getOwnerId();
+
+        String getOwnerUsername();
+    }
 }
\ No newline at end of file
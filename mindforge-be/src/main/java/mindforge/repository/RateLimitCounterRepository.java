@@ -0,0 +1,22 @@
+package mindforge.repository;
+
+import mindforge.model.RateLimitCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface RateLimitCounterRepository
+    extends JpaRepository<RateLimitCounter, RateLimitCounter.Key>, RateLimitCounterRepositoryCustom {
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM RateLimitCounter c WHERE c.expiresAtMs < :nowMs")
+  int deleteExpired(@Param("nowMs") long nowMs);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM RateLimitNode n WHERE n.lastSeenMs < :cutoffMs")
+  int deleteNodesNotSeenSince(@Param("cutoffMs") long cutoffMs);
+}
@@ -0,0 +1,22 @@
+package mindforge.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface RateLimitCounterRepositoryCustom {
+
+  /**
+   * Adds {@code deltas} to the shared counters of {@code policy}, creating missing rows. Each row expires
+   * one period after the end of the window following its own.
+   */
+  void addCounts(String policy, long periodMillis, List<CounterDelta> deltas);
+
+  /** Counters of {@code keyHashes} in windows {@code fromWindow} and later. */
+  List<CounterDelta> findCounts(String policy, Collection<Long> keyHashes, long fromWindow);
+
+  /** Records that {@code nodeId} is alive and returns how many nodes were seen at {@code liveSinceMs} or later. */
+  int heartbeat(String nodeId, long nowMs, long liveSinceMs);
+
+  record CounterDelta(long keyHash, long windowIndex, long count) {
+  }
+}
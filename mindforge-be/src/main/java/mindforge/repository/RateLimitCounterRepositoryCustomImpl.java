@@ -0,0 +1,149 @@
+package mindforge.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * On PostgreSQL counts are added with one batched upsert. Other databases (H2 in tests, whose PostgreSQL
+ * mode knows ON CONFLICT DO NOTHING but not DO UPDATE) run UPDATE-then-INSERT and rely on its row counts.
+ */
+@RequiredArgsConstructor
+class RateLimitCounterRepositoryCustomImpl implements RateLimitCounterRepositoryCustom {
+
+  private static final int IN_CHUNK = 500;
+
+  private static final String ADD_COUNT = """
+      UPDATE rate_limit_counters SET request_count = request_count + ?
+      WHERE policy = ? AND key_hash = ? AND window_index = ?
+      """;
+
+  private static final String INSERT_COUNT = """
+      INSERT INTO rate_limit_counters (policy, key_hash, window_index, request_count, expires_at_ms)
+      VALUES (?, ?, ?, ?, ?)
+      ON CONFLICT DO NOTHING
+      """;
+
+  private static final String UPSERT_COUNT = """
+      INSERT INTO rate_limit_counters (policy, key_hash, window_index, request_count, expires_at_ms)
+      VALUES (?, ?, ?, ?, ?)
+      ON CONFLICT (policy, key_hash, window_index)
+      DO UPDATE SET request_count = rate_limit_counters.request_count + EXCLUDED.request_count
+      """;
+
+  private static final String TOUCH_NODE = "UPDATE rate_limit_nodes SET last_seen_ms = ? WHERE node_id = ?";
+
+  private static final String INSERT_NODE = """
+      INSERT INTO rate_limit_nodes (node_id, last_seen_ms) VALUES (?, ?)
+      ON CONFLICT DO NOTHING
+      """;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private volatile Boolean upsertSupported;
+
+  /**
+   * On PostgreSQL a single batched upsert: with {@code reWriteBatchedInserts} the driver reports
+   * {@code SUCCESS_NO_INFO} for each row, so row counts cannot tell which inserts lost a race.
+   */
+  @Override
+  @Transactional
+  public void addCounts(String policy, long periodMillis, List<CounterDelta> deltas) {
+    if (deltas.isEmpty()) {
+      return;
+    }
+    if (upsertSupported()) {
+      jdbcTemplate.batchUpdate(UPSERT_COUNT, rows(policy, periodMillis, deltas));
+      return;
+    }
+    List<CounterDelta> missing = update(policy, deltas);
+    if (missing.isEmpty()) {
+      return;
+    }
+    int[] inserted = jdbcTemplate.batchUpdate(INSERT_COUNT, rows(policy, periodMillis, missing));
+    List<CounterDelta> raced = new ArrayList<>();
+    for (int i = 0; i < inserted.length; i++) {
+      if (inserted[i] == 0) {
+        raced.add(missing.get(i));
+      }
+    }
+    // Another node created these rows between our UPDATE and INSERT
+    update(policy, raced);
+  }
+
+  private static List<Object[]> rows(String policy, long periodMillis, List<CounterDelta> deltas) {
+    List<Object[]> rows = new ArrayList<>(deltas.size());
+    for (CounterDelta delta : deltas) {
+      rows.add(new Object[] {policy, delta.keyHash(), delta.windowIndex(), delta.count(),
+          (delta.windowIndex() + 3) * periodMillis});
+    }
+    return rows;
+  }
+
+  private List<CounterDelta> update(String policy, List<CounterDelta> deltas) {
+    if (deltas.isEmpty()) {
+      return List.of();
+    }
+    List<Object[]> args = new ArrayList<>(deltas.size());
+    for (CounterDelta delta : deltas) {
+      args.add(new Object[] {delta.count(), policy, delta.keyHash(), delta.windowIndex()});
+    }
+    int[] updated = jdbcTemplate.batchUpdate(ADD_COUNT, args);
+    List<CounterDelta> missing = new ArrayList<>();
+    for (int i = 0; i < updated.length; i++) {
+      if (updated[i] == 0) {
+        missing.add(deltas.get(i));
+      }
+    }
+    return missing;
+  }
+
+  @Override
+  public List<CounterDelta> findCounts(String policy, Collection<Long> keyHashes, long fromWindow) {
+    List<CounterDelta> counts = new ArrayList<>();
+    List<Long> keys = List.copyOf(keyHashes);
+    for (int from = 0; from < keys.size(); from += IN_CHUNK) {
+      List<Long> chunk = keys.subList(from, Math.min(keys.size(), from + IN_CHUNK));
+      String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+      Object[] args = new Object[chunk.size() + 2];
+      args[0] = policy;
+      args[1] = fromWindow;
+      for (int i = 0; i < chunk.size(); i++) {
+        args[i + 2] = chunk.get(i);
+      }
+      counts.addAll(jdbcTemplate.query(
+          "SELECT key_hash, window_index, request_count FROM rate_limit_counters "
+              + "WHERE policy = ? AND window_index >= ? AND key_hash IN (" + placeholders + ")",
+          (rs, rowNum) -> new CounterDelta(rs.getLong(1), rs.getLong(2), rs.getLong(3)),
+          args));
+    }
+    return counts;
+  }
+
+  @Override
+  @Transactional
+  public int heartbeat(String nodeId, long nowMs, long liveSinceMs) {
+    if (jdbcTemplate.update(TOUCH_NODE, nowMs, nodeId) == 0) {
+      jdbcTemplate.update(INSERT_NODE, nodeId, nowMs);
+    }
+    Integer live = jdbcTemplate.queryForObject(
+        "SELECT COUNT(*) FROM rate_limit_nodes WHERE last_seen_ms >= ?", Integer.class, liveSinceMs);
+    return live == null ? 1 : Math.max(1, live);
+  }
+
+  private boolean upsertSupported() {
+    Boolean supported = upsertSupported;
+    if (supported == null) {
+      supported = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+          "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+      upsertSupported = supported;
+    }
+    return supported;
+  }
+}
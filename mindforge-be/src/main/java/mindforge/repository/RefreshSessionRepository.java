@@ -0,0 +1,57 @@
+package mindforge.repository;
+
+import mindforge.model.RefreshSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+public interface RefreshSessionRepository extends JpaRepository<RefreshSession, Long> {
+
+  @Query("SELECT u.id AS userId, u.username AS username, u.role AS role, s.device AS device, s.expiresAt AS expiresAt "
+      + "FROM RefreshSession s JOIN s.user u WHERE s.tokenHash = :tokenHash")
+  Optional<SessionOwner> findOwnerByTokenHash(@Param("tokenHash") byte[] tokenHash);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM RefreshSession s WHERE s.tokenHash = :tokenHash")
+  int deleteByTokenHash(@Param("tokenHash") byte[] tokenHash);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM RefreshSession s WHERE s.user.id = :userId")
+  int deleteByUserId(@Param("userId") Long userId);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM RefreshSession s WHERE s.user.id IN :userIds")
+  int deleteByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM RefreshSession s WHERE s.user.id = :userId AND s.device = :device")
+  int deleteByUserIdAndDevice(@Param("userId") Long userId, @Param("device") String device);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM RefreshSession s WHERE s.expiresAt < :cutoff")
+  int deleteExpired(@Param("cutoff") LocalDateTime cutoff);
+
+  /** The user a refresh token belongs to, read in the same indexed lookup as the session. */
+  interface SessionOwner {
+    Long getUserId();
+
+    String getUsername();
+
+    String getRole();
+
+    String getDevice();
+
+    LocalDateTime getExpiresAt();
+  }
+}
@@ -0,0 +1,22 @@
+package mindforge.repository;
+
+import mindforge.model.TokenRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface TokenRevocationRepository
+    extends JpaRepository<TokenRevocation, String>, TokenRevocationRepositoryCustom {
+
+  @Query("SELECT r FROM TokenRevocation r WHERE r.revokedAtMs >= :sinceMs")
+  List<TokenRevocation> findRevokedSince(@Param("sinceMs") long sinceMs);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM TokenRevocation r WHERE r.revokedAtMs < :cutoffMs")
+  int deleteRevokedBefore(@Param("cutoffMs") long cutoffMs);
+}
@@ -0,0 +1,9 @@
+package mindforge.repository;
+
+import java.util.Collection;
+
+public interface TokenRevocationRepositoryCustom {
+
+  /** Records that tokens of {@code usernames} issued before {@code revokedAtMs} are revoked; never moves a revocation back. */
+  void revoke(Collection<String> usernames, long revokedAtMs);
+}
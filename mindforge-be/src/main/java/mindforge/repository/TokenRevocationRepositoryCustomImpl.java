@@ -0,0 +1,100 @@
+package mindforge.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * On PostgreSQL revocations are written with one batched upsert. Other databases (H2 in tests, whose
+ * PostgreSQL mode knows ON CONFLICT DO NOTHING but not DO UPDATE) run UPDATE-then-INSERT and rely on
+ * its row counts, as {@link RateLimitCounterRepositoryCustomImpl} does.
+ */
+@RequiredArgsConstructor
+class TokenRevocationRepositoryCustomImpl implements TokenRevocationRepositoryCustom {
+
+  private static final String MOVE_FORWARD = """
+      UPDATE token_revocations SET revoked_at_ms = GREATEST(revoked_at_ms, ?) WHERE username = ?
+      """;
+
+  private static final String INSERT = """
+      INSERT INTO token_revocations (username, revoked_at_ms) VALUES (?, ?)
+      ON CONFLICT DO NOTHING
+      """;
+
+  private static final String UPSERT = """
+      INSERT INTO token_revocations (username, revoked_at_ms) VALUES (?, ?)
+      ON CONFLICT (username)
+      DO UPDATE SET revoked_at_ms = GREATEST(token_revocations.revoked_at_ms, EXCLUDED.revoked_at_ms)
+      """;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private volatile Boolean upsertSupported;
+
+  @Override
+  @Transactional
+  public void revoke(Collection<String> usernames, long revokedAtMs) {
+    if (usernames.isEmpty()) {
+      return;
+    }
+    List<String> names = List.copyOf(usernames);
+    if (upsertSupported()) {
+      jdbcTemplate.batchUpdate(UPSERT, rows(names, revokedAtMs));
+      return;
+    }
+    List<String> missing = moveForward(names, revokedAtMs);
+    if (missing.isEmpty()) {
+      return;
+    }
+    int[] inserted = jdbcTemplate.batchUpdate(INSERT, rows(missing, revokedAtMs));
+    List<String> raced = new ArrayList<>();
+    for (int i = 0; i < inserted.length; i++) {
+      if (inserted[i] == 0) {
+        raced.add(missing.get(i));
+      }
+    }
+    // Another instance revoked these users between our UPDATE and INSERT
+    moveForward(raced, revokedAtMs);
+  }
+
+  private static List<Object[]> rows(List<String> usernames, long revokedAtMs) {
+    List<Object[]> rows = new ArrayList<>(usernames.size());
+    for (String username : usernames) {
+      rows.add(new Object[] {username, revokedAtMs});
+    }
+    return rows;
+  }
+
+  private List<String> moveForward(List<String> usernames, long revokedAtMs) {
+    if (usernames.isEmpty()) {
+      return List.of();
+    }
+    List<Object[]> args = new ArrayList<>(usernames.size());
+    for (String username : usernames) {
+      args.add(new Object[] {revokedAtMs, username});
+    }
+    int[] updated = jdbcTemplate.batchUpdate(MOVE_FORWARD, args);
+    List<String> missing = new ArrayList<>();
+    for (int i = 0; i < updated.length; i++) {
+      if (updated[i] == 0) {
+        missing.add(usernames.get(i));
+      }
+    }
+    return missing;
+  }
+
+  private boolean upsertSupported() {
+    Boolean supported = upsertSupported;
+    if (supported == null) {
+      supported = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+          "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+      upsertSupported = supported;
+    }
+    return supported;
+  }
+}
@@ -1,23 +1,168 @@
 package mindforge.repository;
 
+import jakarta.persistence.QueryHint;
 import mindforge.model.User;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+  /** Rows per round-trip of the export cursors. */
+  String EXPORT_FETCH_SIZE = "1000";
+
+  String LIST_ENTRY = "SELECT u.id AS id, u.username AS username, u.role AS role FROM User u"
+      + " WHERE u.username <> :excluded";
+
+  String ADMIN_VIEW = "SELECT u.id AS id, u.username AS username, u.role AS role, u.email AS email,"
+      + " u.firstName AS firstName, u.lastName AS lastName, u.avatarUrl AS avatarUrl,"
+      + " u.accountLocked AS accountLocked, u.failedLoginAttempts AS failedLoginAttempts,"
+      + " u.createdAt AS createdAt, u.updatedAt AS updatedAt";
 
-public interface UserRepository extends JpaRepository<User, Long> {
   boolean existsByUsername(String username);
 
   Optional<User> findByUsername(String username);
 
-  List<User> findByRole(String role);
+  Optional<UserIdentity> findIdentityByUsername(String username);
+
+  @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+  List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+  /** Admin listing: the fields of {@link UserAdminView}, in id order after {@code afterId}. */
+  @Query(ADMIN_VIEW + " FROM User u WHERE u.id > :afterId ORDER BY u.id")
+  List<UserAdminView> findAdminPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+  /** Admin listing narrowed to usernames matching the lower-case LIKE {@code pattern} (see {@link #containsPattern}). */
+  @Query(ADMIN_VIEW + " FROM User u WHERE LOWER(u.username) LIKE :pattern ESCAPE '!' AND u.id > :afterId ORDER BY u.id")
+  List<UserAdminView> searchAdminPageAfter(@Param("pattern") String pattern, @Param("afterId") Long afterId,
+                                           Pageable pageable);
+
+  /**
+   * User search: id, username and role of everyone but {@code excluded}, in id order after {@code afterId}.
+   * The {@code search*} variants narrow this by role and by a lower-case LIKE {@code pattern} escaped with
+   * {@code !} (see {@link #containsPattern}); on PostgreSQL the trigram index on {@code LOWER(username)}
+   * answers the pattern for terms of three or more characters, elsewhere it is a plain LIKE.
+   */
+  @Query(LIST_ENTRY + " AND u.id > :afterId ORDER BY u.id")
+  List<UserListEntry> findPageAfter(@Param("excluded") String excluded, @Param("afterId") Long afterId,
+                                    Pageable pageable);
+
+  @Query(LIST_ENTRY + " AND u.role = :role AND u.id > :afterId ORDER BY u.id")
+  List<UserListEntry> findByRolePageAfter(@Param("excluded") String excluded, @Param("role") String role,
+                                          @Param("afterId") Long afterId, Pageable pageable);
+
+  @Query(LIST_ENTRY + " AND LOWER(u.username) LIKE :pattern ESCAPE '!' AND u.id > :afterId ORDER BY u.id")
+  List<UserListEntry> searchByUsername(@Param("excluded") String excluded, @Param("pattern") String pattern,
+                                       @Param("afterId") Long afterId, Pageable pageable);
+
+  @Query(LIST_ENTRY + " AND u.role = :role AND LOWER(u.username) LIKE :pattern ESCAPE '!'"
+      + " AND u.id > :afterId ORDER BY u.id")
+  List<UserListEntry> searchByRoleAndUsername(@Param("excluded") String excluded, @Param("role") String role,
+                                              @Param("pattern") String pattern, @Param("afterId") Long afterId,
+                                              Pageable pageable);
+
+  /**
+   * All users matching the optional {@code role} and {@code pattern} (as for {@link #searchByUsername}),
+   * in id order, read through a forward-only cursor {@value #EXPORT_FETCH_SIZE} rows at a time. The rows
+   * are projections, so the persistence context stays empty however many are read. Must be consumed
+   * inside a transaction and closed.
+   */
+  @QueryHints({
+      @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+      @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  @Query(ADMIN_VIEW + " FROM User u WHERE (:role IS NULL OR u.role = :role)"
+      + " AND (:pattern IS NULL OR LOWER(u.username) LIKE :pattern ESCAPE '!') ORDER BY u.id")
+  Stream<UserAdminView> streamForExport(@Param("role") String role, @Param("pattern") String pattern);
+
+  /** The pattern for usernames containing {@code term}, ignoring case, with LIKE wildcards in it escaped. */
+  static String containsPattern(String term) {
+    StringBuilder pattern = new StringBuilder(term.length() + 4).append('%');
+    for (int i = 0; i < term.length(); i++) {
+      char c = Character.toLowerCase(term.charAt(i));
+      if (c == '%' || c == '_' || c == '!') {
+        pattern.append('!');
+      }
+      pattern.append(c);
+    }
+    return pattern.append('%').toString();
+  }
+
+  /** Usernames in id order, one keyset page at a time. */
+  @Query("SELECT u.id AS id, u.username AS username FROM User u WHERE u.id > :afterId ORDER BY u.id")
+  List<UsernameEntry> findUsernamesAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+  /** Users written after {@code (afterTime, afterId)}, in (updatedAt, id) order, one keyset page at a time. */
+  @Query("SELECT u.id AS id, u.username AS username, u.updatedAt AS updatedAt FROM User u"
+      + " WHERE u.updatedAt > :afterTime OR (u.updatedAt = :afterTime AND u.id > :afterId)"
+      + " ORDER BY u.updatedAt, u.id")
+  List<UsernameChange> findUsernamesUpdatedAfter(@Param("afterTime") LocalDateTime afterTime,
+                                                 @Param("afterId") Long afterId, Pageable pageable);
+
+  /** Replaces only the password hash, e.g. when re-encoding it with the current BCrypt cost. */
+  @Modifying
+  @Transactional
+  @Query("UPDATE User u SET u.password = :password WHERE u.id = :id")
+  int updatePassword(@Param("id") Long id, @Param("password") String password);
+
+  /** Id and role of a user, for resolving the caller without loading the whole row. */
+  interface UserIdentity {
+    Long getId();
+
+    String getRole();
+  }
+
+  interface UsernameEntry {
+    Long getId();
+
+    String getUsername();
+  }
+
+  interface UsernameChange extends UsernameEntry {
+    LocalDateTime getUpdatedAt();
+  }
+
+  /** What user searches show. */
+  interface UserListEntry {
+    Long getId();
+
+    String getUsername();
+
+    String getRole();
+  }
+
+  /** What admin listings and exports show: everything but credentials and login bookkeeping. */
+  interface UserAdminView {
+    Long getId();
+
+    String getUsername();
+
+    String getRole();
+
+    String getEmail();
+
+    String getFirstName();
+
+    String getLastName();
+
+    String getAvatarUrl();
+
+    Boolean getAccountLocked();
+
+    Integer getFailedLoginAttempts();
 
-  @Query("SELECT u FROM User u WHERE LOWER(u.username) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-  List<User> findByUsernameContainingIgnoreCase(@Param("searchTerm") String searchTerm);
+    LocalDateTime getCreatedAt();
 
-  @Query("SELECT u FROM User u WHERE u.role = :role AND LOWER(u.username) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-  List<User> findByRoleAndUsernameContainingIgnoreCase(@Param("role") String role, @Param("searchTerm") String searchTerm);
+    LocalDateTime getUpdatedAt();
+  }
 }
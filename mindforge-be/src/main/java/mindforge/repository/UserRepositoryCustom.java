@@ -0,0 +1,105 @@
+package mindforge.repository;
+
+import mindforge.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+public interface UserRepositoryCustom {
+
+  /**
+   * Inserts {@code user} unless its username is taken, relying on the unique constraint rather than a
+   * prior lookup. One round-trip either way.
+   *
+   * @return the generated id, or empty if the username already exists
+   */
+  OptionalLong insertIfAbsent(User user);
+
+  /**
+   * Inserts {@code users} in one JDBC batch, skipping those whose username or email is taken. Ids are
+   * drawn from {@code users_seq} a block at a time and set on the users.
+   *
+   * @return for each user, whether it was inserted
+   */
+  boolean[] insertAllIfAbsent(List<User> users);
+
+  /** Locks the selected accounts until an admin unlocks them. */
+  List<AffectedUser> lockAccounts(UserSelection selection, LocalDateTime now);
+
+  /** Unlocks the selected accounts and clears their failure counts. */
+  List<AffectedUser> unlockAccounts(UserSelection selection, LocalDateTime now);
+
+  /** Gives the selected users {@code role}; users who already have it are not affected. */
+  List<AffectedUser> updateRoles(UserSelection selection, String role, LocalDateTime now);
+
+  /** Deletes the selected users, except admins and owners of projects. */
+  List<AffectedUser> deleteUsers(UserSelection selection);
+
+  /**
+   * Counts a failed login in the database and locks the account until {@code lockUntil} once the
+   * count reaches {@code maxAttempts}. Concurrent calls never lose an increment.
+   *
+   * @return the state after the update, or empty if the user no longer exists
+   */
+  Optional<LoginAttemptState> recordFailedLogin(Long userId, int maxAttempts, LocalDateTime lockUntil,
+                                                LocalDateTime now);
+
+  /**
+   * Resets the failure count after a successful login, unless the account is locked at {@code now}.
+   *
+   * @return {@code false} if the account was locked in the meantime
+   */
+  boolean recordSuccessfulLogin(Long userId, LocalDateTime now);
+
+  /**
+   * Clears a lockout whose {@code locked_until} has passed. Locks without an end date, set by an
+   * admin, are left alone.
+   */
+  boolean unlockIfExpired(Long userId, LocalDateTime now);
+
+  /** Locks the account right away, recording the failure count that triggered the lock. */
+  void lockAccount(Long userId, int failedLoginAttempts, LocalDateTime lockUntil, LocalDateTime now);
+
+  /**
+   * Writes buffered login outcomes in JDBC batches. Failure deltas lock the account database-side
+   * when they push the stored count to {@code maxAttempts}; resets are skipped for accounts locked at
+   * {@code now}.
+   */
+  void applyLoginStates(List<LoginStateUpdate> updates, int maxAttempts, LocalDateTime lockUntil, LocalDateTime now);
+
+  /**
+   * Buffered login outcome of one user. With {@code reset} the stored count is replaced by
+   * {@code failedLoginAttempts}, otherwise {@code failedLoginAttempts} is added to it.
+   */
+  record LoginStateUpdate(Long userId, boolean reset, int failedLoginAttempts, LocalDateTime lastLoginAttempt) {
+  }
+
+  /**
+   * The users a bulk operation applies to: those in {@code ids} if given, narrowed by the optional
+   * {@code role} and lower-case LIKE {@code pattern} (see {@link UserRepository#containsPattern}), never
+   * the user {@code excludedId}. Bulk operations on a selection that matches more than {@code maxUsers}
+   * users throw {@link SelectionTooLargeException} and change nothing.
+   */
+  record UserSelection(List<Long> ids, String role, String pattern, Long excludedId, int maxUsers) {
+  }
+
+  /**
+   * Thrown, after rolling back, when a bulk change would affect more than its selection's cap. Not an
+   * {@code IllegalArgumentException}, so the repository proxy passes it through untranslated.
+   */
+  class SelectionTooLargeException extends RuntimeException {
+
+    public SelectionTooLargeException(int maxUsers) {
+      super("Selection matches more than " + maxUsers + " users");
+    }
+  }
+
+  /** A user a bulk operation changed or deleted. */
+  record AffectedUser(Long id, String username) {
+  }
+
+  record LoginAttemptState(int failedLoginAttempts, boolean accountLocked, LocalDateTime lockedUntil) {
+  }
+}
@@ -0,0 +1,355 @@
+package mindforge.repository;
+
+import lombok.RequiredArgsConstructor;
+import mindforge.model.User;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+
+@RequiredArgsConstructor
+class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+  private static final String INSERT_IF_ABSENT = """
+      INSERT INTO users (id, username, password, role, failed_login_attempts, account_locked, created_at, updated_at)
+      VALUES (nextval('users_seq'), ?, ?, ?, ?, ?, ?, ?)
+      ON CONFLICT DO NOTHING
+      """;
+
+  private static final String INSERT_IMPORTED = """
+      INSERT INTO users (id, username, password, role, email, first_name, last_name, avatar_url,
+                         failed_login_attempts, account_locked, created_at, updated_at)
+      VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+      ON CONFLICT DO NOTHING
+      """;
+
+  // Right-hand sides see the row as it was before this statement, so the threshold check and the
+  // increment use the same value.
+  private static final String RECORD_FAILED_LOGIN = """
+      UPDATE users SET
+        failed_login_attempts = COALESCE(failed_login_attempts, 0) + 1,
+        account_locked = CASE WHEN COALESCE(failed_login_attempts, 0) + 1 >= ? THEN TRUE ELSE account_locked END,
+        locked_until = CASE WHEN COALESCE(failed_login_attempts, 0) + 1 >= ? AND NOT COALESCE(account_locked, FALSE)
+                            THEN ? ELSE locked_until END,
+        last_login_attempt = ?,
+        updated_at = ?
+      WHERE id = ?
+      """;
+
+  private static final String LOGIN_ATTEMPT_COLUMNS = "failed_login_attempts, account_locked, locked_until";
+
+  private static final String RECORD_SUCCESSFUL_LOGIN = """
+      UPDATE users SET
+        failed_login_attempts = 0,
+        account_locked = FALSE,
+        locked_until = NULL,
+        last_login_attempt = ?,
+        updated_at = ?
+      WHERE id = ?
+        AND NOT (COALESCE(account_locked, FALSE) AND (locked_until IS NULL OR locked_until > ?))
+      """;
+
+  private static final String UNLOCK_IF_EXPIRED = """
+      UPDATE users SET
+        failed_login_attempts = 0,
+        account_locked = FALSE,
+        locked_until = NULL,
+        updated_at = ?
+      WHERE id = ? AND account_locked = TRUE AND locked_until IS NOT NULL AND locked_until <= ?
+      """;
+
+  private static final String LOCK_ACCOUNT = """
+      UPDATE users SET
+        failed_login_attempts = ?,
+        account_locked = TRUE,
+        locked_until = ?,
+        last_login_attempt = ?,
+        updated_at = ?
+      WHERE id = ?
+      """;
+
+  private static final String ADD_FAILED_LOGINS = """
+      UPDATE users SET
+        failed_login_attempts = COALESCE(failed_login_attempts, 0) + ?,
+        account_locked = CASE WHEN COALESCE(failed_login_attempts, 0) + ? >= ? THEN TRUE ELSE account_locked END,
+        locked_until = CASE WHEN COALESCE(failed_login_attempts, 0) + ? >= ? AND NOT COALESCE(account_locked, FALSE)
+                            THEN ? ELSE locked_until END,
+        last_login_attempt = ?,
+        updated_at = ?
+      WHERE id = ?
+      """;
+
+  private static final String RESET_FAILED_LOGINS = """
+      UPDATE users SET
+        failed_login_attempts = ?,
+        account_locked = FALSE,
+        locked_until = NULL,
+        last_login_attempt = ?,
+        updated_at = ?
+      WHERE id = ?
+        AND NOT (COALESCE(account_locked, FALSE) AND (locked_until IS NULL OR locked_until > ?))
+      """;
+
+  private static final RowMapper<LoginAttemptState> LOGIN_ATTEMPT_STATE = (rs, rowNum) -> {
+    Timestamp lockedUntil = rs.getTimestamp("locked_until");
+    return new LoginAttemptState(
+        rs.getInt("failed_login_attempts"),
+        rs.getBoolean("account_locked"),
+        lockedUntil == null ? null : lockedUntil.toLocalDateTime());
+  };
+
+  private static final RowMapper<AffectedUser> AFFECTED_USER = (rs, rowNum) ->
+      new AffectedUser(rs.getLong("id"), rs.getString("username"));
+
+  /** Ids per statement when a bulk change is applied row by id. */
+  private static final int IN_LIST_CHUNK = 1000;
+
+  private static final String NOT_ADMIN_OR_OWNER =
+      " AND role <> 'ADMIN' AND NOT EXISTS (SELECT 1 FROM projects p WHERE p.owner_id = users.id)";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private volatile Boolean updateReturningSupported;
+
+  @Override
+  public OptionalLong insertIfAbsent(User user) {
+    KeyHolder keyHolder = new GeneratedKeyHolder();
+    int inserted = jdbcTemplate.update(connection -> {
+      PreparedStatement statement = connection.prepareStatement(INSERT_IF_ABSENT, new String[] {"id"});
+      statement.setString(1, user.getUsername());
+      statement.setString(2, user.getPassword());
+      statement.setString(3, user.getRole());
+      statement.setInt(4, user.getFailedLoginAttempts() == null ? 0 : user.getFailedLoginAttempts());
+      statement.setBoolean(5, Boolean.TRUE.equals(user.getAccountLocked()));
+      statement.setObject(6, user.getCreatedAt());
+      statement.setObject(7, user.getUpdatedAt());
+      return statement;
+    }, keyHolder);
+
+    if (inserted == 0) {
+      return OptionalLong.empty();
+    }
+    Number id = keyHolder.getKey();
+    return id == null ? OptionalLong.empty() : OptionalLong.of(id.longValue());
+  }
+
+  /**
+   * Update counts do not tell skipped rows apart once the PostgreSQL driver rewrites the batch into
+   * multi-row INSERTs, so the inserted ids are read back instead.
+   */
+  @Override
+  @Transactional
+  public boolean[] insertAllIfAbsent(List<User> users) {
+    long[] ids = reserveIds(users.size());
+    List<Object[]> rows = new ArrayList<>(users.size());
+    for (int i = 0; i < users.size(); i++) {
+      User user = users.get(i);
+      user.setId(ids[i]);
+      rows.add(new Object[] {ids[i], user.getUsername(), user.getPassword(), user.getRole(), user.getEmail(),
+          user.getFirstName(), user.getLastName(), user.getAvatarUrl(),
+          user.getFailedLoginAttempts() == null ? 0 : user.getFailedLoginAttempts(),
+          Boolean.TRUE.equals(user.getAccountLocked()), user.getCreatedAt(), user.getUpdatedAt()});
+    }
+    jdbcTemplate.batchUpdate(INSERT_IMPORTED, rows);
+
+    long min = Arrays.stream(ids).min().orElse(0);
+    long max = Arrays.stream(ids).max().orElse(0);
+    Set<Long> present = new HashSet<>(jdbcTemplate.queryForList(
+        "SELECT id FROM users WHERE id BETWEEN ? AND ?", Long.class, min, max));
+    boolean[] inserted = new boolean[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      inserted[i] = present.contains(ids[i]);
+    }
+    return inserted;
+  }
+
+  /**
+   * {@code count} ids, one {@code nextval} per {@link User#ID_BLOCK_SIZE}. A value {@code v} reserves
+   * {@code v - ID_BLOCK_SIZE + 1 .. v}, the same block Hibernate's pooled optimizer takes for it.
+   */
+  private long[] reserveIds(int count) {
+    long[] ids = new long[count];
+    int filled = 0;
+    while (filled < count) {
+      long high = jdbcTemplate.queryForObject("SELECT nextval('users_seq')", Long.class);
+      for (long id = Math.max(1, high - User.ID_BLOCK_SIZE + 1); id <= high && filled < count; id++) {
+        ids[filled++] = id;
+      }
+    }
+    return ids;
+  }
+
+  @Override
+  @Transactional
+  public List<AffectedUser> lockAccounts(UserSelection selection, LocalDateTime now) {
+    // No end date: an admin lock is not lifted by unlockIfExpired
+    return modify("UPDATE users SET account_locked = TRUE, locked_until = NULL, updated_at = ?", List.of(now),
+        selection, "");
+  }
+
+  @Override
+  @Transactional
+  public List<AffectedUser> unlockAccounts(UserSelection selection, LocalDateTime now) {
+    return modify("UPDATE users SET account_locked = FALSE, failed_login_attempts = 0, locked_until = NULL,"
+        + " updated_at = ?", List.of(now), selection, "");
+  }
+
+  @Override
+  @Transactional
+  public List<AffectedUser> updateRoles(UserSelection selection, String role, LocalDateTime now) {
+    return modify("UPDATE users SET role = ?, updated_at = ?", List.of(role, now), selection, " AND role <> ?", role);
+  }
+
+  @Override
+  @Transactional
+  public List<AffectedUser> deleteUsers(UserSelection selection) {
+    return modify("DELETE FROM users", List.of(), selection, NOT_ADMIN_OR_OWNER);
+  }
+
+  /**
+   * Applies {@code statement} to the selected users that also match {@code condition}, returning who
+   * was affected. On PostgreSQL that is the one statement with {@code RETURNING}; other databases (H2 in
+   * tests) read and lock the matching rows first and apply the statement to their ids. Either way at most
+   * one row over the selection's cap is touched before a too-large selection is rolled back.
+   */
+  private List<AffectedUser> modify(String statement, List<?> statementArgs, UserSelection selection,
+                                    String condition, Object... conditionArgs) {
+    if (selection.ids() != null && selection.ids().isEmpty()) {
+      return List.of();
+    }
+    StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+    List<Object> whereArgs = new ArrayList<>();
+    if (selection.ids() != null) {
+      where.append(" AND id IN (").append(placeholders(selection.ids().size())).append(')');
+      whereArgs.addAll(selection.ids());
+    }
+    if (selection.role() != null) {
+      where.append(" AND role = ?");
+      whereArgs.add(selection.role());
+    }
+    if (selection.pattern() != null) {
+      where.append(" AND LOWER(username) LIKE ? ESCAPE '!'");
+      whereArgs.add(selection.pattern());
+    }
+    if (selection.excludedId() != null) {
+      where.append(" AND id <> ?");
+      whereArgs.add(selection.excludedId());
+    }
+    where.append(condition);
+    whereArgs.addAll(Arrays.asList(conditionArgs));
+    // One row over the cap is enough to tell the selection is too large
+    String selected = " FROM users" + where + " ORDER BY id LIMIT ? FOR UPDATE";
+    whereArgs.add(selection.maxUsers() + 1);
+
+    if (updateReturningSupported()) {
+      List<Object> args = new ArrayList<Object>(statementArgs);
+      args.addAll(whereArgs);
+      List<AffectedUser> affected = jdbcTemplate.query(
+          statement + " WHERE id IN (SELECT id" + selected + ") RETURNING id, username", AFFECTED_USER, args.toArray());
+      return withinCap(affected, selection);
+    }
+    List<AffectedUser> affected = withinCap(
+        jdbcTemplate.query("SELECT id, username" + selected, AFFECTED_USER, whereArgs.toArray()), selection);
+    for (int from = 0; from < affected.size(); from += IN_LIST_CHUNK) {
+      List<AffectedUser> chunk = affected.subList(from, Math.min(affected.size(), from + IN_LIST_CHUNK));
+      List<Object> args = new ArrayList<Object>(statementArgs);
+      chunk.forEach(user -> args.add(user.id()));
+      jdbcTemplate.update(statement + " WHERE id IN (" + placeholders(chunk.size()) + ")", args.toArray());
+    }
+    return affected;
+  }
+
+  private static List<AffectedUser> withinCap(List<AffectedUser> affected, UserSelection selection) {
+    if (affected.size() > selection.maxUsers()) {
+      throw new SelectionTooLargeException(selection.maxUsers());
+    }
+    return affected;
+  }
+
+  private static String placeholders(int count) {
+    return String.join(", ", Collections.nCopies(count, "?"));
+  }
+
+  /**
+   * On PostgreSQL this is a single {@code UPDATE ... RETURNING}. Other databases (H2 in tests) re-read
+   * the row in the same transaction, where the update's row lock keeps the result consistent.
+   */
+  @Override
+  @Transactional
+  public Optional<LoginAttemptState> recordFailedLogin(Long userId, int maxAttempts, LocalDateTime lockUntil,
+                                                       LocalDateTime now) {
+    Object[] args = {maxAttempts, maxAttempts, lockUntil, now, now, userId};
+    if (updateReturningSupported()) {
+      List<LoginAttemptState> states = jdbcTemplate.query(
+          RECORD_FAILED_LOGIN + "RETURNING " + LOGIN_ATTEMPT_COLUMNS, LOGIN_ATTEMPT_STATE, args);
+      return states.stream().findFirst();
+    }
+    if (jdbcTemplate.update(RECORD_FAILED_LOGIN, args) == 0) {
+      return Optional.empty();
+    }
+    return jdbcTemplate.query("SELECT " + LOGIN_ATTEMPT_COLUMNS + " FROM users WHERE id = ?",
+        LOGIN_ATTEMPT_STATE, userId).stream().findFirst();
+  }
+
+  @Override
+  public boolean recordSuccessfulLogin(Long userId, LocalDateTime now) {
+    return jdbcTemplate.update(RECORD_SUCCESSFUL_LOGIN, now, now, userId, now) > 0;
+  }
+
+  @Override
+  public boolean unlockIfExpired(Long userId, LocalDateTime now) {
+    return jdbcTemplate.update(UNLOCK_IF_EXPIRED, now, userId, now) > 0;
+  }
+
+  @Override
+  public void lockAccount(Long userId, int failedLoginAttempts, LocalDateTime lockUntil, LocalDateTime now) {
+    jdbcTemplate.update(LOCK_ACCOUNT, failedLoginAttempts, lockUntil, now, now, userId);
+  }
+
+  @Override
+  @Transactional
+  public void applyLoginStates(List<LoginStateUpdate> updates, int maxAttempts, LocalDateTime lockUntil,
+                               LocalDateTime now) {
+    List<Object[]> increments = new ArrayList<>();
+    List<Object[]> resets = new ArrayList<>();
+    for (LoginStateUpdate update : updates) {
+      if (update.reset()) {
+        resets.add(new Object[] {update.failedLoginAttempts(), update.lastLoginAttempt(), now, update.userId(), now});
+      } else {
+        int delta = update.failedLoginAttempts();
+        increments.add(new Object[] {delta, delta, maxAttempts, delta, maxAttempts, lockUntil,
+            update.lastLoginAttempt(), now, update.userId()});
+      }
+    }
+    if (!resets.isEmpty()) {
+      jdbcTemplate.batchUpdate(RESET_FAILED_LOGINS, resets);
+    }
+    if (!increments.isEmpty()) {
+      jdbcTemplate.batchUpdate(ADD_FAILED_LOGINS, increments);
+    }
+  }
+
+  private boolean updateReturningSupported() {
+    Boolean supported = updateReturningSupported;
+    if (supported == null) {
+      supported = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+          "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+      updateReturningSupported = supported;
+    }
+    return supported;
+  }
+}
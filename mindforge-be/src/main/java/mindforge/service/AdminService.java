@@ -1,28 +1,97 @@
 package mindforge.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import mindforge.dto.BulkActionResult;
+import mindforge.dto.CursorPage;
 import mindforge.dto.UserResponseDto;
+import mindforge.dto.UserSelectionDto;
 import mindforge.model.User;
+import mindforge.repository.ProjectRepository;
 import mindforge.repository.UserRepository;
+import mindforge.repository.UserRepositoryCustom;
+import mindforge.repository.UserRepositoryCustom.AffectedUser;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.ResponseStatus;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AdminService {
 
+    /**
+     * Ids accepted per bulk request, well within the drivers' bind parameter limits, and users a search
+     * filter may select.
+     */
+    public static final int MAX_BULK_IDS = 10_000;
+
     private final UserRepository userRepository;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final RefreshTokenService refreshTokenService;
+    private final LoginStateStore loginStateStore;
+    private final ProjectRepository projectRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * One page of all users in id order, or of those whose username contains {@code search}; see
+     * {@link CursorPage}.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public CursorPage<UserResponseDto> getAllUsers(String search, String cursor, Integer limit) {
+        int pageSize = CursorPage.limit(limit);
+        Long afterId = CursorPage.afterId(cursor);
+        PageRequest page = PageRequest.ofSize(pageSize + 1);
+        List<UserRepository.UserAdminView> users = search != null && !search.trim().isEmpty()
+                ? userRepository.searchAdminPageAfter(UserRepository.containsPattern(search), afterId, page)
+                : userRepository.findAdminPageAfter(afterId, page);
+        return CursorPage.of(users, pageSize, UserRepository.UserAdminView::getId, this::toDto);
+    }
 
+    /**
+     * Writes every user matching the optional {@code search} term and {@code role} to {@code out} as
+     * NDJSON, one object per line in id order. Rows come from a database cursor and are written as they
+     * arrive, so memory use does not depend on the number of users.
+     *
+     * @return the number of users written
+     */
     @PreAuthorize("hasRole('ADMIN')")
-    public List<UserResponseDto> getAllUsers() {
-        return userRepository.findAll().stream()
-                .map(this::toDto)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public long exportUsers(String search, String role, OutputStream out) throws IOException {
+        String roleFilter = role != null && !role.trim().isEmpty() ? role : null;
+        String pattern = search != null && !search.trim().isEmpty() ? UserRepository.containsPattern(search) : null;
+        try (Stream<UserRepository.UserAdminView> rows = userRepository.streamForExport(roleFilter, pattern)) {
+            long written = writeNdjson(rows.map(this::toDto), out);
+            log.info("Exported {} users", written);
+            return written;
+        }
+    }
+
+    /** Writes every project to {@code out} as NDJSON, like {@link #exportUsers}. */
+    @PreAuthorize("hasRole('ADMIN')")
+    @Transactional(readOnly = true)
+    public long exportProjects(OutputStream out) throws IOException {
+        try (Stream<ProjectRepository.ProjectView> rows = projectRepository.streamForExport()) {
+            long written = writeNdjson(rows.map(ProjectService::toDto), out);
+            log.info("Exported {} projects", written);
+            return written;
+        }
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -44,6 +113,7 @@ public class AdminService {
 
         user.setRole(newRole);
         user = userRepository.save(user);
+        tokenRevocationRegistry.revoke(user.getUsername());
 
         log.info("User role updated: {} -> {}", user.getUsername(), newRole);
         return toDto(user);
@@ -59,7 +129,10 @@ public class AdminService {
             throw new IllegalArgumentException("Cannot delete admin users");
         }
 
+        refreshTokenService.revokeAll(user.getId());
         userRepository.delete(user);
+        loginStateStore.evict(user.getId());
+        tokenRevocationRegistry.revoke(user.getUsername());
         log.info("User deleted: {}", user.getUsername());
     }
 
@@ -70,6 +143,9 @@ public class AdminService {
 
         user.setAccountLocked(true);
         user = userRepository.save(user);
+        loginStateStore.evict(user.getId());
+        refreshTokenService.revokeAll(user.getId());
+        tokenRevocationRegistry.revoke(user.getUsername());
 
         log.info("User account locked: {}", user.getUsername());
         return toDto(user);
@@ -84,11 +160,147 @@ public class AdminService {
         user.setFailedLoginAttempts(0);
         user.setLockedUntil(null);
         user = userRepository.save(user);
+        loginStateStore.evict(user.getId());
 
         log.info("User account unlocked: {}", user.getUsername());
         return toDto(user);
     }
 
+    private long writeNdjson(Stream<?> rows, OutputStream out) throws IOException {
+        // One generator for the whole stream; flushing is left to its buffer instead of every row
+        ObjectWriter writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
+        long written = 0;
+        try (JsonGenerator generator = writer.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            for (Iterator<?> it = rows.iterator(); it.hasNext(); ) {
+                writer.writeValue(generator, it.next());
+                written++;
+            }
+            if (written > 0) {
+                generator.writeRaw('\n');
+            }
+        }
+        out.flush();
+        return written;
+    }
+
+    /**
+     * Locks every selected account with one UPDATE, until an admin unlocks it. Sessions, buffered login
+     * state and outstanding access tokens of the locked users are invalidated in one pass each. The calling
+     * admin, {@code currentUserId}, is never locked.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public BulkActionResult lockUserAccounts(UserSelectionDto selection, Long currentUserId) {
+        List<AffectedUser> locked = capped(() ->
+                userRepository.lockAccounts(toSelection(selection, currentUserId), LocalDateTime.now()));
+        List<Long> ids = ids(locked);
+        loginStateStore.evictAll(ids);
+        refreshTokenService.revokeAll(ids);
+        tokenRevocationRegistry.revokeAll(usernames(locked));
+        log.info("User accounts locked in bulk: {}", locked.size());
+        return result(ids);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public BulkActionResult unlockUserAccounts(UserSelectionDto selection) {
+        List<AffectedUser> unlocked = capped(() ->
+                userRepository.unlockAccounts(toSelection(selection, null), LocalDateTime.now()));
+        List<Long> ids = ids(unlocked);
+        loginStateStore.evictAll(ids);
+        log.info("User accounts unlocked in bulk: {}", unlocked.size());
+        return result(ids);
+    }
+
+    /**
+     * Gives every selected user {@code newRole}; users who already have it are not counted. The calling
+     * admin, {@code currentUserId}, keeps their role.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public BulkActionResult updateUserRoles(UserSelectionDto selection, String newRole, Long currentUserId) {
+        if (!"USER".equals(newRole) && !"ADMIN".equals(newRole)) {
+            throw new InvalidBulkRequestException("Invalid role. Must be USER or ADMIN");
+        }
+        List<AffectedUser> updated = capped(() ->
+                userRepository.updateRoles(toSelection(selection, currentUserId), newRole, LocalDateTime.now()));
+        tokenRevocationRegistry.revokeAll(usernames(updated));
+        log.info("User roles updated in bulk: {} -> {}", updated.size(), newRole);
+        return result(ids(updated));
+    }
+
+    /**
+     * Deletes every selected user with one DELETE. As for {@link #deleteUser}, admins are never deleted;
+     * owners of projects are skipped as well, so their projects stay intact. Neither counts as affected.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public BulkActionResult deleteUsers(UserSelectionDto selection) {
+        List<AffectedUser> deleted = capped(() -> userRepository.deleteUsers(toSelection(selection, null)));
+        List<Long> ids = ids(deleted);
+        List<String> usernames = usernames(deleted);
+        // The rows' refresh sessions went with them; this only drops the cached ones
+        refreshTokenService.revokeAll(ids);
+        loginStateStore.evictAll(ids);
+        tokenRevocationRegistry.revokeAll(usernames);
+        log.info("Users deleted in bulk: {}", deleted.size());
+        return result(ids);
+    }
+
+    private static UserRepositoryCustom.UserSelection toSelection(UserSelectionDto selection, Long excludedId) {
+        List<Long> ids = selection.getUserIds() == null ? null
+                : selection.getUserIds().stream().filter(Objects::nonNull).distinct().toList();
+        String role = selection.getRole() != null && !selection.getRole().trim().isEmpty() ? selection.getRole() : null;
+        String search = selection.getSearch() != null && !selection.getSearch().trim().isEmpty()
+                ? selection.getSearch() : null;
+        // Never let an empty request select every user
+        if (ids == null && role == null && search == null) {
+            throw new InvalidBulkRequestException("Select users by id or by a search filter");
+        }
+        if (ids != null && ids.size() > MAX_BULK_IDS) {
+            throw new InvalidBulkRequestException("At most " + MAX_BULK_IDS + " user ids per request");
+        }
+        return new UserRepositoryCustom.UserSelection(ids, role,
+                search == null ? null : UserRepository.containsPattern(search), excludedId, MAX_BULK_IDS);
+    }
+
+    /** Runs a bulk change, answering a selection over {@link #MAX_BULK_IDS} users with 400. */
+    private static List<AffectedUser> capped(Supplier<List<AffectedUser>> change) {
+        try {
+            return change.get();
+        } catch (UserRepositoryCustom.SelectionTooLargeException e) {
+            throw new InvalidBulkRequestException(
+                    "The selection matches more than " + MAX_BULK_IDS + " users; narrow the filter");
+        }
+    }
+
+    private static List<Long> ids(List<AffectedUser> users) {
+        return users.stream().map(AffectedUser::id).toList();
+    }
+
+    private static List<String> usernames(List<AffectedUser> users) {
+        return users.stream().map(AffectedUser::username).toList();
+    }
+
+    private static BulkActionResult result(List<Long> ids) {
+        return new BulkActionResult(ids.size(), ids);
+    }
+
+    private UserResponseDto toDto(UserRepository.UserAdminView user) {
+        return UserResponseDto.builder()
+                .id(user.getId())
+                .username(user.getUsername())
+                .email(user.getEmail())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .role(user.getRole())
+                .avatarUrl(user.getAvatarUrl())
+                .accountLocked(user.getAccountLocked())
+                .failedLoginAttempts(user.getFailedLoginAttempts())
+                .createdAt(user.getCreatedAt())
+                .updatedAt(user.getUpdatedAt())
+                .build();
+    }
+
     private UserResponseDto toDto(User user) {
         return UserResponseDto.builder()
                 .id(user.getId())
@@ -104,4 +316,12 @@ public class AdminService {
                 .updatedAt(user.getUpdatedAt())
                 .build();
     }
-}
\ No newline at end of file
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public static class InvalidBulkRequestException extends IllegalArgumentException {
+
+        public InvalidBulkRequestException(String message) {
+            super(message);
+        }
+    }
+}
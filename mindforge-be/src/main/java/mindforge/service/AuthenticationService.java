@@ -3,18 +3,20 @@ package mindforge.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import mindforge.dto.AuthenticationResponseDto;
+import mindforge.dto.CursorPage;
 import mindforge.dto.UserRequestDto;
 import mindforge.dto.UserResponseDto;
 import mindforge.model.User;
 import mindforge.repository.UserRepository;
 import mindforge.service.PasswordValidationService;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -25,19 +27,16 @@ public class AuthenticationService {
   private final PasswordEncoder passwordEncoder;
   private final JwtService jwtService;
   private final PasswordValidationService passwordValidationService;
+  private final TokenRevocationRegistry tokenRevocationRegistry;
+  private final RefreshTokenService refreshTokenService;
+  private final UsernameFilter usernameFilter;
+  private final LoginStateStore loginStateStore;
+  private final ProjectCache projectCache;
 
-  @Value("${security.account-lockout.max-attempts:5}")
-  private int maxFailedLoginAttempts;
-
-  @Value("${security.account-lockout.duration-minutes:30}")
-  private int lockoutDurationMinutes;
+  /** Hash checked against when the username is unknown, so the miss costs as much as a wrong password. */
+  private volatile String unknownUserPasswordHash;
 
   public UserResponseDto register(UserRequestDto request) {
-    if (userRepository.existsByUsername(request.getUsername())) {
-      log.warn("Registration failed: Username '{}' already exists", request.getUsername());
-      throw new IllegalArgumentException("Username already exists");
-    }
-
     // Validate password strength
     var passwordValidation = passwordValidationService.validatePassword(request.getPassword());
     if (!passwordValidation.isValid()) {
@@ -55,7 +54,13 @@ public class AuthenticationService {
         .updatedAt(LocalDateTime.now())
         .build();
 
-    userRepository.save(user);
+    // The unique constraint decides; no lookup beforehand, so concurrent sign-ups cannot both pass
+    long id = userRepository.insertIfAbsent(user).orElseThrow(() -> {
+      log.warn("Registration failed: Username '{}' already exists", request.getUsername());
+      return new IllegalArgumentException("Username already exists");
+    });
+    user.setId(id);
+    usernameFilter.add(user.getUsername());
 
     log.info("User registered successfully: {}", request.getUsername());
 
@@ -67,96 +72,120 @@ public class AuthenticationService {
   }
 
   public Optional<UserResponseDto> login(UserRequestDto request) {
+    return authenticate(request)
+        .map(user -> UserResponseDto.builder()
+            .id(user.getId())
+            .username(user.getUsername())
+            .role(user.getRole())
+            .build());
+  }
+
+  public Optional<String> loginWithJwt(UserRequestDto request) {
+    return authenticate(request)
+        .map(jwtService::generateToken);
+  }
+
+  public Optional<AuthenticationResponseDto> loginWithTokens(UserRequestDto request, String deviceId) {
+    return authenticate(request)
+        .map(u -> AuthenticationResponseDto.builder()
+            .username(u.getUsername())
+            .token(jwtService.generateToken(u))
+            .refreshToken(refreshTokenService.issue(u, deviceId))
+            .build());
+  }
+
+  public Optional<AuthenticationResponseDto> refreshToken(String refreshToken) {
+    return refreshTokenService.redeem(refreshToken)
+        .map(session -> AuthenticationResponseDto.builder()
+            .username(session.username())
+            .token(jwtService.generateToken(session.username(), session.userId(), session.role()))
+            .refreshToken(refreshToken)
+            .build());
+  }
+
+  /** Signs out the device holding {@code refreshToken}. */
+  public boolean logout(String refreshToken) {
+    return refreshTokenService.revoke(refreshToken);
+  }
+
+  /** Signs out every device of a user, including access tokens already handed out. */
+  public int logoutAll(Long userId, String username) {
+    int sessions = refreshTokenService.revokeAll(userId);
+    tokenRevocationRegistry.revoke(username);
+    log.info("Signed out {} sessions of user {}", sessions, username);
+    return sessions;
+  }
+
+  /**
+   * The user whose password matches, if any. Applies the account lockout kept by {@link LoginStateStore}.
+   * Unknown usernames and locked accounts cost the same BCrypt work as a wrong password.
+   */
+  private Optional<User> authenticate(UserRequestDto request) {
     String username = request.getUsername();
-    User user = userRepository.findByUsername(username).orElse(null);
+    User user = findLoginCandidate(username).orElse(null);
 
     if (user == null) {
+      verifyAgainstUnknownUser(request.getPassword());
       log.warn("Login failed: User '{}' not found", username);
       return Optional.empty();
     }
 
     // Check if account is locked
-    if (isAccountLocked(user)) {
+    LocalDateTime now = LocalDateTime.now();
+    if (loginStateStore.isLocked(user, now)) {
+      verifyAgainstUnknownUser(request.getPassword());
       log.warn("Login failed: Account locked for user '{}'", username);
       return Optional.empty();
     }
 
-    boolean passwordValid = passwordMatches(request.getPassword(), user.getPassword());
-
-    if (passwordValid) {
-      // Successful login - reset failed attempts
-      user.setFailedLoginAttempts(0);
-      user.setLastLoginAttempt(LocalDateTime.now());
-      user.setLockedUntil(null);
-      user.setAccountLocked(false);
-      user.setUpdatedAt(LocalDateTime.now());
-      userRepository.save(user);
-
-      log.info("Login successful for user: {}", username);
+    if (!passwordMatches(request.getPassword(), user.getPassword())) {
+      loginStateStore.recordFailure(user, now)
+          .ifPresent(state -> {
+            if (state.accountLocked()) {
+              log.warn("Account locked for user '{}' after {} failed attempts", username, state.failedLoginAttempts());
+            }
+            log.warn("Login failed for user '{}' (attempt {}/{})", username, state.failedLoginAttempts(),
+                loginStateStore.getMaxAttempts());
+          });
+      return Optional.empty();
+    }
 
-      return Optional.of(UserResponseDto.builder()
-          .id(user.getId())
-          .username(user.getUsername())
-          .role(user.getRole())
-          .build());
-    } else {
-      // Failed login - increment attempts
-      int newAttempts = user.getFailedLoginAttempts() + 1;
-      user.setFailedLoginAttempts(newAttempts);
-      user.setLastLoginAttempt(LocalDateTime.now());
-
-      if (newAttempts >= maxFailedLoginAttempts) {
-        // Lock the account
-        user.setAccountLocked(true);
-        user.setLockedUntil(LocalDateTime.now().plusMinutes(lockoutDurationMinutes));
-        log.warn("Account locked for user '{}' after {} failed attempts", username, newAttempts);
-      }
-
-      user.setUpdatedAt(LocalDateTime.now());
-      userRepository.save(user);
-
-      log.warn("Login failed for user '{}' (attempt {}/{})", username, newAttempts, maxFailedLoginAttempts);
+    // Successful login - reset failed attempts, unless a lock landed since the user was read
+    if (!loginStateStore.recordSuccess(user, now)) {
+      log.warn("Login failed: Account locked for user '{}'", username);
       return Optional.empty();
     }
+    upgradePasswordEncoding(user, request.getPassword());
+
+    log.info("Login successful for user: {}", username);
+    return Optional.of(user);
   }
 
-  public Optional<String> loginWithJwt(UserRequestDto request) {
-    return userRepository.findByUsername(request.getUsername())
-        .filter(u -> passwordMatches(request.getPassword(), u.getPassword()))
-        .map(u -> {
-          String refreshToken = jwtService.generateRefreshToken(u.getUsername());
-          u.setRefreshToken(refreshToken);
-          u.setUpdatedAt(LocalDateTime.now());
-          userRepository.save(u);
-          return jwtService.generateToken(u.getUsername());
-        });
+  private Optional<User> findLoginCandidate(String username) {
+    if (!usernameFilter.mightContainForLogin(username)) {
+      return Optional.empty();
+    }
+    return userRepository.findByUsername(username);
   }
 
-  public Optional<AuthenticationResponseDto> loginWithTokens(UserRequestDto request) {
-    return userRepository.findByUsername(request.getUsername())
-        .filter(u -> passwordMatches(request.getPassword(), u.getPassword()))
-        .map(u -> {
-          String accessToken = jwtService.generateToken(u.getUsername());
-          String refreshToken = jwtService.generateRefreshToken(u.getUsername());
-          u.setRefreshToken(refreshToken);
-          u.setUpdatedAt(LocalDateTime.now());
-          userRepository.save(u);
-          return AuthenticationResponseDto.builder()
-              .username(u.getUsername())
-              .token(accessToken)
-              .refreshToken(refreshToken)
-              .build();
-        });
+  private void verifyAgainstUnknownUser(String rawPassword) {
+    String hash = unknownUserPasswordHash;
+    if (hash == null) {
+      hash = passwordEncoder.encode(UUID.randomUUID().toString());
+      unknownUserPasswordHash = hash;
+    }
+    passwordEncoder.matches(rawPassword == null ? "" : rawPassword, hash);
   }
 
-  public Optional<String> refreshToken(String refreshToken) {
-    try {
-      String username = jwtService.extractUsername(refreshToken);
-      return userRepository.findByUsername(username)
-          .filter(u -> refreshToken.equals(u.getRefreshToken()))
-          .map(u -> jwtService.generateToken(u.getUsername()));
-    } catch (Exception e) {
-      return Optional.empty();
+  /**
+   * Re-hashes a just-verified password when its stored hash uses a lower BCrypt cost than the
+   * current one. Only the password column is written, and only once per user and cost change.
+   */
+  private void upgradePasswordEncoding(User user, String rawPassword) {
+    if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+      user.setPassword(passwordEncoder.encode(rawPassword));
+      userRepository.updatePassword(user.getId(), user.getPassword());
+      log.info("Re-encoded password of user '{}' with the current BCrypt strength", user.getUsername());
     }
   }
 
@@ -177,28 +206,13 @@ public class AuthenticationService {
     return passwordEncoder.matches(raw, hashed);
   }
 
-  private boolean isAccountLocked(User user) {
-    if (user.getAccountLocked() == null) return false;
-    if (!user.getAccountLocked()) return false;
-
-    // Check if lockout period has expired
-    if (user.getLockedUntil() != null && LocalDateTime.now().isAfter(user.getLockedUntil())) {
-      // Lockout expired, unlock the account
-      user.setAccountLocked(false);
-      user.setLockedUntil(null);
-      user.setFailedLoginAttempts(0);
-      user.setUpdatedAt(LocalDateTime.now());
-      userRepository.save(user);
-      return false;
-    }
-
-    return true;
-  }
-
   public void deleteUser(String username) {
     User user = userRepository.findByUsername(username)
         .orElseThrow(() -> new IllegalArgumentException("User not found"));
+    refreshTokenService.revokeAll(user.getId());
     userRepository.delete(user);
+    loginStateStore.evict(user.getId());
+    tokenRevocationRegistry.revoke(username);
   }
 
   public UserResponseDto updateUserProfile(String currentUsername, UserRequestDto updateRequest) {
@@ -212,7 +226,8 @@ public class AuthenticationService {
     }
 
     // Update username if changed
-    if (!currentUsername.equals(updateRequest.getUsername())) {
+    boolean renamed = !currentUsername.equals(updateRequest.getUsername());
+    if (renamed) {
       user.setUsername(updateRequest.getUsername());
     }
 
@@ -229,6 +244,13 @@ public class AuthenticationService {
 
     user.setUpdatedAt(LocalDateTime.now());
     userRepository.save(user);
+    if (renamed) {
+      usernameFilter.add(user.getUsername());
+      // Outstanding tokens still name the old username
+      tokenRevocationRegistry.revoke(currentUsername);
+      // Cached project JSON carries the owner's username
+      projectCache.ownerChanged(user.getId());
+    }
 
     return UserResponseDto.builder()
         .id(user.getId())
@@ -251,30 +273,37 @@ public class AuthenticationService {
 
     user.setRole(newRole);
     userRepository.save(user);
+    tokenRevocationRegistry.revoke(username);
   }
 
-  public List<UserResponseDto> searchUsers(String searchTerm, String roleFilter, String currentUsername) {
-    List<User> users;
-
-    if (roleFilter != null && !roleFilter.trim().isEmpty()) {
-      if (searchTerm != null && !searchTerm.trim().isEmpty()) {
-        users = userRepository.findByRoleAndUsernameContainingIgnoreCase(roleFilter, searchTerm);
-      } else {
-        users = userRepository.findByRole(roleFilter);
-      }
-    } else if (searchTerm != null && !searchTerm.trim().isEmpty()) {
-      users = userRepository.findByUsernameContainingIgnoreCase(searchTerm);
+  /** One page of users matching the optional term and role, in id order; see {@link CursorPage}. */
+  public CursorPage<UserResponseDto> searchUsers(String searchTerm, String roleFilter, String currentUsername,
+                                                 String cursor, Integer limit) {
+    long afterId = CursorPage.afterId(cursor);
+    int pageSize = CursorPage.limit(limit);
+    PageRequest page = PageRequest.ofSize(pageSize + 1);
+    boolean byRole = roleFilter != null && !roleFilter.trim().isEmpty();
+    boolean byTerm = searchTerm != null && !searchTerm.trim().isEmpty();
+
+    // The caller is excluded in SQL, so pages stay full
+    String excluded = currentUsername != null ? currentUsername : "";
+
+    List<UserRepository.UserListEntry> users;
+    if (byRole && byTerm) {
+      users = userRepository.searchByRoleAndUsername(excluded, roleFilter, UserRepository.containsPattern(searchTerm),
+          afterId, page);
+    } else if (byRole) {
+      users = userRepository.findByRolePageAfter(excluded, roleFilter, afterId, page);
+    } else if (byTerm) {
+      users = userRepository.searchByUsername(excluded, UserRepository.containsPattern(searchTerm), afterId, page);
     } else {
-      users = userRepository.findAll();
+      users = userRepository.findPageAfter(excluded, afterId, page);
     }
 
-    return users.stream()
-        .filter(user -> !user.getUsername().equals(currentUsername)) // Don't include current user in results
-        .map(user -> UserResponseDto.builder()
-            .id(user.getId())
-            .username(user.getUsername())
-            .role(user.getRole())
-            .build())
-        .toList();
+    return CursorPage.of(users, pageSize, UserRepository.UserListEntry::getId, user -> UserResponseDto.builder()
+        .id(user.getId())
+        .username(user.getUsername())
+        .role(user.getRole())
+        .build());
   }
 }
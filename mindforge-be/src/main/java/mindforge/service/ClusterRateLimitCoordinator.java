@@ -0,0 +1,118 @@
+package mindforge.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import mindforge.repository.RateLimitCounterRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares rate limit counts between the application's replicas through the existing database.
+ * <p>
+ * Enabled with {@code security.rate-limit.cluster.enabled}. Every
+ * {@code security.rate-limit.cluster.sync-interval-ms} this node records a heartbeat, counts the nodes
+ * seen within three intervals and syncs each {@link ClusterRateLimiter}; see there for the error bound.
+ * Expired counters and nodes are deleted about once a minute.
+ * <p>
+ * A failed step is logged and counted in {@code http.rate-limit.cluster.sync-errors}, tagged with the
+ * step; the node count last seen is published as {@code http.rate-limit.cluster.nodes}.
+ */
+@Service
+@ConditionalOnProperty(name = "security.rate-limit.cluster.enabled", havingValue = "true")
+@Slf4j
+public class ClusterRateLimitCoordinator implements DisposableBean {
+
+    private static final long CLEANUP_INTERVAL_MILLIS = 60_000;
+
+    private final RateLimitCounterRepository repository;
+    private final Duration syncInterval;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<String, ClusterRateLimiter> limiters = new ConcurrentHashMap<>();
+    private final Counter heartbeatErrors;
+    private final Counter policyErrors;
+    private final Counter cleanupErrors;
+    private volatile int nodes = 1;
+    private long lastCleanupMillis;
+
+    public ClusterRateLimitCoordinator(
+            RateLimitCounterRepository repository,
+            @Value("${security.rate-limit.cluster.sync-interval-ms:1000}") long syncIntervalMillis,
+            MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.syncInterval = Duration.ofMillis(syncIntervalMillis);
+        this.heartbeatErrors = syncErrors(meterRegistry, "heartbeat");
+        this.policyErrors = syncErrors(meterRegistry, "policy");
+        this.cleanupErrors = syncErrors(meterRegistry, "cleanup");
+        Gauge.builder("http.rate-limit.cluster.nodes", this, ClusterRateLimitCoordinator::nodes)
+                .description("Nodes sharing rate limits, as counted by this node's last heartbeat")
+                .register(meterRegistry);
+        log.info("Cluster rate limiting enabled on node {}, sync every {} ms", nodeId, syncIntervalMillis);
+    }
+
+    /** The shared limiter of a policy; {@code overflow} limits keys beyond {@code maxKeys} on this node only. */
+    public ClusterRateLimiter limiter(String policy, long permits, Duration period, int maxKeys,
+                                      KeyedLimiter overflow) {
+        return limiters.computeIfAbsent(policy, p -> new ClusterRateLimiter(
+                p, permits, period, maxKeys, syncInterval, overflow, System::currentTimeMillis));
+    }
+
+    /** Live nodes counted by the last successful heartbeat, including this one. */
+    public int nodes() {
+        return nodes;
+    }
+
+    @Scheduled(fixedDelayString = "${security.rate-limit.cluster.sync-interval-ms:1000}")
+    public synchronized void sync() {
+        long now = System.currentTimeMillis();
+        int nodes;
+        try {
+            nodes = repository.heartbeat(nodeId, now, now - 3 * syncInterval.toMillis());
+        } catch (RuntimeException e) {
+            heartbeatErrors.increment();
+            log.warn("Rate limit heartbeat failed, limiting with local counts: {}", e.getMessage());
+            return;
+        }
+        this.nodes = nodes;
+        for (ClusterRateLimiter limiter : limiters.values()) {
+            try {
+                limiter.sync(repository, nodes);
+            } catch (RuntimeException e) {
+                policyErrors.increment();
+                log.warn("Could not sync rate limit policy '{}': {}", limiter.policy(), e.getMessage());
+            }
+        }
+        if (now - lastCleanupMillis >= CLEANUP_INTERVAL_MILLIS) {
+            lastCleanupMillis = now;
+            try {
+                int counters = repository.deleteExpired(now);
+                repository.deleteNodesNotSeenSince(now - 10 * syncInterval.toMillis());
+                log.debug("Deleted {} expired rate limit counters", counters);
+            } catch (RuntimeException e) {
+                cleanupErrors.increment();
+                log.warn("Could not delete expired rate limit counters: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static Counter syncErrors(MeterRegistry meterRegistry, String step) {
+        return Counter.builder("http.rate-limit.cluster.sync-errors")
+                .description("Failed steps of the cluster rate limit sync")
+                .tag("step", step)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void destroy() {
+        // Hand over what this node admitted before it leaves
+        sync();
+    }
+}
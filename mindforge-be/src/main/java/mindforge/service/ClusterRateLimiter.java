@@ -0,0 +1,261 @@
+package mindforge.service;
+
+import mindforge.repository.RateLimitCounterRepository;
+import mindforge.repository.RateLimitCounterRepositoryCustom.CounterDelta;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding-window limit whose counts are shared by all nodes through the {@code rate_limit_counters} table.
+ * <p>
+ * Requests are decided locally. Each key knows the cluster-wide counts of the current and previous
+ * window as of the last {@link #sync}, plus what this node admitted since, and may admit at most an
+ * allowance of {@code ceil(remaining / nodes)} until the next sync. A sync adds the local counts to the
+ * shared rows, reads the totals back and recomputes the allowances.
+ * <p>
+ * Error bound: with {@code N} live nodes each node admits at most {@code ceil(L / N)} requests per sync
+ * interval from a view that can miss the other nodes' admissions of one interval, so a key can exceed
+ * its limit {@code L} by at most {@code (N - 1) * ceil(L / N)} per window in the worst case and by
+ * {@code N - 1} when its requests are spread over several sync intervals. A single node is exact. Node
+ * clocks are assumed to agree to well within a window. When the database is unreachable every node
+ * keeps limiting with the counts it already has and its own requests.
+ * <p>
+ * Keys beyond {@code maxKeys} are limited by {@code overflow}, which only sees this node.
+ */
+public final class ClusterRateLimiter implements KeyedLimiter {
+
+    private final String policy;
+    private final long permits;
+    private final long periodMillis;
+    private final int maxKeys;
+    private final long syncIntervalMillis;
+    private final KeyedLimiter overflow;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    private volatile int nodes = 1;
+
+    public ClusterRateLimiter(String policy, long permits, Duration period, int maxKeys, Duration syncInterval,
+                              KeyedLimiter overflow, LongSupplier millisClock) {
+        if (permits < 1 || period.toMillis() < 1) {
+            throw new IllegalArgumentException("Rate limit needs positive permits and period");
+        }
+        this.policy = policy;
+        this.permits = permits;
+        this.periodMillis = period.toMillis();
+        this.maxKeys = maxKeys;
+        this.syncIntervalMillis = syncInterval.toMillis();
+        this.overflow = overflow;
+        this.clock = millisClock;
+    }
+
+    @Override
+    public long tryAcquire(long key) {
+        long now = clock.getAsLong();
+        long window = now / periodMillis;
+        long elapsed = now % periodMillis;
+
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            if (counters.size() >= maxKeys) {
+                return overflow.tryAcquire(key);
+            }
+            counter = counters.computeIfAbsent(key, k -> new Counter(window, allowance(0)));
+        }
+        synchronized (counter) {
+            counter.roll(window);
+            counter.lastUsedMillis = now;
+            long used = RateLimiter.weightedCount(counter.globalPrevious, counter.globalCurrent + counter.pending,
+                elapsed, periodMillis);
+            if (used >= permits) {
+                return RateLimiter.denied(TimeUnit.MILLISECONDS.toNanos(RateLimiter.slidingRetryAfter(
+                    counter.globalPrevious, counter.globalCurrent + counter.pending, elapsed, periodMillis, permits)));
+            }
+            if (counter.allowance <= 0) {
+                // This node's share is used up; the next sync hands out what is left cluster-wide
+                return RateLimiter.denied(TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis));
+            }
+            counter.allowance--;
+            counter.pending++;
+            return permits - used - 1;
+        }
+    }
+
+    @Override
+    public long remaining(long key) {
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            return counters.size() >= maxKeys ? overflow.remaining(key) : permits;
+        }
+        long now = clock.getAsLong();
+        synchronized (counter) {
+            counter.roll(now / periodMillis);
+            return Math.max(0, permits - RateLimiter.weightedCount(counter.globalPrevious,
+                counter.globalCurrent + counter.pending, now % periodMillis, periodMillis));
+        }
+    }
+
+    /** Forgets {@code key} on this node; counts already shared with the cluster stay. */
+    @Override
+    public void reset(long key) {
+        counters.remove(key);
+        overflow.reset(key);
+    }
+
+    /** Drops keys idle for two windows whose counts have been shared. */
+    @Override
+    public int sweep() {
+        long idleBefore = clock.getAsLong() - 2 * periodMillis;
+        int evicted = 0;
+        for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            synchronized (counter) {
+                if (counter.lastUsedMillis < idleBefore && counter.pending == 0 && counter.carryPending == 0
+                    && counters.remove(entry.getKey(), counter)) {
+                    evicted++;
+                }
+            }
+        }
+        return evicted + overflow.sweep();
+    }
+
+    @Override
+    public long activeKeys() {
+        return counters.size() + overflow.activeKeys();
+    }
+
+    @Override
+    public long permits() {
+        return permits;
+    }
+
+    @Override
+    public Duration period() {
+        return Duration.ofMillis(periodMillis);
+    }
+
+    /**
+     * Shares this node's counts of recently used keys and refreshes their cluster-wide totals.
+     *
+     * @param liveNodes nodes currently taking part, including this one
+     */
+    void sync(RateLimitCounterRepository repository, int liveNodes) {
+        nodes = Math.max(1, liveNodes);
+        long now = clock.getAsLong();
+        long window = now / periodMillis;
+        long activeSince = now - 2 * periodMillis;
+
+        List<CounterDelta> deltas = new ArrayList<>();
+        List<Long> active = new ArrayList<>();
+        for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            synchronized (counter) {
+                counter.roll(window);
+                if (counter.carryPending > 0) {
+                    deltas.add(new CounterDelta(entry.getKey(), counter.carryWindow, counter.carryPending));
+                    counter.carryPending = 0;
+                }
+                if (counter.pending > 0) {
+                    deltas.add(new CounterDelta(entry.getKey(), counter.window, counter.pending));
+                    // Counted as shared from now on; the read-back below replaces it with the real total
+                    counter.globalCurrent += counter.pending;
+                    counter.pending = 0;
+                }
+                if (counter.lastUsedMillis >= activeSince) {
+                    active.add(entry.getKey());
+                }
+            }
+        }
+        if (!deltas.isEmpty()) {
+            repository.addCounts(policy, periodMillis, deltas);
+        }
+        if (active.isEmpty()) {
+            return;
+        }
+
+        Map<Long, long[]> totals = new HashMap<>();
+        for (CounterDelta row : repository.findCounts(policy, active, window - 1)) {
+            long[] previousAndCurrent = totals.computeIfAbsent(row.keyHash(), k -> new long[] {-1, -1});
+            if (row.windowIndex() == window - 1) {
+                previousAndCurrent[0] = row.count();
+            } else if (row.windowIndex() == window) {
+                previousAndCurrent[1] = row.count();
+            }
+        }
+
+        long refreshedAt = clock.getAsLong();
+        for (Long key : active) {
+            Counter counter = counters.get(key);
+            if (counter == null) {
+                continue;
+            }
+            long[] previousAndCurrent = totals.getOrDefault(key, new long[] {-1, -1});
+            synchronized (counter) {
+                if (counter.window == window) {
+                    if (previousAndCurrent[0] >= 0) {
+                        counter.globalPrevious = previousAndCurrent[0];
+                    }
+                    if (previousAndCurrent[1] >= 0) {
+                        counter.globalCurrent = previousAndCurrent[1];
+                    }
+                } else if (counter.window == window + 1 && previousAndCurrent[1] >= 0) {
+                    // The window turned while we were reading
+                    counter.globalPrevious = previousAndCurrent[1];
+                }
+                counter.allowance = allowance(RateLimiter.weightedCount(counter.globalPrevious,
+                    counter.globalCurrent + counter.pending, refreshedAt % periodMillis, periodMillis));
+            }
+        }
+    }
+
+    String policy() {
+        return policy;
+    }
+
+    private long allowance(long used) {
+        long remaining = Math.max(0, permits - used);
+        int share = nodes;
+        return (remaining + share - 1) / share;
+    }
+
+    private final class Counter {
+        long window;
+        /** Cluster-wide counts as of the last sync; {@code globalCurrent} also holds our shared counts since. */
+        long globalPrevious;
+        long globalCurrent;
+        /** Admitted here in {@link #window} and not shared yet. */
+        long pending;
+        /** Admitted here in an earlier window and not shared yet. */
+        long carryWindow;
+        long carryPending;
+        long allowance;
+        long lastUsedMillis;
+
+        Counter(long window, long allowance) {
+            this.window = window;
+            this.allowance = allowance;
+        }
+
+        void roll(long current) {
+            if (window == current) {
+                return;
+            }
+            if (pending > 0) {
+                carryWindow = window;
+                carryPending = pending;
+            }
+            globalPrevious = current == window + 1 ? globalCurrent + pending : 0;
+            globalCurrent = 0;
+            pending = 0;
+            window = current;
+            allowance = allowance(globalPrevious);
+        }
+    }
+}
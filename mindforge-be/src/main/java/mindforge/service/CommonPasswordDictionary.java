@@ -0,0 +1,158 @@
+package mindforge.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Breached and common passwords, checked without holding the list on the heap.
+ * <p>
+ * The file at {@code security.password-policy.common-passwords-file} holds the sorted, distinct 64-bit
+ * hashes of the lower-cased passwords behind a 16-byte header (magic, count). It is memory-mapped, so
+ * the page cache backs it instead of the heap, and {@link #contains} is a binary search over the mapping
+ * that allocates nothing. With 64-bit hashes a false match needs a collision, about {@code n / 2^64}
+ * per lookup.
+ * <p>
+ * Build the file from a plain list, one password per line, with
+ * {@code ./gradlew buildPasswordDictionary -Psource=<list.txt> -Ptarget=<file>}. Without a configured
+ * file the dictionary is empty.
+ */
+@Component
+@Slf4j
+public class CommonPasswordDictionary {
+
+  static final long MAGIC = 0x4d46505744000001L; // "MFPWD" + format 1
+  static final int HEADER_BYTES = 16;
+
+  private final MappedByteBuffer hashes;
+  private final int count;
+
+  public CommonPasswordDictionary(
+      @Value("${security.password-policy.common-passwords-file:}") String file) {
+
+    if (file == null || file.isBlank()) {
+      this.hashes = null;
+      this.count = 0;
+      return;
+    }
+    Path path = Path.of(file);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      mapped.order(ByteOrder.BIG_ENDIAN);
+      if (channel.size() < HEADER_BYTES || mapped.getLong(0) != MAGIC) {
+        throw new IllegalStateException("Not a common password dictionary: " + path);
+      }
+      long entries = mapped.getLong(8);
+      if (channel.size() != HEADER_BYTES + entries * Long.BYTES) {
+        throw new IllegalStateException("Truncated common password dictionary: " + path);
+      }
+      this.hashes = mapped;
+      this.count = (int) entries;
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not map common password dictionary " + path, e);
+    }
+    log.info("Common password dictionary: {} entries mapped from {}", count, path);
+  }
+
+  public int size() {
+    return count;
+  }
+
+  /** Whether {@code password}, ignoring case, is on the list. */
+  public boolean contains(CharSequence password) {
+    if (count == 0) {
+      return false;
+    }
+    long hash = hash(password);
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long value = hashes.getLong(HEADER_BYTES + mid * Long.BYTES);
+      if (value < hash) {
+        low = mid + 1;
+      } else if (value > hash) {
+        high = mid - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Writes the dictionary file for the password list {@code source} (UTF-8, one per line, blank lines
+   * skipped) to {@code target}; returns the number of distinct entries.
+   */
+  public static int write(Path source, Path target) throws IOException {
+    long[] values = new long[1 << 16];
+    int size = 0;
+    try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String password = line.strip();
+        if (password.isEmpty()) {
+          continue;
+        }
+        if (size == values.length) {
+          values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size++] = hash(password);
+      }
+    }
+    Arrays.sort(values, 0, size);
+    int distinct = 0;
+    for (int i = 0; i < size; i++) {
+      if (distinct == 0 || values[i] != values[distinct - 1]) {
+        values[distinct++] = values[i];
+      }
+    }
+
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(target), 1 << 16))) {
+      out.writeLong(MAGIC);
+      out.writeLong(distinct);
+      for (int i = 0; i < distinct; i++) {
+        out.writeLong(values[i]);
+      }
+    }
+    return distinct;
+  }
+
+  /** 64-bit FNV-1a over the lower-cased UTF-16 code units, finished with the MurmurHash3 mixer. */
+  static long hash(CharSequence password) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < password.length(); i++) {
+      h ^= Character.toLowerCase(password.charAt(i));
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /** {@code buildPasswordDictionary} entry point: {@code <source list> <target file>}. */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      throw new IllegalArgumentException("Usage: CommonPasswordDictionary <source list> <target file>");
+    }
+    int entries = write(Path.of(args[0]), Path.of(args[1]));
+    log.info("Wrote {} entries to {}", entries, args[1]);
+  }
+}
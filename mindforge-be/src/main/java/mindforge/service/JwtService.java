@@ -2,9 +2,11 @@ package mindforge.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import mindforge.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -16,44 +18,73 @@ public class JwtService {
 
   private final SecretKey key;
   private final long expirationMillis;
-  private final long refreshExpirationMillis;
+  private final JwtVerifier verifier;
+  private final VerifiedTokenCache tokenCache;
   private final ObjectMapper objectMapper = new ObjectMapper();
 
+  @Autowired
   public JwtService(
       SecretKey jwtSecretKey,
       @Value("${jwt.expiration}") long expirationMillis,
-      @Value("${jwt.refresh-expiration:604800000}") long refreshExpirationMillis) { // 7 days default
+      VerifiedTokenCache tokenCache) {
 
     this.key = jwtSecretKey;
     this.expirationMillis = expirationMillis;
-    this.refreshExpirationMillis = refreshExpirationMillis;
+    this.verifier = new JwtVerifier(jwtSecretKey);
+    this.tokenCache = tokenCache;
+  }
+
+  public JwtService(SecretKey jwtSecretKey, long expirationMillis) {
+    this(jwtSecretKey, expirationMillis, VerifiedTokenCache.disabled());
   }
 
   public String generateToken(String username) {
-    return Jwts.builder()
+    return generateToken(username, null, null);
+  }
+
+  public String generateToken(User user) {
+    return generateToken(user.getUsername(), user.getId(), user.getRole());
+  }
+
+  /**
+   * Issues an access token. {@code uid} and {@code role} let the resource server authorize requests
+   * without loading the user; they are refreshed from the database whenever the token is renewed.
+   */
+  public String generateToken(String username, Long userId, String role) {
+    JwtBuilder builder = Jwts.builder()
         .setSubject(username)
         .setIssuedAt(new Date())
-        .setExpiration(new Date(System.currentTimeMillis() + expirationMillis))
+        .setExpiration(new Date(System.currentTimeMillis() + expirationMillis));
+    if (userId != null) {
+      builder.claim("uid", userId);
+    }
+    if (role != null) {
+      builder.claim("role", role);
+    }
+    return builder
         .signWith(key, SignatureAlgorithm.HS256) // konsistenter Algorithmus
         .compact();
   }
 
-  public String generateRefreshToken(String username) {
-    return Jwts.builder()
-        .setSubject(username)
-        .setIssuedAt(new Date())
-        .setExpiration(new Date(System.currentTimeMillis() + refreshExpirationMillis))
-        .signWith(key, SignatureAlgorithm.HS256)
-        .compact();
+  /**
+   * Verifies signature and validity window of a token issued by this service.
+   *
+   * @throws io.jsonwebtoken.JwtException if the token is malformed, forged or expired
+   */
+  public VerifiedToken verifyToken(String token) {
+    long now = System.currentTimeMillis();
+    VerifiedTokenCache.TokenDigest cacheKey = tokenCache.keyFor(token);
+    VerifiedToken cached = tokenCache.get(cacheKey, now);
+    if (cached != null) {
+      return cached;
+    }
+    VerifiedToken verified = verifier.verify(token, now);
+    tokenCache.put(cacheKey, verified);
+    return verified;
   }
 
   public String extractUsername(String token) {
-    Claims claims = Jwts.parserBuilder()
-        .setSigningKey(key)
-        .build()
-        .parseClaimsJws(token)
-        .getBody();
-    return claims.getSubject();
+    return verifyToken(token).subject();
   }
 
   public String extractTokenFromJson(String json) throws Exception {
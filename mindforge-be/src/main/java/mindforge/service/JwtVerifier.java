@@ -0,0 +1,524 @@
+package mindforge.service;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.PrematureJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.SignatureException;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Verifies compact HS256 tokens issued by {@link JwtService} without building a jjwt parser per call.
+ * <p>
+ * One instance is created per signing key and shared by all request threads. Every thread keeps its own
+ * {@link Mac} and scratch buffers, so a successful verification only allocates the returned
+ * {@link VerifiedToken}, its subject string and the boxed user id. Failures are reported with the
+ * same jjwt exception types the parser used to throw.
+ */
+final class JwtVerifier {
+
+  static final int MAX_TOKEN_LENGTH = 8192;
+
+  private static final String MAC_ALGORITHM = "HmacSHA256";
+  private static final int SIGNATURE_LENGTH = 32;
+  private static final int ENCODED_SIGNATURE_LENGTH = 43;
+
+  private static final byte[] ALG = ascii("alg");
+  private static final byte[] CRIT = ascii("crit");
+  private static final byte[] HS256 = ascii("HS256");
+  private static final byte[] SUB = ascii("sub");
+  private static final byte[] IAT = ascii("iat");
+  private static final byte[] EXP = ascii("exp");
+  private static final byte[] NBF = ascii("nbf");
+  private static final byte[] ROLE = ascii("role");
+  private static final byte[] UID = ascii("uid");
+
+  private static final String[] KNOWN_ROLES = {"USER", "ADMIN"};
+  private static final byte[][] KNOWN_ROLE_BYTES = {ascii("USER"), ascii("ADMIN")};
+
+  private static final byte[] BASE64URL = new byte[128];
+
+  static {
+    Arrays.fill(BASE64URL, (byte) -1);
+    String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+    for (int i = 0; i < alphabet.length(); i++) {
+      BASE64URL[alphabet.charAt(i)] = (byte) i;
+    }
+  }
+
+  private final SecretKeySpec macKey;
+  private final ThreadLocal<Scratch> scratch;
+
+  // Header segment that already passed the algorithm check; tokens from this service all share it.
+  private volatile String trustedHeader;
+
+  JwtVerifier(SecretKey key) {
+    this.macKey = new SecretKeySpec(key.getEncoded(), MAC_ALGORITHM);
+    newMac(); // fail fast on an unusable key instead of on the first request
+    this.scratch = ThreadLocal.withInitial(() -> new Scratch(newMac()));
+  }
+
+  VerifiedToken verify(String token, long nowMillis) {
+    if (token == null || token.isEmpty() || token.length() > MAX_TOKEN_LENGTH) {
+      throw new MalformedJwtException("JWT strings must be non-empty and at most " + MAX_TOKEN_LENGTH + " characters");
+    }
+
+    int firstDot = token.indexOf('.');
+    int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+    if (firstDot <= 0 || secondDot <= firstDot + 1 || token.indexOf('.', secondDot + 1) >= 0) {
+      throw new MalformedJwtException("JWT strings must contain exactly 2 period characters with non-empty header and payload");
+    }
+    int signatureLength = token.length() - secondDot - 1;
+    if (signatureLength == 0) {
+      throw new UnsupportedJwtException("Unsigned JWTs are not supported");
+    }
+    if (signatureLength != ENCODED_SIGNATURE_LENGTH) {
+      throw new SignatureException("JWT signature does not match locally computed signature");
+    }
+
+    Scratch s = scratch.get();
+    byte[] buf = s.buffer(secondDot);
+    for (int i = 0; i < secondDot; i++) {
+      char c = token.charAt(i);
+      if (c > 127) {
+        throw new MalformedJwtException("JWT strings must only contain Base64URL characters");
+      }
+      buf[i] = (byte) c;
+    }
+    if (decode(token, secondDot + 1, token.length(), s.actual) != SIGNATURE_LENGTH) {
+      throw new SignatureException("JWT signature does not match locally computed signature");
+    }
+
+    Mac mac = s.mac;
+    mac.update(buf, 0, secondDot);
+    try {
+      mac.doFinal(s.expected, 0);
+    } catch (ShortBufferException e) {
+      throw new IllegalStateException(e);
+    }
+    if (!MessageDigest.isEqual(s.expected, s.actual)) {
+      throw new SignatureException("JWT signature does not match locally computed signature");
+    }
+
+    checkHeader(token, firstDot, s);
+    return readClaims(token, firstDot + 1, secondDot, s, nowMillis);
+  }
+
+  private void checkHeader(String token, int end, Scratch s) {
+    String trusted = trustedHeader;
+    if (trusted != null && trusted.length() == end && token.regionMatches(0, trusted, 0, end)) {
+      return;
+    }
+
+    int length = decode(token, 0, end, s.buffer);
+    if (length < 0) {
+      throw new MalformedJwtException("Invalid Base64URL in JWT header");
+    }
+
+    JsonReader json = s.json;
+    json.reset(s.buffer, length);
+    boolean hs256 = false;
+    json.beginObject();
+    while (json.nextField()) {
+      if (json.keyEquals(ALG)) {
+        hs256 = json.valueEquals(HS256);
+      } else if (json.keyEquals(CRIT)) {
+        throw new UnsupportedJwtException("JWT header 'crit' parameters are not supported");
+      } else {
+        json.skipValue();
+      }
+    }
+    json.endOfInput();
+    if (!hs256) {
+      throw new UnsupportedJwtException("Only HS256 signed JWTs are supported");
+    }
+    trustedHeader = token.substring(0, end);
+  }
+
+  private VerifiedToken readClaims(String token, int start, int end, Scratch s, long nowMillis) {
+    int length = decode(token, start, end, s.buffer);
+    if (length < 0) {
+      throw new MalformedJwtException("Invalid Base64URL in JWT payload");
+    }
+
+    String subject = null;
+    String role = null;
+    Long userId = null;
+    long issuedAt = 0;
+    long expiresAt = VerifiedToken.NO_EXPIRY;
+    long notBefore = 0;
+
+    JsonReader json = s.json;
+    json.reset(s.buffer, length);
+    json.beginObject();
+    while (json.nextField()) {
+      if (json.keyEquals(SUB)) {
+        subject = json.readString();
+      } else if (json.keyEquals(EXP)) {
+        expiresAt = json.readLong();
+      } else if (json.keyEquals(IAT)) {
+        issuedAt = json.readLong();
+      } else if (json.keyEquals(NBF)) {
+        notBefore = json.readLong();
+      } else if (json.keyEquals(ROLE)) {
+        role = json.readConstant(KNOWN_ROLE_BYTES, KNOWN_ROLES);
+      } else if (json.keyEquals(UID)) {
+        userId = json.readLong();
+      } else {
+        json.skipValue();
+      }
+    }
+    json.endOfInput();
+
+    if (expiresAt != VerifiedToken.NO_EXPIRY && nowMillis > expiresAt * 1000L) {
+      throw new ExpiredJwtException(null, null, "JWT expired at epoch second " + expiresAt);
+    }
+    if (notBefore != 0 && nowMillis < notBefore * 1000L) {
+      throw new PrematureJwtException(null, null, "JWT must not be accepted before epoch second " + notBefore);
+    }
+    return new VerifiedToken(subject, userId, role, issuedAt, expiresAt);
+  }
+
+  /**
+   * Decodes unpadded Base64URL from {@code src[start, end)} into the start of {@code dst}.
+   *
+   * @return number of bytes written, or {@code -1} for invalid input or insufficient space
+   */
+  private static int decode(String src, int start, int end, byte[] dst) {
+    int length = end - start;
+    if (length % 4 == 1) {
+      return -1;
+    }
+    int outLength = length / 4 * 3 + Math.max(0, length % 4 - 1);
+    if (outLength > dst.length) {
+      return -1;
+    }
+
+    int out = 0;
+    int bits = 0;
+    int bitCount = 0;
+    for (int i = start; i < end; i++) {
+      char c = src.charAt(i);
+      int value = c < 128 ? BASE64URL[c] : -1;
+      if (value < 0) {
+        return -1;
+      }
+      bits = (bits << 6) | value;
+      bitCount += 6;
+      if (bitCount >= 8) {
+        bitCount -= 8;
+        dst[out++] = (byte) (bits >> bitCount);
+      }
+    }
+    return out;
+  }
+
+  private Mac newMac() {
+    try {
+      Mac mac = Mac.getInstance(MAC_ALGORITHM);
+      mac.init(macKey);
+      return mac;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Cannot initialise " + MAC_ALGORITHM + " for JWT verification", e);
+    }
+  }
+
+  private static byte[] ascii(String value) {
+    return value.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static final class Scratch {
+    final Mac mac;
+    final byte[] expected = new byte[SIGNATURE_LENGTH];
+    final byte[] actual = new byte[SIGNATURE_LENGTH];
+    final JsonReader json = new JsonReader();
+    byte[] buffer = new byte[1024];
+
+    Scratch(Mac mac) {
+      this.mac = mac;
+    }
+
+    byte[] buffer(int size) {
+      if (buffer.length < size) {
+        buffer = new byte[Math.max(size, buffer.length * 2)];
+      }
+      return buffer;
+    }
+  }
+
+  /**
+   * Minimal forward-only reader for the flat JSON objects found in JWT headers and claim sets.
+   * Unknown members, including nested objects and arrays, are skipped without being materialised.
+   */
+  private static final class JsonReader {
+    private byte[] buf;
+    private int pos;
+    private int end;
+    private int fields;
+    private int keyStart;
+    private int keyEnd;
+
+    void reset(byte[] buf, int end) {
+      this.buf = buf;
+      this.end = end;
+      this.pos = 0;
+      this.fields = 0;
+    }
+
+    void beginObject() {
+      skipWhitespace();
+      expect('{');
+    }
+
+    /** Positions the reader on the next member value; returns {@code false} at the closing brace. */
+    boolean nextField() {
+      skipWhitespace();
+      if (peek() == '}') {
+        pos++;
+        return false;
+      }
+      if (fields++ > 0) {
+        expect(',');
+        skipWhitespace();
+      }
+      expect('"');
+      keyStart = pos;
+      keyEnd = scanString();
+      skipWhitespace();
+      expect(':');
+      skipWhitespace();
+      return true;
+    }
+
+    void endOfInput() {
+      skipWhitespace();
+      if (pos != end) {
+        throw malformed();
+      }
+    }
+
+    boolean keyEquals(byte[] name) {
+      return Arrays.equals(buf, keyStart, keyEnd, name, 0, name.length);
+    }
+
+    boolean valueEquals(byte[] expected) {
+      if (peek() != '"') {
+        skipValue();
+        return false;
+      }
+      pos++;
+      int start = pos;
+      int close = scanString();
+      return Arrays.equals(buf, start, close, expected, 0, expected.length);
+    }
+
+    String readConstant(byte[][] candidates, String[] values) {
+      if (peek() == '"') {
+        int start = pos + 1;
+        int close = start;
+        while (close < end && buf[close] != '"' && buf[close] != '\\') {
+          close++;
+        }
+        if (close < end && buf[close] == '"') {
+          for (int i = 0; i < candidates.length; i++) {
+            if (Arrays.equals(buf, start, close, candidates[i], 0, candidates[i].length)) {
+              pos = close + 1;
+              return values[i];
+            }
+          }
+        }
+      }
+      return readString();
+    }
+
+    String readString() {
+      if (peek() == 'n') {
+        skipLiteral();
+        return null;
+      }
+      expect('"');
+      int start = pos;
+      int close = scanString();
+      boolean plain = true;
+      for (int i = start; i < close; i++) {
+        if (buf[i] < 0 || buf[i] == '\\') {
+          plain = false;
+          break;
+        }
+      }
+      return plain
+          ? new String(buf, start, close - start, StandardCharsets.ISO_8859_1)
+          : unescape(start, close);
+    }
+
+    long readLong() {
+      boolean negative = peek() == '-';
+      if (negative) {
+        pos++;
+      }
+      int digitsStart = pos;
+      long value = 0;
+      while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+        int digit = buf[pos++] - '0';
+        if (value > (Long.MAX_VALUE - digit) / 10) {
+          throw malformed();
+        }
+        value = value * 10 + digit;
+      }
+      if (pos == digitsStart) {
+        throw malformed();
+      }
+      if (pos < end && buf[pos] == '.') {
+        pos++;
+        while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+          pos++;
+        }
+      }
+      if (pos < end && (buf[pos] == 'e' || buf[pos] == 'E')) {
+        throw malformed();
+      }
+      return negative ? -value : value;
+    }
+
+    void skipValue() {
+      byte c = peek();
+      if (c == '"') {
+        pos++;
+        scanString();
+      } else if (c == '{' || c == '[') {
+        int depth = 0;
+        do {
+          byte b = buf[pos++];
+          if (b == '"') {
+            scanString();
+          } else if (b == '{' || b == '[') {
+            depth++;
+          } else if (b == '}' || b == ']') {
+            depth--;
+          }
+          if (depth > 0 && pos >= end) {
+            throw malformed();
+          }
+        } while (depth > 0);
+      } else if (c == '-' || (c >= '0' && c <= '9')) {
+        while (pos < end && isNumberPart(buf[pos])) {
+          pos++;
+        }
+      } else {
+        skipLiteral();
+      }
+    }
+
+    /** Scans past a string body whose opening quote was consumed; returns the index of the closing quote. */
+    private int scanString() {
+      while (pos < end) {
+        byte b = buf[pos];
+        if (b == '"') {
+          return pos++;
+        }
+        if (b == '\\') {
+          pos += 2;
+        } else if (b >= 0 && b < 0x20) {
+          throw malformed();
+        } else {
+          pos++;
+        }
+      }
+      throw malformed();
+    }
+
+    private String unescape(int start, int close) {
+      StringBuilder out = new StringBuilder(close - start);
+      int run = start;
+      int i = start;
+      while (i < close) {
+        if (buf[i] != '\\') {
+          i++;
+          continue;
+        }
+        if (i > run) {
+          out.append(new String(buf, run, i - run, StandardCharsets.UTF_8));
+        }
+        byte escaped = buf[i + 1];
+        switch (escaped) {
+          case '"', '\\', '/' -> out.append((char) escaped);
+          case 'b' -> out.append('\b');
+          case 'f' -> out.append('\f');
+          case 'n' -> out.append('\n');
+          case 'r' -> out.append('\r');
+          case 't' -> out.append('\t');
+          case 'u' -> {
+            if (i + 6 > close) {
+              throw malformed();
+            }
+            out.append((char) ((hex(buf[i + 2]) << 12) | (hex(buf[i + 3]) << 8)
+                | (hex(buf[i + 4]) << 4) | hex(buf[i + 5])));
+            i += 4;
+          }
+          default -> throw malformed();
+        }
+        i += 2;
+        run = i;
+      }
+      if (close > run) {
+        out.append(new String(buf, run, close - run, StandardCharsets.UTF_8));
+      }
+      return out.toString();
+    }
+
+    private void skipLiteral() {
+      int start = pos;
+      while (pos < end && buf[pos] >= 'a' && buf[pos] <= 'z') {
+        pos++;
+      }
+      int length = pos - start;
+      if (length != 4 && length != 5) {
+        throw malformed();
+      }
+    }
+
+    private void skipWhitespace() {
+      while (pos < end && (buf[pos] == ' ' || buf[pos] == '\t' || buf[pos] == '\n' || buf[pos] == '\r')) {
+        pos++;
+      }
+    }
+
+    private byte peek() {
+      if (pos >= end) {
+        throw malformed();
+      }
+      return buf[pos];
+    }
+
+    private void expect(char c) {
+      if (peek() != c) {
+        throw malformed();
+      }
+      pos++;
+    }
+
+    private static boolean isNumberPart(byte b) {
+      return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E';
+    }
+
+    private static int hex(byte b) {
+      int value = Character.digit(b, 16);
+      if (value < 0) {
+        throw malformed();
+      }
+      return value;
+    }
+
+    private static MalformedJwtException malformed() {
+      return new MalformedJwtException("Unable to read JSON value in JWT");
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package mindforge.service;
+
+import java.time.Duration;
+
+/**
+ * A rate limit applied per 64-bit key. Results of {@link #tryAcquire} are read with
+ * {@link RateLimiter#isAllowed} and {@link RateLimiter#retryAfterNanos}.
+ */
+public interface KeyedLimiter {
+
+    /** Takes a permit: the permits left if allowed, a negative encoded wait otherwise. */
+    long tryAcquire(long key);
+
+    /** Permits {@code key} could take right now, without taking one. */
+    long remaining(long key);
+
+    /** Forgets {@code key}, giving it the full budget again. */
+    void reset(long key);
+
+    /** Drops keys that no longer influence a decision; returns how many. */
+    int sweep();
+
+    long activeKeys();
+
+    long permits();
+
+    Duration period();
+}
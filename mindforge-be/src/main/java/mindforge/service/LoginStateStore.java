@@ -0,0 +1,293 @@
+package mindforge.service;
+
+import lombok.extern.slf4j.Slf4j;
+import mindforge.model.User;
+import mindforge.repository.UserRepositoryCustom.LoginAttemptState;
+import mindforge.repository.UserRepositoryCustom.LoginStateUpdate;
+import mindforge.repository.UserRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Failed-login counters, locks and {@code lastLoginAttempt} of recently active users.
+ * <p>
+ * With {@code security.login-state.write-behind.enabled} (the default) this table decides lockouts.
+ * An entry is seeded from the users row the login just read, changed in memory under the lock of one of
+ * {@value #STRIPES} stripes, and written back in JDBC batches every
+ * {@code security.login-state.flush-interval-ms} and on shutdown. A crash therefore loses at most that
+ * interval of {@code lastLoginAttempt} updates and failure counts. Lock transitions (locking, expiry)
+ * are written through at once. Locks the row carries that this table did not set, from an admin or
+ * another instance, are honoured on the next login; failure deltas from several instances add up in the
+ * database and lock the row there. Entries untouched for a full interval after being flushed are
+ * dropped, so the table only holds users active in the last two intervals.
+ * <p>
+ * With write-behind disabled every attempt goes straight to the atomic statements of
+ * {@link mindforge.repository.UserRepositoryCustom}.
+ */
+@Component
+@Slf4j
+public class LoginStateStore implements DisposableBean {
+
+  static final int STRIPES = 64;
+
+  private final UserRepository userRepository;
+  private final int maxAttempts;
+  private final int lockoutDurationMinutes;
+  private final boolean writeBehind;
+  private final Stripe[] stripes = new Stripe[STRIPES];
+
+  public LoginStateStore(
+      UserRepository userRepository,
+      @Value("${security.account-lockout.max-attempts:5}") int maxAttempts,
+      @Value("${security.account-lockout.duration-minutes:30}") int lockoutDurationMinutes,
+      @Value("${security.login-state.write-behind.enabled:true}") boolean writeBehind) {
+
+    this.userRepository = userRepository;
+    this.maxAttempts = maxAttempts;
+    this.lockoutDurationMinutes = lockoutDurationMinutes;
+    this.writeBehind = writeBehind;
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe();
+    }
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  /** Whether {@code user} is locked at {@code now}; a lock that has run out is cleared on the way. */
+  public boolean isLocked(User user, LocalDateTime now) {
+    if (!writeBehind) {
+      if (!Boolean.TRUE.equals(user.getAccountLocked())) {
+        return false;
+      }
+      if (user.getLockedUntil() != null && now.isAfter(user.getLockedUntil())) {
+        // A no-op if a parallel request already unlocked
+        userRepository.unlockIfExpired(user.getId(), now);
+        return false;
+      }
+      return true;
+    }
+
+    Stripe stripe = stripeOf(user.getId());
+    synchronized (stripe) {
+      Entry entry = stripe.entryFor(user);
+      if (!entry.locked) {
+        return false;
+      }
+      if (entry.lockedUntil == null || !now.isAfter(entry.lockedUntil)) {
+        return true;
+      }
+      entry.locked = false;
+      entry.lockedUntil = null;
+      entry.failedAttempts = 0;
+      entry.pendingFailures = 0;
+      entry.pendingReset = false;
+      entry.version++;
+    }
+    userRepository.unlockIfExpired(user.getId(), now);
+    return false;
+  }
+
+  /** Counts a failed attempt and locks the account once {@code maxAttempts} is reached. */
+  public Optional<LoginAttemptState> recordFailure(User user, LocalDateTime now) {
+    LocalDateTime lockUntil = now.plusMinutes(lockoutDurationMinutes);
+    if (!writeBehind) {
+      return userRepository.recordFailedLogin(user.getId(), maxAttempts, lockUntil, now);
+    }
+
+    LoginAttemptState state;
+    boolean lockedNow = false;
+    Stripe stripe = stripeOf(user.getId());
+    synchronized (stripe) {
+      Entry entry = stripe.entryFor(user);
+      entry.failedAttempts++;
+      entry.lastLoginAttempt = now;
+      entry.version++;
+      if (!entry.locked && entry.failedAttempts >= maxAttempts) {
+        entry.locked = true;
+        entry.lockedUntil = lockUntil;
+        // The write-through below carries the absolute count
+        entry.pendingFailures = 0;
+        entry.pendingReset = false;
+        entry.dirty = false;
+        lockedNow = true;
+      } else {
+        entry.pendingFailures++;
+        entry.dirty = true;
+      }
+      state = new LoginAttemptState(entry.failedAttempts, entry.locked, entry.lockedUntil);
+    }
+    if (lockedNow) {
+      userRepository.lockAccount(user.getId(), state.failedLoginAttempts(), lockUntil, now);
+    }
+    return Optional.of(state);
+  }
+
+  /** Resets the failure count after a correct password; {@code false} if the account got locked meanwhile. */
+  public boolean recordSuccess(User user, LocalDateTime now) {
+    if (!writeBehind) {
+      return userRepository.recordSuccessfulLogin(user.getId(), now);
+    }
+
+    Stripe stripe = stripeOf(user.getId());
+    synchronized (stripe) {
+      Entry entry = stripe.entryFor(user);
+      if (entry.locked && (entry.lockedUntil == null || !now.isAfter(entry.lockedUntil))) {
+        return false;
+      }
+      entry.locked = false;
+      entry.lockedUntil = null;
+      entry.failedAttempts = 0;
+      entry.pendingFailures = 0;
+      entry.pendingReset = true;
+      entry.lastLoginAttempt = now;
+      entry.dirty = true;
+      entry.version++;
+      return true;
+    }
+  }
+
+  /**
+   * Drops the entry of a user whose row was changed elsewhere (admin lock or unlock, deletion), so the
+   * next login reads it fresh. Unflushed attempts of that user are discarded.
+   */
+  public void evict(Long userId) {
+    if (!writeBehind || userId == null) {
+      return;
+    }
+    Stripe stripe = stripeOf(userId);
+    synchronized (stripe) {
+      stripe.entries.remove(userId);
+    }
+  }
+
+  /** {@link #evict} for many users. */
+  public void evictAll(Collection<Long> userIds) {
+    for (Long userId : userIds) {
+      evict(userId);
+    }
+  }
+
+  /** Writes all buffered changes; returns how many users were written. */
+  @Scheduled(fixedDelayString = "${security.login-state.flush-interval-ms:1000}")
+  public synchronized int flush() {
+    if (!writeBehind) {
+      return 0;
+    }
+    List<LoginStateUpdate> updates = new ArrayList<>();
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        for (Iterator<Map.Entry<Long, Entry>> it = stripe.entries.entrySet().iterator(); it.hasNext(); ) {
+          Map.Entry<Long, Entry> mapping = it.next();
+          Entry entry = mapping.getValue();
+          if (entry.dirty) {
+            updates.add(new LoginStateUpdate(mapping.getKey(), entry.pendingReset,
+                entry.pendingReset ? entry.failedAttempts : entry.pendingFailures, entry.lastLoginAttempt));
+            entry.pendingFailures = 0;
+            entry.pendingReset = false;
+            entry.dirty = false;
+          } else if (entry.version == entry.flushedVersion) {
+            it.remove();
+          }
+          entry.flushedVersion = entry.version;
+        }
+      }
+    }
+    if (updates.isEmpty()) {
+      return 0;
+    }
+
+    LocalDateTime now = LocalDateTime.now();
+    try {
+      userRepository.applyLoginStates(updates, maxAttempts, now.plusMinutes(lockoutDurationMinutes), now);
+    } catch (RuntimeException e) {
+      log.warn("Could not flush login state of {} users, retrying next interval: {}", updates.size(), e.getMessage());
+      requeue(updates);
+      return 0;
+    }
+    log.debug("Flushed login state of {} users", updates.size());
+    return updates.size();
+  }
+
+  @Override
+  public void destroy() {
+    flush();
+  }
+
+  private void requeue(List<LoginStateUpdate> updates) {
+    for (LoginStateUpdate update : updates) {
+      Stripe stripe = stripeOf(update.userId());
+      synchronized (stripe) {
+        Entry entry = stripe.entries.get(update.userId());
+        if (entry == null) {
+          continue;
+        }
+        if (update.reset()) {
+          // A reset writes the absolute in-memory count, which already covers later failures
+          entry.pendingReset = true;
+        } else if (!entry.pendingReset) {
+          entry.pendingFailures += update.failedLoginAttempts();
+        }
+        if (entry.lastLoginAttempt == null) {
+          entry.lastLoginAttempt = update.lastLoginAttempt();
+        }
+        entry.dirty = true;
+      }
+    }
+  }
+
+  private Stripe stripeOf(Long userId) {
+    long h = userId * 0x9E3779B97F4A7C15L;
+    return stripes[(int) (h >>> 58)];
+  }
+
+  private static final class Stripe {
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    /** The entry of {@code user}, seeded from its row; a lock the row has and the entry lacks is adopted. */
+    Entry entryFor(User user) {
+      Entry entry = entries.get(user.getId());
+      if (entry == null) {
+        entry = new Entry();
+        entry.failedAttempts = user.getFailedLoginAttempts() == null ? 0 : user.getFailedLoginAttempts();
+        entry.locked = Boolean.TRUE.equals(user.getAccountLocked());
+        entry.lockedUntil = user.getLockedUntil();
+        entry.lastLoginAttempt = user.getLastLoginAttempt();
+        entries.put(user.getId(), entry);
+      } else if (!entry.locked && Boolean.TRUE.equals(user.getAccountLocked())
+          && (user.getLockedUntil() == null || user.getLockedUntil().isAfter(LocalDateTime.now()))) {
+        entry.locked = true;
+        entry.lockedUntil = user.getLockedUntil();
+        entry.version++;
+      }
+      return entry;
+    }
+  }
+
+  private static final class Entry {
+    int failedAttempts;
+    boolean locked;
+    LocalDateTime lockedUntil;
+    LocalDateTime lastLoginAttempt;
+    /** Failures since the last flush, added to the stored count unless {@link #pendingReset} is set. */
+    int pendingFailures;
+    /** A successful login since the last flush: the stored count is replaced by {@link #failedAttempts}. */
+    boolean pendingReset;
+    boolean dirty;
+    long version;
+    long flushedVersion;
+  }
+}
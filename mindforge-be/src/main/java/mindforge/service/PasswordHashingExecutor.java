@@ -0,0 +1,163 @@
+package mindforge.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing and verification on a pool sized to the CPU.
+ * <p>
+ * The pool has one thread per available core (or {@code security.password-hashing.threads}) and a
+ * bounded queue. Only the hash itself runs here: the password encoder hands each encode and match to
+ * {@link #call}, and the request thread keeps the database work, so pool slots are never held while
+ * waiting on a query. When the queue is full the work is rejected with
+ * {@link RejectedExecutionException} right away; the auth endpoints answer that with 503 instead of
+ * piling up requests, so a login burst cannot starve cheap endpoints such as {@code /api/health}.
+ * A request thread waits at most {@code security.password-hashing.timeout} for its result; after that
+ * it gets a {@link HashingTimeoutException}, also answered with 503, and the work is skipped if no
+ * hashing thread has picked it up yet.
+ * <p>
+ * Pool size, active threads and queue depth are published as the {@code executor.*} metrics tagged
+ * {@code name=auth.password-hashing}; time spent queued is {@code auth.password-hashing.wait},
+ * rejected submissions are counted in {@code auth.password-hashing.rejected} and abandoned waits in
+ * {@code auth.password-hashing.timeouts}.
+ */
+@Component
+@Slf4j
+public class PasswordHashingExecutor implements DisposableBean {
+
+  public static final String METRIC_NAME = "auth.password-hashing";
+
+  private final ThreadPoolExecutor executor;
+  private final Timer waitTimer;
+  private final Counter rejected;
+  private final Counter timeouts;
+  private final Duration timeout;
+
+  public PasswordHashingExecutor(
+      @Value("${security.password-hashing.threads:0}") int threads,
+      @Value("${security.password-hashing.queue-capacity:64}") int queueCapacity,
+      @Value("${security.password-hashing.timeout:5s}") Duration timeout,
+      MeterRegistry meterRegistry) {
+
+    int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+    new ExecutorServiceMetrics(executor, METRIC_NAME, Tags.empty()).bindTo(meterRegistry);
+    this.waitTimer = Timer.builder(METRIC_NAME + ".wait")
+        .description("Time password work spent queued before a hashing thread picked it up")
+        .register(meterRegistry);
+    this.rejected = Counter.builder(METRIC_NAME + ".rejected")
+        .description("Password work rejected because the hashing queue was full")
+        .register(meterRegistry);
+    this.timeouts = Counter.builder(METRIC_NAME + ".timeouts")
+        .description("Password work abandoned because the caller's wait timed out")
+        .register(meterRegistry);
+    this.timeout = timeout;
+    log.info("Password hashing pool: {} threads, queue capacity {}, timeout {}", poolSize, queueCapacity, timeout);
+  }
+
+  /**
+   * Queues {@code work} on the hashing pool.
+   *
+   * @throws RejectedExecutionException if the queue is full
+   */
+  public <T> CompletableFuture<T> submit(Supplier<T> work) {
+    long queuedAt = System.nanoTime();
+    try {
+      return CompletableFuture.supplyAsync(() -> {
+        waitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+        return work.get();
+      }, executor);
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      throw e;
+    }
+  }
+
+  /**
+   * Runs {@code work} on the hashing pool and waits up to the configured timeout for its result. Work
+   * that is already on a hashing thread, such as a bulk import's batch, runs in place instead of
+   * queueing behind itself.
+   *
+   * @throws RejectedExecutionException if the queue is full
+   * @throws HashingTimeoutException if the result is not ready within the timeout
+   */
+  public <T> T call(Supplier<T> work) {
+    if (Thread.currentThread() instanceof HashingThread) {
+      return work.get();
+    }
+    try {
+      return submit(work).orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof TimeoutException) {
+        timeouts.increment();
+        throw new HashingTimeoutException(timeout);
+      }
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw e;
+    }
+  }
+
+  public int poolSize() {
+    return executor.getCorePoolSize();
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdown();
+  }
+
+  /**
+   * Thrown by {@link #call} when the hashing pool does not deliver a result in time. It is a
+   * {@link RejectedExecutionException} so callers treat it like a full queue.
+   */
+  public static class HashingTimeoutException extends RejectedExecutionException {
+
+    HashingTimeoutException(Duration timeout) {
+      super("Password hashing did not finish within " + timeout);
+    }
+  }
+
+  private static final class HashingThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new HashingThread(runnable, "password-hashing-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+  private static final class HashingThread extends Thread {
+
+    HashingThread(Runnable runnable, String name) {
+      super(runnable, name);
+    }
+  }
+}
@@ -2,13 +2,26 @@ package mindforge.service;
 
 import org.springframework.stereotype.Service;
 
-import java.util.regex.Pattern;
-
+/**
+ * Password policy: length limits, a strength score and the {@link CommonPasswordDictionary}.
+ * <p>
+ * The score comes from one pass over the characters that collects the character classes, runs of three
+ * or more equal characters, ascending or descending runs such as {@code abc} or {@code 321}, and a few
+ * well-known fragments; it allocates nothing.
+ */
 @Service
 public class PasswordValidationService {
 
     private static final int MIN_LENGTH = 8;
     private static final int MAX_LENGTH = 128;
+    private static final int RUN_LENGTH = 3;
+    private static final String[] COMMON_FRAGMENTS = {"password", "admin", "qwe"};
+
+    private final CommonPasswordDictionary commonPasswords;
+
+    public PasswordValidationService(CommonPasswordDictionary commonPasswords) {
+        this.commonPasswords = commonPasswords;
+    }
 
     // Password strength levels
     public enum PasswordStrength {
@@ -50,6 +63,11 @@ public class PasswordValidationService {
                 "Password must be less than " + MAX_LENGTH + " characters long");
         }
 
+        if (commonPasswords.contains(trimmedPassword)) {
+            return new PasswordValidationResult(false, PasswordStrength.WEAK,
+                "Password is too common - it appears in lists of breached passwords");
+        }
+
         // Calculate strength
         PasswordStrength strength = calculateStrength(trimmedPassword);
 
@@ -61,22 +79,55 @@ public class PasswordValidationService {
         return new PasswordValidationResult(isValid, strength, message);
     }
 
-    private PasswordStrength calculateStrength(String password) {
+    private static PasswordStrength calculateStrength(String password) {
+        int length = password.length();
+        boolean lower = false;
+        boolean upper = false;
+        boolean digit = false;
+        boolean special = false;
+        boolean repeated = false;
+        boolean pattern = false;
+        int repeatRun = 1;
+        int sequenceRun = 1;
+        int sequenceStep = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = password.charAt(i);
+            if (c >= 'a' && c <= 'z') lower = true;
+            else if (c >= 'A' && c <= 'Z') upper = true;
+            else if (c >= '0' && c <= '9') digit = true;
+            else special = true;
+
+            if (i > 0) {
+                char previous = password.charAt(i - 1);
+                repeatRun = c == previous ? repeatRun + 1 : 1;
+                repeated |= repeatRun >= RUN_LENGTH;
+
+                int step = sequenceStep(previous, c);
+                sequenceRun = step == 0 ? 1 : step == sequenceStep ? sequenceRun + 1 : 2;
+                sequenceStep = step;
+                pattern |= sequenceRun >= RUN_LENGTH;
+            }
+            if (!pattern) {
+                pattern = startsFragment(password, i);
+            }
+        }
+
         int score = 0;
 
         // Length bonus
-        if (password.length() >= 12) score += 2;
-        else if (password.length() >= 8) score += 1;
+        if (length >= 12) score += 2;
+        else if (length >= 8) score += 1;
 
         // Character variety bonuses
-        if (Pattern.compile("[a-z]").matcher(password).find()) score += 1; // lowercase
-        if (Pattern.compile("[A-Z]").matcher(password).find()) score += 1; // uppercase
-        if (Pattern.compile("[0-9]").matcher(password).find()) score += 1; // digits
-        if (Pattern.compile("[^a-zA-Z0-9]").matcher(password).find()) score += 1; // special chars
+        if (lower) score += 1;
+        if (upper) score += 1;
+        if (digit) score += 1;
+        if (special) score += 1;
 
         // Common patterns penalty
-        if (Pattern.compile("(.)\1{2,}").matcher(password).find()) score -= 1; // repeated chars
-        if (Pattern.compile("123|abc|qwe|password|admin", Pattern.CASE_INSENSITIVE).matcher(password).find()) score -= 1;
+        if (repeated) score -= 1;
+        if (pattern) score -= 1;
 
         if (score >= 5) return PasswordStrength.STRONG;
         if (score >= 3) return PasswordStrength.GOOD;
@@ -84,6 +135,29 @@ public class PasswordValidationService {
         return PasswordStrength.WEAK;
     }
 
+    /** +1 or -1 if {@code c} follows or precedes {@code previous} among letters (any case) or digits, else 0. */
+    private static int sequenceStep(char previous, char c) {
+        int a = Character.toLowerCase(previous);
+        int b = Character.toLowerCase(c);
+        boolean letters = a >= 'a' && a <= 'z' && b >= 'a' && b <= 'z';
+        boolean digits = a >= '0' && a <= '9' && b >= '0' && b <= '9';
+        if (!letters && !digits) {
+            return 0;
+        }
+        int step = b - a;
+        return step == 1 || step == -1 ? step : 0;
+    }
+
+    private static boolean startsFragment(String password, int offset) {
+        char c = Character.toLowerCase(password.charAt(offset));
+        for (String fragment : COMMON_FRAGMENTS) {
+            if (fragment.charAt(0) == c && password.regionMatches(true, offset, fragment, 0, fragment.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private String getStrengthMessage(PasswordStrength strength) {
         switch (strength) {
             case STRONG: return "Very strong password";
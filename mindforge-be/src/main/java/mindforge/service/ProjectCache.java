@@ -0,0 +1,217 @@
+package mindforge.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import mindforge.dto.CursorPage;
+import mindforge.dto.ProjectDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of the serialized JSON of single projects and of public listing pages, so a hit
+ * costs neither a query nor Jackson.
+ * <p>
+ * Every entry remembers the project ids it covers (a page covers {@code (afterId, last id]}, the last
+ * page everything after {@code afterId}) and the owners it shows. A project change drops only the entries
+ * covering its id, an owner change only the entries showing that owner; both run after the surrounding
+ * transaction commits. A load that overlaps an invalidation is not kept, so a read that started before
+ * a commit cannot put the old JSON back. Invalidation is local to this instance; {@code projects.cache.ttl}
+ * bounds how long other replicas may serve a changed project.
+ * <p>
+ * Hit and miss counts are published as the {@value #PROJECTS} and {@value #PUBLIC_PAGES} cache metrics,
+ * with {@code cache.hit.ratio} alongside; {@code projects.cache.staleness} records the age of every entry
+ * served.
+ */
+@Component
+public class ProjectCache {
+
+    public static final String PROJECTS = "projects.by-id";
+    public static final String PUBLIC_PAGES = "projects.public-pages";
+
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, Entry> projects;
+    private final Cache<PageKey, Entry> publicPages;
+    private final Timer projectStaleness;
+    private final Timer pageStaleness;
+    /** Bumped by every invalidation; a load that sees it move is not cached. */
+    private final AtomicLong generation = new AtomicLong();
+
+    public ProjectCache(
+            @Value("${projects.cache.enabled:true}") boolean enabled,
+            @Value("${projects.cache.max-size:10000}") long maxSize,
+            @Value("${projects.cache.ttl:60s}") Duration ttl,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+
+        this.objectMapper = objectMapper;
+        this.projectStaleness = staleness(meterRegistry, PROJECTS);
+        this.pageStaleness = staleness(meterRegistry, PUBLIC_PAGES);
+        if (!enabled) {
+            this.projects = null;
+            this.publicPages = null;
+            return;
+        }
+        this.projects = build(maxSize, ttl, meterRegistry, PROJECTS);
+        this.publicPages = build(maxSize, ttl, meterRegistry, PUBLIC_PAGES);
+    }
+
+    /** The JSON of the project {@code id}, loaded through {@code loader} on a miss. */
+    public Json project(long id, Supplier<ProjectDto> loader) {
+        return get(projects, id, projectStaleness, () -> {
+            ProjectDto project = loader.get();
+            return new Entry(new Json(serialize(project), null), id - 1, id, new long[]{project.getOwnerId()});
+        });
+    }
+
+    /** The JSON of the public page after {@code afterId}, loaded through {@code loader} on a miss. */
+    public Json publicPage(long afterId, int limit, Supplier<CursorPage<ProjectDto>> loader) {
+        return get(publicPages, new PageKey(afterId, limit), pageStaleness, () -> {
+            CursorPage<ProjectDto> page = loader.get();
+            List<ProjectDto> items = page.items();
+            long lastId = page.nextCursor() == null ? Long.MAX_VALUE : items.get(items.size() - 1).getId();
+            long[] owners = items.stream().mapToLong(ProjectDto::getOwnerId).distinct().toArray();
+            return new Entry(new Json(serialize(items), page.nextCursor()), afterId, lastId, owners);
+        });
+    }
+
+    /** Drops what shows project {@code id}: created, updated or deleted. */
+    public void projectChanged(long id) {
+        afterCommit(entry -> entry.covers(id));
+    }
+
+    /** Drops what shows anything of owner {@code ownerId}, e.g. after a rename. */
+    public void ownerChanged(long ownerId) {
+        afterCommit(entry -> entry.showsOwner(ownerId));
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        if (projects != null) {
+            projects.invalidateAll();
+            publicPages.invalidateAll();
+        }
+    }
+
+    private <K> Json get(Cache<K, Entry> cache, K key, Timer staleness, Supplier<Entry> loader) {
+        if (cache == null) {
+            return loader.get().json();
+        }
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null) {
+            staleness.record(System.nanoTime() - cached.loadedAt(), TimeUnit.NANOSECONDS);
+            return cached.json();
+        }
+        long seen = generation.get();
+        Entry loaded = loader.get();
+        cache.put(key, loaded);
+        if (generation.get() != seen) {
+            // An invalidation ran while loading; what was read may predate it
+            cache.invalidate(key);
+        }
+        return loaded.json();
+    }
+
+    private void afterCommit(Predicate<Entry> affected) {
+        if (projects == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(affected);
+                }
+            });
+        } else {
+            invalidate(affected);
+        }
+    }
+
+    private void invalidate(Predicate<Entry> affected) {
+        generation.incrementAndGet();
+        projects.asMap().values().removeIf(affected);
+        publicPages.asMap().values().removeIf(affected);
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + value, e);
+        }
+    }
+
+    private static <K> Cache<K, Entry> build(long maxSize, Duration ttl, MeterRegistry meterRegistry, String name) {
+        Cache<K, Entry> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Share of lookups answered from the cache")
+                .tag("cache", name)
+                .register(meterRegistry);
+        return cache;
+    }
+
+    private static Timer staleness(MeterRegistry meterRegistry, String name) {
+        return Timer.builder("projects.cache.staleness")
+                .description("Age of cached project JSON when served")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    /** Serialized response body and, for listing pages, the cursor of the next page. */
+    public record Json(byte[] body, String nextCursor) {
+
+        /** 200 with the JSON as body and, like {@link CursorPage#toResponse()}, the next cursor as header. */
+        public ResponseEntity<byte[]> toResponse() {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+            if (nextCursor != null) {
+                response.header(CursorPage.NEXT_CURSOR_HEADER, nextCursor);
+            }
+            return response.body(body);
+        }
+    }
+
+    private record PageKey(long afterId, int limit) {
+    }
+
+    private record Entry(Json json, long afterId, long lastId, long[] ownerIds, long loadedAt) {
+
+        Entry(Json json, long afterId, long lastId, long[] ownerIds) {
+            this(json, afterId, lastId, ownerIds, System.nanoTime());
+        }
+
+        boolean covers(long id) {
+            return id > afterId && id <= lastId;
+        }
+
+        boolean showsOwner(long ownerId) {
+            for (long owner : ownerIds) {
+                if (owner == ownerId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -2,13 +2,16 @@ package mindforge.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import mindforge.dto.CursorPage;
 import mindforge.dto.ProjectDto;
 import mindforge.model.Project;
 import mindforge.model.User;
 import mindforge.repository.ProjectRepository;
 import mindforge.repository.UserRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -20,31 +23,50 @@ public class ProjectService {
 
     private final ProjectRepository projectRepository;
     private final UserRepository userRepository;
+    private final ProjectCache projectCache;
+
+    /** One page of all projects in id order; see {@link CursorPage}. */
+    public CursorPage<ProjectDto> getAllProjects(String cursor, Integer limit) {
+        int pageSize = CursorPage.limit(limit);
+        List<ProjectRepository.ProjectView> projects = projectRepository.findPageAfter(
+                CursorPage.afterId(cursor), PageRequest.ofSize(pageSize + 1));
+        return CursorPage.of(projects, pageSize, ProjectRepository.ProjectView::getId, ProjectService::toDto);
+    }
 
-    public List<ProjectDto> getAllProjects() {
-        return projectRepository.findAll().stream()
-                .map(this::toDto)
-                .collect(Collectors.toList());
+    /** One page of public projects in id order; see {@link CursorPage}. */
+    public CursorPage<ProjectDto> getPublicProjects(String cursor, Integer limit) {
+        int pageSize = CursorPage.limit(limit);
+        List<ProjectRepository.ProjectView> projects = projectRepository.findPublicPageAfter(
+                CursorPage.afterId(cursor), PageRequest.ofSize(pageSize + 1));
+        return CursorPage.of(projects, pageSize, ProjectRepository.ProjectView::getId, ProjectService::toDto);
     }
 
-    public List<ProjectDto> getPublicProjects() {
-        return projectRepository.findByIsPublicTrue().stream()
-                .map(this::toDto)
-                .collect(Collectors.toList());
+    /** {@link #getPublicProjects} as JSON, served from {@link ProjectCache} when possible. */
+    public ProjectCache.Json getPublicProjectsJson(String cursor, Integer limit) {
+        long afterId = CursorPage.afterId(cursor);
+        int pageSize = CursorPage.limit(limit);
+        return projectCache.publicPage(afterId, pageSize, () -> getPublicProjects(cursor, pageSize));
     }
 
     public List<ProjectDto> getUserProjects(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
-        return projectRepository.findByOwner(user).stream()
-                .map(this::toDto)
+        List<ProjectRepository.ProjectView> projects = projectRepository.findViewsByOwnerUsername(username);
+        if (projects.isEmpty() && !userRepository.existsByUsername(username)) {
+            throw new IllegalArgumentException("User not found");
+        }
+        return projects.stream()
+                .map(ProjectService::toDto)
                 .collect(Collectors.toList());
     }
 
     public ProjectDto getProjectById(Long id) {
-        Project project = projectRepository.findById(id)
+        return projectRepository.findViewById(id)
+                .map(ProjectService::toDto)
                 .orElseThrow(() -> new IllegalArgumentException("Project not found"));
-        return toDto(project);
+    }
+
+    /** {@link #getProjectById} as JSON, served from {@link ProjectCache} when possible. */
+    public ProjectCache.Json getProjectJson(Long id) {
+        return projectCache.project(id, () -> getProjectById(id));
     }
 
     @PreAuthorize("hasRole('USER')")
@@ -60,13 +82,15 @@ public class ProjectService {
                 .build();
 
         project = projectRepository.save(project);
+        projectCache.projectChanged(project.getId());
         log.info("Project created: {} by {}", project.getName(), username);
         return toDto(project);
     }
 
     @PreAuthorize("hasRole('USER')")
+    @Transactional
     public ProjectDto updateProject(String username, Long projectId, ProjectDto projectDto) {
-        Project project = projectRepository.findById(projectId)
+        Project project = projectRepository.findWithOwnerById(projectId)
                 .orElseThrow(() -> new IllegalArgumentException("Project not found"));
 
         // Check ownership
@@ -79,13 +103,15 @@ public class ProjectService {
         project.setIsPublic(projectDto.getIsPublic() != null ? projectDto.getIsPublic() : project.getIsPublic());
 
         project = projectRepository.save(project);
+        projectCache.projectChanged(project.getId());
         log.info("Project updated: {}", project.getName());
         return toDto(project);
     }
 
     @PreAuthorize("hasRole('USER')")
+    @Transactional
     public void deleteProject(String username, Long projectId) {
-        Project project = projectRepository.findById(projectId)
+        Project project = projectRepository.findWithOwnerById(projectId)
                 .orElseThrow(() -> new IllegalArgumentException("Project not found"));
 
         // Check ownership
@@ -94,9 +120,21 @@ public class ProjectService {
         }
 
         projectRepository.delete(project);
+        projectCache.projectChanged(project.getId());
         log.info("Project deleted: {}", project.getName());
     }
 
+    static ProjectDto toDto(ProjectRepository.ProjectView project) {
+        return ProjectDto.builder()
+                .id(project.getId())
+                .name(project.getName())
+                .description(project.getDescription())
+                .ownerId(project.getOwnerId())
+                .ownerUsername(project.getOwnerUsername())
+                .isPublic(project.getIsPublic())
+                .build();
+    }
+
     private ProjectDto toDto(Project project) {
         return ProjectDto.builder()
                 .id(project.getId())
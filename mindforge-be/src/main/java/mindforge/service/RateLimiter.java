@@ -0,0 +1,387 @@
+package mindforge.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Fixed-capacity, lock-free rate limiter for one limit ({@code permits} per {@code period}).
+ * <p>
+ * Keys are 64-bit hashes kept in an open-addressed table: a key lives in one of {@value #PROBE_WINDOW}
+ * consecutive slots after its home slot, and each slot's limiter state is a single {@code long}. An
+ * acquire is a short scan of the key array plus one CAS on the state, so there are no locks and no
+ * allocation. Memory is fixed at construction; when all slots of a key's window are taken the
+ * {@link OverflowPolicy} decides. {@link #sweep} frees slots whose state has returned to "nothing
+ * used", which is what keeps the table from filling up under address spraying.
+ * <p>
+ * {@link Algorithm#TOKEN_BUCKET} is the GCRA form of a token bucket with a burst of {@code permits}: the
+ * state is the theoretical arrival time of the next request. {@link Algorithm#SLIDING_WINDOW} weights the
+ * previous fixed window's count by how much of it still overlaps the sliding window; the state packs
+ * the window index with both counts, so it allows at most {@value #MAX_WINDOW_PERMITS} permits.
+ * <p>
+ * Distinct keys with the same 64-bit hash share a budget. A key inserted twice while the sweeper frees a
+ * slot in its window is merged back to one slot, which may forgive a request.
+ */
+public final class RateLimiter implements KeyedLimiter {
+
+    public enum Algorithm { TOKEN_BUCKET, SLIDING_WINDOW }
+
+    /** What happens to a key that finds no free slot. */
+    public enum OverflowPolicy {
+        /** Let the request through unlimited. */
+        ALLOW,
+        /** Refuse the request. */
+        DENY,
+        /** Charge the request to one bucket shared by all overflowing keys. */
+        SHARED
+    }
+
+    static final int PROBE_WINDOW = 8;
+    static final int MAX_WINDOW_PERMITS = 0xFFFF;
+
+    private static final long EMPTY = 0;
+    private static final long RECLAIMING = 1;
+
+    private final Algorithm algorithm;
+    private final long permits;
+    private final long periodNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final LongSupplier clock;
+    private final long origin;
+
+    /** GCRA: time between requests at the sustained rate, and how far ahead the arrival time may run. */
+    private final long emissionNanos;
+    private final long toleranceNanos;
+
+    private final int mask;
+    private final AtomicLongArray keys;
+    /** One state per slot, plus the shared overflow bucket at index {@code capacity}. */
+    private final AtomicLongArray states;
+    private final LongAdder activeKeys = new LongAdder();
+
+    public RateLimiter(Algorithm algorithm, long permits, Duration period, int maxKeys, OverflowPolicy overflowPolicy) {
+        this(algorithm, permits, period, maxKeys, overflowPolicy, System::nanoTime);
+    }
+
+    public RateLimiter(Algorithm algorithm, long permits, Duration period, int maxKeys, OverflowPolicy overflowPolicy,
+                       LongSupplier nanoClock) {
+        if (permits < 1 || period.isNegative() || period.isZero() || maxKeys < 1) {
+            throw new IllegalArgumentException("Rate limit needs positive permits, period and capacity");
+        }
+        if (algorithm == Algorithm.SLIDING_WINDOW && permits > MAX_WINDOW_PERMITS) {
+            throw new IllegalArgumentException("Sliding window allows at most " + MAX_WINDOW_PERMITS + " permits");
+        }
+        this.algorithm = algorithm;
+        this.permits = permits;
+        this.periodNanos = period.toNanos();
+        this.overflowPolicy = overflowPolicy;
+        this.clock = nanoClock;
+        // Keeps relative times positive, so a live state is never EMPTY
+        this.origin = nanoClock.getAsLong() - periodNanos;
+        this.emissionNanos = Math.max(1, periodNanos / permits);
+        this.toleranceNanos = emissionNanos * (permits - 1);
+
+        int capacity = Integer.highestOneBit(Math.max(PROBE_WINDOW, maxKeys - 1)) << 1;
+        this.mask = capacity - 1;
+        this.keys = new AtomicLongArray(capacity);
+        this.states = new AtomicLongArray(capacity + 1);
+    }
+
+    /**
+     * Takes a permit for {@code key}.
+     *
+     * @return the permits left ({@code >= 0}) if the request is allowed, otherwise a negative value from
+     *     which {@link #retryAfterNanos} recovers the wait
+     */
+    @Override
+    public long tryAcquire(long key) {
+        long now = clock.getAsLong() - origin;
+        key = normalize(key);
+        while (true) {
+            int slot = slotOf(key);
+            if (slot < 0) {
+                return switch (overflowPolicy) {
+                    case ALLOW -> permits;
+                    case DENY -> denied(periodNanos);
+                    case SHARED -> acquire(states.length() - 1, 0, now);
+                };
+            }
+            long result = acquire(slot, key, now);
+            if (result != Long.MIN_VALUE) {
+                return result;
+            }
+        }
+    }
+
+    public static boolean isAllowed(long result) {
+        return result >= 0;
+    }
+
+    /** Wait until a denied request could succeed; {@code 0} for allowed ones. */
+    public static long retryAfterNanos(long result) {
+        return result >= 0 ? 0 : -(result + 1);
+    }
+
+    /** Permits {@code key} could take right now, without taking one. */
+    @Override
+    public long remaining(long key) {
+        long now = clock.getAsLong() - origin;
+        key = normalize(key);
+        int home = home(key);
+        for (int i = 0; i < PROBE_WINDOW; i++) {
+            int slot = (home + i) & mask;
+            if (keys.get(slot) == key) {
+                long state = states.get(slot);
+                return state == EMPTY ? permits : available(state, now);
+            }
+        }
+        return permits;
+    }
+
+    /** Forgets {@code key}, giving it the full budget again. */
+    @Override
+    public void reset(long key) {
+        key = normalize(key);
+        int home = home(key);
+        for (int i = 0; i < PROBE_WINDOW; i++) {
+            int slot = (home + i) & mask;
+            if (keys.get(slot) == key && keys.compareAndSet(slot, key, RECLAIMING)) {
+                states.set(slot, EMPTY);
+                keys.set(slot, EMPTY);
+                activeKeys.decrement();
+            }
+        }
+    }
+
+    /** Frees the slots of keys that have their full budget again; returns how many were freed. */
+    @Override
+    public int sweep() {
+        long now = clock.getAsLong() - origin;
+        int evicted = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+            long key = keys.get(slot);
+            if (key == EMPTY || key == RECLAIMING) {
+                continue;
+            }
+            long state = states.get(slot);
+            // EMPTY here means an insert that has not taken its first permit yet
+            if (state == EMPTY || !isIdle(state, now) || !keys.compareAndSet(slot, key, RECLAIMING)) {
+                continue;
+            }
+            if (states.compareAndSet(slot, state, EMPTY)) {
+                keys.set(slot, EMPTY);
+                activeKeys.decrement();
+                evicted++;
+            } else {
+                keys.set(slot, key);
+            }
+        }
+        return evicted;
+    }
+
+    /** Keys currently holding a slot. */
+    @Override
+    public long activeKeys() {
+        return activeKeys.sum();
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    @Override
+    public long permits() {
+        return permits;
+    }
+
+    @Override
+    public Duration period() {
+        return Duration.ofNanos(periodNanos);
+    }
+
+    /** 64-bit FNV-1a over the UTF-16 code units, finished with the MurmurHash3 mixer. */
+    public static long hash(CharSequence value) {
+        return hash(value, 0, value.length());
+    }
+
+    /** {@link #hash(CharSequence)} of {@code value.subSequence(start, end)}, without creating it. */
+    public static long hash(CharSequence value, int start, int end) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Applies one request to the state in {@code slot}; {@link Long#MIN_VALUE} if the slot stopped
+     * belonging to {@code key} meanwhile.
+     */
+    private long acquire(int slot, long key, long now) {
+        while (true) {
+            long state = states.get(slot);
+            if (key != 0 && keys.get(slot) != key) {
+                return Long.MIN_VALUE;
+            }
+            long next;
+            long result;
+            if (algorithm == Algorithm.TOKEN_BUCKET) {
+                long tat = state == EMPTY ? now : Math.max(state, now);
+                if (tat - now > toleranceNanos) {
+                    return denied(tat - now - toleranceNanos);
+                }
+                next = tat + emissionNanos;
+                result = (now + toleranceNanos + emissionNanos - next) / emissionNanos;
+            } else {
+                long window = now / periodNanos;
+                long elapsed = now % periodNanos;
+                long previous = previousCount(state, window);
+                long current = currentCount(state, window);
+                long weighted = weightedCount(previous, current, elapsed);
+                if (weighted >= permits) {
+                    return denied(slidingRetryAfter(previous, current, elapsed));
+                }
+                next = pack(window, previous, current + 1);
+                result = permits - weighted - 1;
+            }
+            if (states.compareAndSet(slot, state, next)) {
+                return result;
+            }
+        }
+    }
+
+    private long available(long state, long now) {
+        if (algorithm == Algorithm.TOKEN_BUCKET) {
+            long tat = Math.max(state, now);
+            return Math.max(0, (now + toleranceNanos + emissionNanos - tat) / emissionNanos);
+        }
+        long window = now / periodNanos;
+        return Math.max(0, permits
+            - weightedCount(previousCount(state, window), currentCount(state, window), now % periodNanos));
+    }
+
+    private boolean isIdle(long state, long now) {
+        if (algorithm == Algorithm.TOKEN_BUCKET) {
+            return state <= now;
+        }
+        // Both counted windows have slid out
+        return (int) (now / periodNanos) - (int) (state >>> 32) >= 2;
+    }
+
+    /**
+     * The slot holding {@code key}, claiming a free one if it has none, or {@code -1} if its window is full.
+     */
+    private int slotOf(long key) {
+        int home = home(key);
+        retry:
+        while (true) {
+            int free = -1;
+            for (int i = 0; i < PROBE_WINDOW; i++) {
+                int slot = (home + i) & mask;
+                long current = keys.get(slot);
+                if (current == key) {
+                    return slot;
+                }
+                if (current == RECLAIMING) {
+                    Thread.onSpinWait();
+                    continue retry;
+                }
+                if (current == EMPTY && free < 0) {
+                    free = slot;
+                }
+            }
+            if (free < 0) {
+                return -1;
+            }
+            if (!keys.compareAndSet(free, EMPTY, key)) {
+                continue;
+            }
+            // A parallel insert of the same key may have claimed an earlier slot freed by the sweeper
+            for (int i = 0; i < PROBE_WINDOW; i++) {
+                int slot = (home + i) & mask;
+                if (slot == free) {
+                    break;
+                }
+                if (keys.get(slot) == key) {
+                    keys.set(free, EMPTY);
+                    return slot;
+                }
+            }
+            activeKeys.increment();
+            return free;
+        }
+    }
+
+    private int home(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    private static long normalize(long key) {
+        // EMPTY and RECLAIMING mark slots, so no key may equal them
+        return key == EMPTY || key == RECLAIMING ? key + 2 : key;
+    }
+
+    static long denied(long retryAfterNanos) {
+        return -Math.max(0, retryAfterNanos) - 1;
+    }
+
+    // Sliding window state: window index (32 bits) | previous count (16 bits) | current count (16 bits)
+
+    private static long pack(long window, long previous, long current) {
+        return (window << 32) | (previous << 16) | Math.min(current, MAX_WINDOW_PERMITS);
+    }
+
+    private static long previousCount(long state, long window) {
+        int age = (int) window - (int) (state >>> 32);
+        if (age == 0) {
+            return (state >>> 16) & 0xFFFF;
+        }
+        return age == 1 ? state & 0xFFFF : 0;
+    }
+
+    private static long currentCount(long state, long window) {
+        return (int) window == (int) (state >>> 32) ? state & 0xFFFF : 0;
+    }
+
+    private long weightedCount(long previous, long current, long elapsed) {
+        return weightedCount(previous, current, elapsed, periodNanos);
+    }
+
+    /**
+     * Sliding-window estimate: {@code previous * (period - elapsed) / period + current}, rounded up so the
+     * limit is never exceeded. Any time unit works as long as {@code elapsed} and {@code period} share it.
+     */
+    static long weightedCount(long previous, long current, long elapsed, long period) {
+        long overlap = period - elapsed;
+        long weightedPrevious = previous == 0 ? 0 : (long) Math.ceil((double) previous * overlap / period);
+        return weightedPrevious + current;
+    }
+
+    private long slidingRetryAfter(long previous, long current, long elapsed) {
+        return slidingRetryAfter(previous, current, elapsed, periodNanos, permits);
+    }
+
+    /** Time until {@link #weightedCount} drops below {@code permits}, in the unit of {@code period}. */
+    static long slidingRetryAfter(long previous, long current, long elapsed, long period, long permits) {
+        if (current >= permits || previous == 0) {
+            // Only the next window frees capacity; by then "current" becomes the weighted previous
+            long untilNextWindow = period - elapsed;
+            long excess = current - permits + 1;
+            return untilNextWindow + (current == 0 ? 0 : (long) Math.ceil((double) period * excess / current));
+        }
+        // The previous window's weight has to fall until one more request fits
+        double needed = (double) (previous + current - permits + 1) / previous;
+        return Math.max(1, (long) Math.ceil(period * needed) - elapsed);
+    }
+}
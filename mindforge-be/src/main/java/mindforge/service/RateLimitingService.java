@@ -1,63 +1,131 @@
 package mindforge.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+
+import java.time.Duration;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 
+/**
+ * Rate limits keyed by strings, one bounded {@link RateLimiter} per distinct limit.
+ * <p>
+ * Each limiter holds at most {@code security.rate-limit.max-keys} keys; what happens beyond that is
+ * {@code security.rate-limit.overflow} ({@code shared}, {@code allow} or {@code deny}). Keys that have
+ * their full budget again are swept out every {@code security.rate-limit.sweep-interval-ms}.
+ * <p>
+ * With {@code security.rate-limit.cluster.enabled} the named policy limiters count across all replicas
+ * through {@link ClusterRateLimitCoordinator}; they always use sliding windows.
+ * <p>
+ * Per policy, tracked keys are published as {@code http.rate-limit.keys} and swept keys are counted in
+ * {@code http.rate-limit.evictions}.
+ */
 @Service
+@Slf4j
 public class RateLimitingService {
 
-    private final ConcurrentHashMap<String, RateLimitInfo> rateLimitMap = new ConcurrentHashMap<>();
-
-    private static class RateLimitInfo {
-        private final AtomicInteger attempts;
-        private final LocalDateTime windowStart;
-        private final LocalDateTime windowEnd;
+    private final RateLimiter.Algorithm algorithm;
+    private final int maxKeys;
+    private final RateLimiter.OverflowPolicy overflowPolicy;
+    private final ConcurrentHashMap<Limit, RateLimiter> limiters = new ConcurrentHashMap<>();
+    private final ClusterRateLimitCoordinator cluster;
+    private final ConcurrentHashMap<String, KeyedLimiter> namedLimiters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> evictions = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
 
-        public RateLimitInfo(int maxAttempts, int windowMinutes) {
-            this.attempts = new AtomicInteger(0);
-            this.windowStart = LocalDateTime.now();
-            this.windowEnd = windowStart.plusMinutes(windowMinutes);
-        }
+    @Autowired
+    public RateLimitingService(
+            @Value("${security.rate-limit.algorithm:sliding-window}") String algorithm,
+            @Value("${security.rate-limit.max-keys:65536}") int maxKeys,
+            @Value("${security.rate-limit.overflow:shared}") String overflowPolicy,
+            ObjectProvider<ClusterRateLimitCoordinator> cluster,
+            MeterRegistry meterRegistry) {
+        this(algorithm, maxKeys, overflowPolicy, cluster.getIfAvailable(), meterRegistry);
+    }
 
-        public boolean isExpired() {
-            return LocalDateTime.now().isAfter(windowEnd);
-        }
+    /** Node-local limits only, metrics kept in memory. */
+    public RateLimitingService(String algorithm, int maxKeys, String overflowPolicy) {
+        this(algorithm, maxKeys, overflowPolicy, (ClusterRateLimitCoordinator) null, new SimpleMeterRegistry());
+    }
 
-        public boolean tryIncrement(int maxAttempts) {
-            int current = attempts.incrementAndGet();
-            return current <= maxAttempts;
-        }
+    private RateLimitingService(String algorithm, int maxKeys, String overflowPolicy,
+                                ClusterRateLimitCoordinator cluster, MeterRegistry meterRegistry) {
+        this.algorithm = RateLimiter.Algorithm.valueOf(algorithm.toUpperCase().replace('-', '_'));
+        this.maxKeys = maxKeys;
+        this.overflowPolicy = RateLimiter.OverflowPolicy.valueOf(overflowPolicy.toUpperCase());
+        this.cluster = cluster;
+        this.meterRegistry = meterRegistry;
+    }
 
-        public int getAttempts() {
-            return attempts.get();
-        }
+    /**
+     * The limiter of a named policy, created on first use; {@code algorithm} {@code null} means the
+     * configured default.
+     */
+    public KeyedLimiter limiter(String name, RateLimiter.Algorithm algorithm, long permits, Duration period) {
+        return namedLimiters.computeIfAbsent(name, n -> {
+            RateLimiter local = new RateLimiter(
+                    algorithm != null ? algorithm : this.algorithm, permits, period, maxKeys, overflowPolicy);
+            KeyedLimiter limiter = cluster != null ? cluster.limiter(n, permits, period, maxKeys, local) : local;
+            Gauge.builder("http.rate-limit.keys", limiter, KeyedLimiter::activeKeys)
+                    .description("Client keys tracked by a rate limit policy")
+                    .tag("policy", n)
+                    .register(meterRegistry);
+            evictions.put(n, Counter.builder("http.rate-limit.evictions")
+                    .description("Idle client keys swept out of a rate limit policy")
+                    .tag("policy", n)
+                    .register(meterRegistry));
+            return limiter;
+        });
     }
 
     public boolean isAllowed(String key, int maxAttempts, int windowMinutes) {
-        RateLimitInfo info = rateLimitMap.computeIfAbsent(key, k -> new RateLimitInfo(maxAttempts, windowMinutes));
+        return RateLimiter.isAllowed(limiter(maxAttempts, windowMinutes).tryAcquire(RateLimiter.hash(key)));
+    }
 
-        // Reset if window has expired
-        if (info.isExpired()) {
-            rateLimitMap.remove(key);
-            info = new RateLimitInfo(maxAttempts, windowMinutes);
-            rateLimitMap.put(key, info);
-        }
+    public int getRemainingAttempts(String key, int maxAttempts, int windowMinutes) {
+        return (int) limiter(maxAttempts, windowMinutes).remaining(RateLimiter.hash(key));
+    }
 
-        return info.tryIncrement(maxAttempts);
+    public void clearRateLimit(String key) {
+        long hash = RateLimiter.hash(key);
+        limiters.values().forEach(limiter -> limiter.reset(hash));
+        namedLimiters.values().forEach(limiter -> limiter.reset(hash));
     }
 
-    public int getRemainingAttempts(String key, int maxAttempts) {
-        RateLimitInfo info = rateLimitMap.get(key);
-        if (info == null || info.isExpired()) {
-            return maxAttempts;
+    /** Frees the slots of keys that are back to their full budget. */
+    @Scheduled(fixedDelayString = "${security.rate-limit.sweep-interval-ms:10000}")
+    public void sweep() {
+        int evicted = 0;
+        for (RateLimiter limiter : limiters.values()) {
+            evicted += limiter.sweep();
+        }
+        for (var entry : namedLimiters.entrySet()) {
+            int swept = entry.getValue().sweep();
+            evictions.get(entry.getKey()).increment(swept);
+            evicted += swept;
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} idle rate limit keys", evicted);
         }
-        return Math.max(0, maxAttempts - info.getAttempts());
     }
 
-    public void clearRateLimit(String key) {
-        rateLimitMap.remove(key);
+    private RateLimiter limiter(int maxAttempts, int windowMinutes) {
+        Limit limit = new Limit(maxAttempts, windowMinutes);
+        RateLimiter limiter = limiters.get(limit);
+        if (limiter == null) {
+            limiter = limiters.computeIfAbsent(limit, l -> new RateLimiter(
+                    algorithm, l.maxAttempts(), Duration.ofMinutes(l.windowMinutes()), maxKeys, overflowPolicy));
+        }
+        return limiter;
+    }
+
+    private record Limit(int maxAttempts, int windowMinutes) {
     }
-}
\ No newline at end of file
+}
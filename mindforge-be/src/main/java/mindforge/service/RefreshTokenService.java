@@ -0,0 +1,211 @@
+package mindforge.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import mindforge.model.RefreshSession;
+import mindforge.model.User;
+import mindforge.repository.RefreshSessionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Issues and redeems opaque refresh tokens, one {@link RefreshSession} per user and device.
+ * <p>
+ * The client receives 32 random bytes; the database only keeps their SHA-256 digest, so a refresh is a
+ * single lookup on the unique hash index. Recently redeemed sessions are held in a bounded in-memory
+ * front keyed by that digest. A cached session is reloaded when {@link TokenRevocationRegistry} reports a
+ * role change or rename of its user, and every entry is dropped {@code jwt.refresh-session.cache.ttl}
+ * (5 seconds by default) after it was read. That is how long a session ended on another instance, by
+ * logout, logout-all or an admin lock or delete, can still be redeemed here. Expired rows are purged on
+ * a fixed schedule.
+ */
+@Service
+@Slf4j
+public class RefreshTokenService {
+
+  public static final String CACHE_NAME = "auth.refresh-sessions";
+
+  /** Request header with a client-generated id for the installation signing in. */
+  public static final String DEVICE_ID_HEADER = "X-Device-Id";
+
+  static final int TOKEN_BYTES = 32;
+  static final int MAX_DEVICE_LENGTH = 255;
+  static final String UNKNOWN_DEVICE = "unknown";
+
+  private static final int ENCODED_TOKEN_LENGTH = 43;
+  private static final int BULK_DELETE_CHUNK = 1000;
+
+  private final RefreshSessionRepository sessionRepository;
+  private final TokenRevocationRegistry tokenRevocationRegistry;
+  private final long refreshExpirationMillis;
+  private final Cache<String, Session> hotSessions;
+  private final SecureRandom random = new SecureRandom();
+
+  public RefreshTokenService(
+      RefreshSessionRepository sessionRepository,
+      TokenRevocationRegistry tokenRevocationRegistry,
+      @Value("${jwt.refresh-expiration:604800000}") long refreshExpirationMillis, // 7 days default
+      @Value("${jwt.refresh-session.cache.max-size:10000}") long maxCachedSessions,
+      @Value("${jwt.refresh-session.cache.ttl:5s}") Duration cacheTtl,
+      MeterRegistry meterRegistry) {
+
+    this.sessionRepository = sessionRepository;
+    this.tokenRevocationRegistry = tokenRevocationRegistry;
+    this.refreshExpirationMillis = refreshExpirationMillis;
+    this.hotSessions = Caffeine.newBuilder()
+        .maximumSize(maxCachedSessions)
+        .expireAfterWrite(cacheTtl)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, hotSessions, CACHE_NAME);
+  }
+
+  /**
+   * Opens a session for {@code user} and returns the refresh token for it. With a client-supplied
+   * {@code deviceId}, an earlier session of the same user on that device is replaced in the same
+   * transaction; without one, every login gets its own session. The users row is not touched.
+   */
+  @Transactional
+  public String issue(User user, String deviceId) {
+    String deviceLabel = normalizeDevice(deviceId);
+    if (!UNKNOWN_DEVICE.equals(deviceLabel)
+        && sessionRepository.deleteByUserIdAndDevice(user.getId(), deviceLabel) > 0) {
+      hotSessions.asMap().values()
+          .removeIf(s -> s.userId() == user.getId() && s.device().equals(deviceLabel));
+    }
+
+    byte[] tokenBytes = new byte[TOKEN_BYTES];
+    random.nextBytes(tokenBytes);
+    String token = Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
+
+    LocalDateTime now = LocalDateTime.now();
+    sessionRepository.save(RefreshSession.builder()
+        .user(user)
+        .tokenHash(digest(token))
+        .device(deviceLabel)
+        .createdAt(now)
+        .expiresAt(now.plus(Duration.ofMillis(refreshExpirationMillis)))
+        .build());
+    return token;
+  }
+
+  /** Resolves a refresh token to its live session, or empty if it is unknown, revoked or expired. */
+  public Optional<Session> redeem(String token) {
+    if (token == null || token.length() != ENCODED_TOKEN_LENGTH) {
+      return Optional.empty();
+    }
+    byte[] hash = digest(token);
+    String key = HexFormat.of().formatHex(hash);
+
+    Session session = hotSessions.getIfPresent(key);
+    if (session != null && tokenRevocationRegistry.isRevoked(session.username(), session.loadedAt())) {
+      session = null;
+    }
+    if (session == null) {
+      session = sessionRepository.findOwnerByTokenHash(hash).map(Session::of).orElse(null);
+      if (session == null) {
+        hotSessions.invalidate(key);
+        return Optional.empty();
+      }
+      hotSessions.put(key, session);
+    }
+
+    if (session.expiresAtMillis() < System.currentTimeMillis()) {
+      hotSessions.invalidate(key);
+      return Optional.empty();
+    }
+    return Optional.of(session);
+  }
+
+  /** Ends the session a refresh token belongs to; returns whether one existed. */
+  public boolean revoke(String token) {
+    if (token == null || token.length() != ENCODED_TOKEN_LENGTH) {
+      return false;
+    }
+    byte[] hash = digest(token);
+    hotSessions.invalidate(HexFormat.of().formatHex(hash));
+    return sessionRepository.deleteByTokenHash(hash) > 0;
+  }
+
+  /** Ends every session of a user and returns how many there were. */
+  public int revokeAll(Long userId) {
+    hotSessions.asMap().values().removeIf(s -> s.userId() == userId);
+    return sessionRepository.deleteByUserId(userId);
+  }
+
+  /**
+   * Ends every session of the given users with one pass over the cached sessions and one DELETE per
+   * thousand users; returns how many sessions there were.
+   */
+  public int revokeAll(Collection<Long> userIds) {
+    if (userIds.isEmpty()) {
+      return 0;
+    }
+    Set<Long> ids = Set.copyOf(userIds);
+    hotSessions.asMap().values().removeIf(s -> ids.contains(s.userId()));
+    List<Long> remaining = List.copyOf(ids);
+    int revoked = 0;
+    for (int from = 0; from < remaining.size(); from += BULK_DELETE_CHUNK) {
+      revoked += sessionRepository.deleteByUserIdIn(
+          remaining.subList(from, Math.min(remaining.size(), from + BULK_DELETE_CHUNK)));
+    }
+    return revoked;
+  }
+
+  @Scheduled(fixedDelayString = "${jwt.refresh-session.purge-interval-ms:3600000}",
+      initialDelayString = "${jwt.refresh-session.purge-interval-ms:3600000}")
+  public void purgeExpired() {
+    int purged = sessionRepository.deleteExpired(LocalDateTime.now());
+    if (purged > 0) {
+      log.info("Purged {} expired refresh sessions", purged);
+    }
+  }
+
+  static String normalizeDevice(String device) {
+    if (device == null || device.isBlank()) {
+      return UNKNOWN_DEVICE;
+    }
+    String trimmed = device.strip();
+    return trimmed.length() > MAX_DEVICE_LENGTH ? trimmed.substring(0, MAX_DEVICE_LENGTH) : trimmed;
+  }
+
+  private static byte[] digest(String token) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  /**
+   * Owner of a refresh session as of {@code loadedAt} (epoch seconds).
+   */
+  public record Session(long userId, String username, String role, String device, long expiresAtMillis,
+                        long loadedAt) {
+
+    static Session of(RefreshSessionRepository.SessionOwner owner) {
+      return new Session(owner.getUserId(), owner.getUsername(), owner.getRole(), owner.getDevice(),
+          owner.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+          System.currentTimeMillis() / 1000);
+    }
+  }
+}
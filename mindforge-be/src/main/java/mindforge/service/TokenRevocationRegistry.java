@@ -0,0 +1,122 @@
+package mindforge.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import mindforge.model.TokenRevocation;
+import mindforge.repository.TokenRevocationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers users whose outstanding access tokens must no longer be trusted, e.g. after a role change.
+ * <p>
+ * Access tokens carry the role they were issued with, so authorization does not touch the database.
+ * When a role changes, tokens issued before that moment are rejected on this instance right away;
+ * the client then renews its token through {@code /auth/refresh} and receives the current role.
+ * <p>
+ * Revocations are also written to {@code token_revocations}, and every instance polls that table every
+ * {@code jwt.revocation.poll-interval-ms}, so other replicas reject the old tokens within about one
+ * interval. Lookups only read the in-memory map. Each poll reads back {@code jwt.revocation.poll-overlap}
+ * before the previous one, which must cover clock skew between instances and slow transactions.
+ * Entries, here and in the table, are dropped once every token they could match has expired. A failed
+ * poll is logged and counted in {@code auth.token-revocations.poll-errors}.
+ */
+@Component
+@Slf4j
+public class TokenRevocationRegistry {
+
+    private static final long CLEANUP_INTERVAL_MILLIS = 60_000;
+
+    private final ConcurrentHashMap<String, Long> revokedBefore = new ConcurrentHashMap<>();
+    private final TokenRevocationRepository repository;
+    private final long accessTokenLifetimeMillis;
+    private final long pollOverlapMillis;
+    private final Counter pollErrors;
+    private long polledAtMillis;
+    private long lastCleanupMillis;
+
+    public TokenRevocationRegistry(
+            TokenRevocationRepository repository,
+            @Value("${jwt.expiration}") long accessTokenLifetimeMillis,
+            @Value("${jwt.revocation.poll-overlap:60s}") Duration pollOverlap,
+            MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.accessTokenLifetimeMillis = accessTokenLifetimeMillis;
+        this.pollOverlapMillis = pollOverlap.toMillis();
+        this.pollErrors = Counter.builder("auth.token-revocations.poll-errors")
+                .description("Failed reads of revocations made on other instances")
+                .register(meterRegistry);
+    }
+
+    /** Rejects every access token of {@code username} issued before now, on every instance. */
+    public void revoke(String username) {
+        revokeAll(List.of(username));
+    }
+
+    /** {@link #revoke} for many users, with one timestamp, one write and one sweep of stale entries. */
+    public void revokeAll(Collection<String> usernames) {
+        if (usernames.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (String username : usernames) {
+            revokedBefore.merge(username, now, Math::max);
+        }
+        revokedBefore.values().removeIf(revokedAt -> revokedAt < now - accessTokenLifetimeMillis);
+        repository.revoke(usernames, now);
+    }
+
+    /** Picks up revocations written by other instances since the previous poll. */
+    @Scheduled(fixedDelayString = "${jwt.revocation.poll-interval-ms:2000}")
+    public synchronized void poll() {
+        long now = System.currentTimeMillis();
+        long since = Math.max(polledAtMillis - pollOverlapMillis, now - accessTokenLifetimeMillis);
+        List<TokenRevocation> revocations;
+        try {
+            revocations = repository.findRevokedSince(since);
+        } catch (RuntimeException e) {
+            pollErrors.increment();
+            log.warn("Could not read token revocations: {}", e.getMessage());
+            return;
+        }
+        for (TokenRevocation revocation : revocations) {
+            revokedBefore.merge(revocation.getUsername(), revocation.getRevokedAtMs(), Math::max);
+        }
+        polledAtMillis = now;
+        revokedBefore.values().removeIf(revokedAt -> revokedAt < now - accessTokenLifetimeMillis);
+
+        if (now - lastCleanupMillis >= CLEANUP_INTERVAL_MILLIS) {
+            lastCleanupMillis = now;
+            try {
+                int deleted = repository.deleteRevokedBefore(now - accessTokenLifetimeMillis);
+                log.debug("Deleted {} expired token revocations", deleted);
+            } catch (RuntimeException e) {
+                pollErrors.increment();
+                log.warn("Could not delete expired token revocations: {}", e.getMessage());
+            }
+        }
+    }
+
+    public boolean isRevoked(VerifiedToken token) {
+        return isRevoked(token.subject(), token.issuedAt());
+    }
+
+    /**
+     * Tokens are compared at second precision, the resolution of {@code iat}; a token minted in the
+     * same second as the revocation is still accepted so an immediate refresh is not rejected.
+     */
+    public boolean isRevoked(String username, long issuedAtEpochSecond) {
+        if (revokedBefore.isEmpty() || username == null) {
+            return false;
+        }
+        Long revokedAt = revokedBefore.get(username);
+        return revokedAt != null && issuedAtEpochSecond < revokedAt / 1000;
+    }
+}
@@ -0,0 +1,440 @@
+package mindforge.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import mindforge.dto.UserImportReport;
+import mindforge.dto.UserImportReport.RowFailure;
+import mindforge.dto.UserRequestDto;
+import mindforge.model.User;
+import mindforge.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Admin bulk import of users from CSV or NDJSON.
+ * <p>
+ * Input is read as a stream and handled {@code security.user-import.batch-size} rows at a time: rows
+ * failing validation, repeated in the batch or naming an existing user are rejected first, so they cost
+ * no BCrypt work. The rest are hashed in parallel on the {@link PasswordHashingExecutor}, with at most
+ * {@code security.user-import.parallelism} hashes in flight (default: the pool size), and inserted in one
+ * JDBC batch. A rejected row is reported and the import goes on; rows already inserted stay when a later
+ * one fails.
+ * <p>
+ * Imported users get the {@code USER} role.
+ */
+@Service
+@Slf4j
+public class UserImportService {
+
+    public static final int MAX_REPORTED_FAILURES = 1000;
+
+    private static final long REJECTED_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final int MAX_AVATAR_URL_LENGTH = 500;
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final PasswordValidationService passwordValidationService;
+    private final PasswordHashingExecutor hashingExecutor;
+    private final UsernameFilter usernameFilter;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int parallelism;
+
+    public UserImportService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                             PasswordValidationService passwordValidationService,
+                             PasswordHashingExecutor hashingExecutor, UsernameFilter usernameFilter,
+                             ObjectMapper objectMapper,
+                             @Value("${security.user-import.batch-size:500}") int batchSize,
+                             @Value("${security.user-import.parallelism:0}") int parallelism) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.passwordValidationService = passwordValidationService;
+        this.hashingExecutor = hashingExecutor;
+        this.usernameFilter = usernameFilter;
+        this.objectMapper = objectMapper;
+        this.batchSize = Math.max(1, batchSize);
+        this.parallelism = parallelism > 0 ? parallelism : hashingExecutor.poolSize();
+    }
+
+    /**
+     * Imports CSV with a header row naming the {@code username} and {@code password} columns and
+     * optionally {@code email}, {@code firstName}, {@code lastName} and {@code avatarUrl}. Fields may be
+     * quoted as in RFC 4180; empty fields are treated as absent.
+     *
+     * @throws InvalidImportException if the header lacks a required column
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public UserImportReport importCsv(InputStream in) throws IOException {
+        CsvReader csv = new CsvReader(reader(in));
+        List<String> header = csv.next();
+        if (header == null) {
+            return new Report().toDto();
+        }
+        return importRows(new CsvRows(csv, columns(header)));
+    }
+
+    /** Imports one JSON object per line, with the fields of {@link UserRequestDto}. */
+    @PreAuthorize("hasRole('ADMIN')")
+    public UserImportReport importNdjson(InputStream in) throws IOException {
+        return importRows(new NdjsonRows(reader(in)));
+    }
+
+    private UserImportReport importRows(RowSource rows) throws IOException {
+        long started = System.nanoTime();
+        Report report = new Report();
+        Semaphore hashPermits = new Semaphore(parallelism);
+        List<Row> batch = new ArrayList<>(batchSize);
+        for (Row row = rows.next(); row != null; row = rows.next()) {
+            batch.add(row);
+            if (batch.size() == batchSize) {
+                importBatch(batch, hashPermits, report);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            importBatch(batch, hashPermits, report);
+        }
+        log.info("User import: {} imported, {} rejected in {} ms", report.imported, report.failed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return report.toDto();
+    }
+
+    private void importBatch(List<Row> batch, Semaphore hashPermits, Report report) {
+        List<RowFailure> failures = new ArrayList<>();
+
+        Map<String, Row> candidates = new LinkedHashMap<>();
+        for (Row row : batch) {
+            String error = row.error() != null ? row.error() : validate(row.user());
+            if (error == null && candidates.containsKey(row.user().getUsername())) {
+                error = "Duplicate username in import";
+            }
+            if (error != null) {
+                failures.add(failure(row, error));
+            } else {
+                candidates.put(row.user().getUsername(), row);
+            }
+        }
+        if (!candidates.isEmpty()) {
+            for (String existing : userRepository.findExistingUsernames(candidates.keySet())) {
+                Row row = candidates.remove(existing);
+                if (row != null) {
+                    failures.add(failure(row, "Username already exists"));
+                }
+            }
+        }
+
+        List<Row> accepted = new ArrayList<>(candidates.values());
+        List<CompletableFuture<String>> hashes = new ArrayList<>(accepted.size());
+        for (Row row : accepted) {
+            hashes.add(hash(row.user().getPassword(), hashPermits));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Row> hashed = new ArrayList<>(accepted.size());
+        List<User> users = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            Row row = accepted.get(i);
+            try {
+                users.add(toUser(row.user(), hashes.get(i).join(), now));
+                hashed.add(row);
+            } catch (CompletionException e) {
+                failures.add(failure(row, e.getCause() instanceof IllegalArgumentException
+                        ? e.getCause().getMessage() : "Password could not be hashed"));
+            }
+        }
+
+        if (!users.isEmpty()) {
+            // The unique constraints decide; a row skipped here lost a race or reused an email
+            boolean[] inserted = userRepository.insertAllIfAbsent(users);
+            for (int i = 0; i < inserted.length; i++) {
+                if (inserted[i]) {
+                    usernameFilter.add(users.get(i).getUsername());
+                    report.imported++;
+                } else {
+                    failures.add(failure(hashed.get(i), "Username or email already exists"));
+                }
+            }
+        }
+
+        failures.sort(Comparator.comparingLong(RowFailure::row));
+        report.add(failures);
+    }
+
+    private CompletableFuture<String> hash(String password, Semaphore permits) {
+        Supplier<String> work = () -> passwordEncoder.encode(password);
+        permits.acquireUninterruptibly();
+        while (true) {
+            try {
+                return hashingExecutor.submit(work).whenComplete((hash, e) -> permits.release());
+            } catch (RejectedExecutionException e) {
+                // Logins filled the hashing queue; leave them the slot and try again
+                LockSupport.parkNanos(REJECTED_BACKOFF_NANOS);
+            }
+        }
+    }
+
+    private String validate(UserRequestDto user) {
+        String username = user.getUsername();
+        if (username == null || username.isBlank()) {
+            return "Username is required";
+        }
+        if (username.length() > MAX_NAME_LENGTH) {
+            return "Username must be at most " + MAX_NAME_LENGTH + " characters long";
+        }
+        if (tooLong(user.getEmail(), MAX_NAME_LENGTH)
+                || tooLong(user.getFirstName(), MAX_NAME_LENGTH)
+                || tooLong(user.getLastName(), MAX_NAME_LENGTH)
+                || tooLong(user.getAvatarUrl(), MAX_AVATAR_URL_LENGTH)) {
+            return "Profile fields must be at most " + MAX_NAME_LENGTH + " characters long ("
+                    + MAX_AVATAR_URL_LENGTH + " for the avatar URL)";
+        }
+        var passwordValidation = passwordValidationService.validatePassword(user.getPassword());
+        return passwordValidation.isValid() ? null : passwordValidation.getMessage();
+    }
+
+    private static boolean tooLong(String value, int maxLength) {
+        return value != null && value.length() > maxLength;
+    }
+
+    private static User toUser(UserRequestDto row, String passwordHash, LocalDateTime now) {
+        return User.builder()
+                .username(row.getUsername())
+                .password(passwordHash)
+                .role("USER")
+                .email(emptyToNull(row.getEmail()))
+                .firstName(emptyToNull(row.getFirstName()))
+                .lastName(emptyToNull(row.getLastName()))
+                .avatarUrl(emptyToNull(row.getAvatarUrl()))
+                .failedLoginAttempts(0)
+                .accountLocked(false)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static RowFailure failure(Row row, String reason) {
+        return new RowFailure(row.number(), row.user() != null ? row.user().getUsername() : null, reason);
+    }
+
+    private static BufferedReader reader(InputStream in) {
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /** Column index by normalized name: lower case without {@code _}, {@code -} and spaces. */
+    private static Map<String, Integer> columns(List<String> header) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i);
+            if (i == 0 && name.startsWith("\uFEFF")) {
+                name = name.substring(1);
+            }
+            columns.putIfAbsent(name.replaceAll("[_\\-\\s]", "").toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("username") || !columns.containsKey("password")) {
+            throw new InvalidImportException("CSV header must name the username and password columns");
+        }
+        return columns;
+    }
+
+    /** One input row: the user it describes, or why it could not be read. */
+    private record Row(long number, UserRequestDto user, String error) {
+    }
+
+    private interface RowSource {
+
+        /** The next row, or {@code null} at the end of the input. */
+        Row next() throws IOException;
+    }
+
+    private static final class CsvRows implements RowSource {
+
+        private final CsvReader csv;
+        private final Map<String, Integer> columns;
+        private long number;
+
+        CsvRows(CsvReader csv, Map<String, Integer> columns) {
+            this.csv = csv;
+            this.columns = columns;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            List<String> fields;
+            do {
+                fields = csv.next();
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isEmpty());
+
+            long row = ++number;
+            if (csv.malformed()) {
+                return new Row(row, null, "Malformed CSV row: unterminated quoted field");
+            }
+            return new Row(row, UserRequestDto.builder()
+                    .username(field(fields, "username"))
+                    .password(field(fields, "password"))
+                    .email(field(fields, "email"))
+                    .firstName(field(fields, "firstname"))
+                    .lastName(field(fields, "lastname"))
+                    .avatarUrl(field(fields, "avatarurl"))
+                    .build(), null);
+        }
+
+        private String field(List<String> fields, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= fields.size() || fields.get(index).isEmpty()) {
+                return null;
+            }
+            return fields.get(index);
+        }
+    }
+
+    private final class NdjsonRows implements RowSource {
+
+        private final BufferedReader reader;
+        private long number;
+
+        NdjsonRows(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+
+            long row = ++number;
+            try {
+                UserRequestDto user = objectMapper.readValue(line, UserRequestDto.class);
+                return user != null ? new Row(row, user, null) : new Row(row, null, "Malformed JSON row");
+            } catch (JsonProcessingException e) {
+                return new Row(row, null, "Malformed JSON row");
+            }
+        }
+    }
+
+    /**
+     * RFC 4180 records: comma separated, fields optionally in double quotes with {@code ""} for a quote,
+     * line breaks allowed inside quotes. Anything else is taken literally.
+     */
+    static final class CsvReader {
+
+        private final BufferedReader reader;
+        private boolean malformed;
+
+        CsvReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        /** The fields of the next record, or {@code null} at the end of the input. */
+        List<String> next() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            malformed = false;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        malformed = true;
+                        break;
+                    }
+                    if (c == '"') {
+                        c = reader.read();
+                        if (c != '"') {
+                            quoted = false;
+                            continue;
+                        }
+                    }
+                    field.append((char) c);
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        /** Whether the last record ended inside a quoted field. */
+        boolean malformed() {
+            return malformed;
+        }
+    }
+
+    private static final class Report {
+
+        private long imported;
+        private long failed;
+        private final List<RowFailure> failures = new ArrayList<>();
+
+        void add(List<RowFailure> batchFailures) {
+            failed += batchFailures.size();
+            for (RowFailure failure : batchFailures) {
+                if (failures.size() == MAX_REPORTED_FAILURES) {
+                    break;
+                }
+                failures.add(failure);
+            }
+        }
+
+        UserImportReport toDto() {
+            return new UserImportReport(imported, failed, List.copyOf(failures));
+        }
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public static class InvalidImportException extends IllegalArgumentException {
+
+        public InvalidImportException(String message) {
+            super(message);
+        }
+    }
+}
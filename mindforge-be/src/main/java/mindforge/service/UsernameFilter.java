@@ -0,0 +1,253 @@
+package mindforge.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import mindforge.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory counting Bloom filter over all usernames.
+ * <p>
+ * {@link #mightContain} answering {@code false} means the username was not known to this instance
+ * at its last sync. Counters are 4 bits wide, packed sixteen to a {@code long}; a counter that reaches
+ * 15 sticks there, so overflow can only cause false positives. Lookups are lock-free; the rare
+ * mutations are serialized.
+ * <p>
+ * The filter is loaded once the application is ready and answers "maybe" for everything until then.
+ * Names added on this instance apply immediately. Users created or renamed on other instances are
+ * picked up every {@code security.username-filter.sync-interval-ms} by reading the rows whose
+ * {@code updated_at} lies after the previous sync. Ids are no watermark: pooled id blocks, imports and
+ * concurrent transactions commit out of id order. The window reaches back
+ * {@code security.username-filter.sync-overlap} before the previous sync, which must cover clock skew
+ * between instances and the longest transaction writing a user. Reading a name again only raises
+ * counters that nothing ever lowers, so it does not change any answer.
+ * <p>
+ * Names are never removed between rebuilds. Another instance may hold a name this one has not counted
+ * yet, and a decrement here could clear a counter that name still needs. Deleted and renamed-away
+ * names only cost false positives until the full rebuild every
+ * {@code security.username-filter.rebuild-interval-ms} drops them.
+ * <p>
+ * Until a sync runs, a name registered on another instance is missing here. Logins therefore only
+ * trust a miss through {@link #mightContainForLogin} when
+ * {@code security.username-filter.short-circuit-logins} is set, which is only safe for a single
+ * instance.
+ */
+@Component
+@Slf4j
+public class UsernameFilter {
+
+  private static final int COUNTERS_PER_WORD = 16;
+  private static final long COUNTER_MASK = 0xF;
+  private static final int PAGE_SIZE = 5_000;
+
+  private final UserRepository userRepository;
+  private final boolean enabled;
+  private final boolean shortCircuitLogins;
+  private final int counterCount;
+  private final int hashCount;
+  private final Counter definitelyAbsent;
+  private final Counter maybePresent;
+
+  private final Duration syncOverlap;
+
+  private volatile AtomicLongArray counters;
+  private volatile boolean loaded;
+  private List<String> addedDuringRebuild;
+  private LocalDateTime syncedUntil;
+
+  public UsernameFilter(
+      UserRepository userRepository,
+      MeterRegistry meterRegistry,
+      @Value("${security.username-filter.enabled:true}") boolean enabled,
+      @Value("${security.username-filter.expected-usernames:1000000}") int expectedUsernames,
+      @Value("${security.username-filter.false-positive-rate:0.01}") double falsePositiveRate,
+      @Value("${security.username-filter.sync-overlap:60s}") Duration syncOverlap,
+      @Value("${security.username-filter.short-circuit-logins:true}") boolean shortCircuitLogins) {
+
+    this.userRepository = userRepository;
+    this.enabled = enabled;
+    this.shortCircuitLogins = shortCircuitLogins;
+    this.syncOverlap = syncOverlap;
+    double ln2 = Math.log(2);
+    this.counterCount = (int) Math.ceil(-expectedUsernames * Math.log(falsePositiveRate) / (ln2 * ln2));
+    this.hashCount = Math.max(1, (int) Math.round((double) counterCount / expectedUsernames * ln2));
+    this.counters = newCounters();
+    this.definitelyAbsent = lookups(meterRegistry, "absent");
+    this.maybePresent = lookups(meterRegistry, "maybe");
+  }
+
+  private static Counter lookups(MeterRegistry meterRegistry, String result) {
+    return Counter.builder("auth.username-filter.lookups")
+        .description("Username filter lookups; absent ones skipped the database")
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+
+  /** {@code false} only if no user with this name existed as of the last sync or was added here since. */
+  public boolean mightContain(String username) {
+    if (!enabled || !loaded || username == null) {
+      return true;
+    }
+    AtomicLongArray current = counters;
+    long hash = hash(username);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    for (int i = 0; i < hashCount; i++) {
+      if (counterAt(current, Math.floorMod(h1 + i * h2, counterCount)) == 0) {
+        definitelyAbsent.increment();
+        return false;
+      }
+    }
+    maybePresent.increment();
+    return true;
+  }
+
+  /**
+   * {@link #mightContain} for a login, which may only be refused without the database when no other
+   * instance can have registered the name since the last sync.
+   */
+  public boolean mightContainForLogin(String username) {
+    return !shortCircuitLogins || mightContain(username);
+  }
+
+  public synchronized void add(String username) {
+    if (!enabled) {
+      return;
+    }
+    increment(counters, username);
+    if (addedDuringRebuild != null) {
+      addedDuringRebuild.add(username);
+    }
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    try {
+      rebuild();
+    } catch (RuntimeException e) {
+      // Until a rebuild succeeds every lookup answers "maybe" and falls through to the database
+      log.warn("Could not load username filter: {}", e.getMessage());
+    }
+  }
+
+  /** Rebuilds the filter from the users table without blocking lookups. */
+  @Scheduled(fixedDelayString = "${security.username-filter.rebuild-interval-ms:3600000}",
+      initialDelayString = "${security.username-filter.rebuild-interval-ms:3600000}")
+  public void rebuild() {
+    if (!enabled) {
+      return;
+    }
+    synchronized (this) {
+      addedDuringRebuild = new ArrayList<>();
+    }
+    // Rows written from here on may be missed by the id-ordered scan; the next sync reads them
+    LocalDateTime startedAt = LocalDateTime.now();
+    AtomicLongArray fresh = newCounters();
+    long lastId = 0;
+    try {
+      List<UserRepository.UsernameEntry> page;
+      while (!(page = userRepository.findUsernamesAfter(lastId, PageRequest.ofSize(PAGE_SIZE))).isEmpty()) {
+        for (UserRepository.UsernameEntry entry : page) {
+          increment(fresh, entry.getUsername());
+        }
+        lastId = page.get(page.size() - 1).getId();
+      }
+      synchronized (this) {
+        addedDuringRebuild.forEach(username -> increment(fresh, username));
+        counters = fresh;
+        if (syncedUntil == null || startedAt.isBefore(syncedUntil)) {
+          syncedUntil = startedAt;
+        }
+        loaded = true;
+      }
+    } finally {
+      synchronized (this) {
+        addedDuringRebuild = null;
+      }
+    }
+    log.debug("Username filter rebuilt up to user id {}", lastId);
+  }
+
+  /** Adds users created or renamed since the last sync, including those written on other instances. */
+  @Scheduled(fixedDelayString = "${security.username-filter.sync-interval-ms:5000}")
+  public void syncNewUsernames() {
+    if (!enabled || !loaded) {
+      return;
+    }
+    LocalDateTime startedAt = LocalDateTime.now();
+    LocalDateTime afterTime;
+    synchronized (this) {
+      afterTime = syncedUntil.minus(syncOverlap);
+    }
+    long afterId = 0;
+    List<UserRepository.UsernameChange> page;
+    while (!(page = userRepository.findUsernamesUpdatedAfter(afterTime, afterId, PageRequest.ofSize(PAGE_SIZE)))
+        .isEmpty()) {
+      for (UserRepository.UsernameChange change : page) {
+        add(change.getUsername());
+      }
+      UserRepository.UsernameChange last = page.get(page.size() - 1);
+      afterTime = last.getUpdatedAt();
+      afterId = last.getId();
+    }
+    synchronized (this) {
+      syncedUntil = startedAt;
+    }
+  }
+
+  private AtomicLongArray newCounters() {
+    return new AtomicLongArray((counterCount + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD);
+  }
+
+  private void increment(AtomicLongArray target, String username) {
+    long hash = hash(username);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    for (int i = 0; i < hashCount; i++) {
+      int index = Math.floorMod(h1 + i * h2, counterCount);
+      int word = index / COUNTERS_PER_WORD;
+      int shift = (index % COUNTERS_PER_WORD) * 4;
+      while (true) {
+        long current = target.get(word);
+        long value = (current >>> shift) & COUNTER_MASK;
+        if (value == COUNTER_MASK) {
+          break;
+        }
+        if (target.compareAndSet(word, current, current + (1L << shift))) {
+          break;
+        }
+      }
+    }
+  }
+
+  private static long counterAt(AtomicLongArray target, int index) {
+    return (target.get(index / COUNTERS_PER_WORD) >>> ((index % COUNTERS_PER_WORD) * 4)) & COUNTER_MASK;
+  }
+
+  /** 64-bit FNV-1a over the UTF-16 code units, finished with the MurmurHash3 mixer. */
+  private static long hash(String username) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < username.length(); i++) {
+      h ^= username.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -0,0 +1,29 @@
+package mindforge.service;
+
+import java.time.Instant;
+
+/**
+ * Claims of an access token whose signature and validity window have been checked.
+ *
+ * @param subject   username the token was issued for
+ * @param userId    {@code uid} claim, {@code null} for tokens issued without one
+ * @param role      {@code role} claim, {@code null} for tokens issued without one
+ * @param issuedAt  {@code iat} in epoch seconds, {@code 0} when the claim is absent
+ * @param expiresAt {@code exp} in epoch seconds, {@link Long#MAX_VALUE} when the claim is absent
+ */
+public record VerifiedToken(String subject, Long userId, String role, long issuedAt, long expiresAt) {
+
+  public static final long NO_EXPIRY = Long.MAX_VALUE;
+
+  public Instant issuedAtInstant() {
+    return Instant.ofEpochSecond(issuedAt);
+  }
+
+  public Instant expiresAtInstant() {
+    return expiresAt == NO_EXPIRY ? Instant.MAX : Instant.ofEpochSecond(expiresAt);
+  }
+
+  public boolean isExpired(long nowMillis) {
+    return expiresAt != NO_EXPIRY && nowMillis > expiresAt * 1000L;
+  }
+}
@@ -0,0 +1,156 @@
+package mindforge.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of verified tokens keyed by the SHA-256 digest of the compact token.
+ * <p>
+ * Entries expire at the token's own {@code exp}, and a hit is re-checked against the wall clock
+ * before it is returned, so an expired token is never served. Hit, miss and eviction counts are
+ * published as the {@code jwt.verified-tokens} cache metrics.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    public static final String CACHE_NAME = "jwt.verified-tokens";
+
+    private final Cache<TokenDigest, VerifiedToken> cache;
+    private final ThreadLocal<Hasher> hasher = ThreadLocal.withInitial(Hasher::new);
+
+    public VerifiedTokenCache(
+            @Value("${jwt.cache.enabled:true}") boolean enabled,
+            @Value("${jwt.cache.max-size:10000}") long maxSize,
+            MeterRegistry meterRegistry) {
+
+        if (!enabled) {
+            this.cache = null;
+            return;
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    private VerifiedTokenCache() {
+        this.cache = null;
+    }
+
+    /** A cache that never stores anything, for {@link JwtService} instances created outside Spring. */
+    public static VerifiedTokenCache disabled() {
+        return new VerifiedTokenCache();
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * @return the digest to look the token up with, or {@code null} if the token must not be cached
+     */
+    TokenDigest keyFor(String token) {
+        if (cache == null || token == null || token.isEmpty() || token.length() > JwtVerifier.MAX_TOKEN_LENGTH) {
+            return null;
+        }
+        return hasher.get().digest(token);
+    }
+
+    VerifiedToken get(TokenDigest key, long nowMillis) {
+        if (key == null) {
+            return null;
+        }
+        VerifiedToken cached = cache.getIfPresent(key);
+        if (cached != null && cached.isExpired(nowMillis)) {
+            cache.invalidate(key);
+            return null;
+        }
+        return cached;
+    }
+
+    void put(TokenDigest key, VerifiedToken token) {
+        if (key != null && token.expiresAt() != VerifiedToken.NO_EXPIRY) {
+            cache.put(key, token);
+        }
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    record TokenDigest(long h0, long h1, long h2, long h3) {
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<TokenDigest, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(TokenDigest key, VerifiedToken value, long currentTime) {
+            long remainingMillis = value.expiresAt() * 1000L - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private static final class Hasher {
+        private final MessageDigest sha256;
+        private final byte[] input = new byte[JwtVerifier.MAX_TOKEN_LENGTH];
+        private final byte[] output = new byte[32];
+
+        Hasher() {
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        TokenDigest digest(String token) {
+            int length = token.length();
+            for (int i = 0; i < length; i++) {
+                char c = token.charAt(i);
+                if (c > 127) {
+                    return null; // never a valid compact JWS, and must not alias an ASCII token
+                }
+                input[i] = (byte) c;
+            }
+            sha256.update(input, 0, length);
+            try {
+                sha256.digest(output, 0, output.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            return new TokenDigest(readLong(0), readLong(8), readLong(16), readLong(24));
+        }
+
+        private long readLong(int offset) {
+            long value = 0;
+            for (int i = offset; i < offset + 8; i++) {
+                value = (value << 8) | (output[i] & 0xFF);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset mindforge:index-users-updated-at dbms:postgresql runInTransaction:false
+-- Serves UsernameFilter's sync, which pages through recently written users by (updated_at, id)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_updated_at ON users (updated_at, id);
@@ -0,0 +1,31 @@
+package mindforge.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BCryptStrengthCalibratorTest {
+
+  /** Simulated machine on which cost 10 takes 20 ms and every step doubles it. */
+  private static long simulatedNanos(int strength) {
+    return Duration.ofMillis(20).toNanos() << (strength - 10);
+  }
+
+  @Test
+  void calibrate_picksHighestStrengthWithinBudget() {
+    assertThat(BCryptStrengthCalibrator.calibrate(Duration.ofMillis(80), BCryptStrengthCalibratorTest::simulatedNanos))
+        .isEqualTo(12);
+    assertThat(BCryptStrengthCalibrator.calibrate(Duration.ofMillis(79), BCryptStrengthCalibratorTest::simulatedNanos))
+        .isEqualTo(11);
+  }
+
+  @Test
+  void calibrate_staysWithinBounds() {
+    assertThat(BCryptStrengthCalibrator.calibrate(Duration.ofMillis(1), BCryptStrengthCalibratorTest::simulatedNanos))
+        .isEqualTo(BCryptStrengthCalibrator.MIN_STRENGTH);
+    assertThat(BCryptStrengthCalibrator.calibrate(Duration.ofSeconds(60), BCryptStrengthCalibratorTest::simulatedNanos))
+        .isEqualTo(BCryptStrengthCalibrator.MAX_STRENGTH);
+  }
+}
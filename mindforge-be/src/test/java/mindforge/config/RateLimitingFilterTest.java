@@ -0,0 +1,124 @@
+package mindforge.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mindforge.service.RateLimitingService;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimitingFilterTest {
+
+  private static final List<RateLimitProperties.Policy> POLICIES = List.of(
+      new RateLimitProperties.Policy("probes", List.of("/api/health", "/actuator/health/**"), List.of(), 0, null,
+          null, true),
+      new RateLimitProperties.Policy("credentials", List.of("/auth/login", "/auth/register"), List.of("POST"), 2,
+          null, null, false),
+      new RateLimitProperties.Policy("reads", List.of("/api/**"), List.of("GET"), 3, Duration.ofMinutes(1), null,
+          false),
+      new RateLimitProperties.Policy("project", List.of("/api/projects/{id}"), List.of(), 100, null, null, false));
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final RateLimitingFilter filter = new RateLimitingFilter(
+      new RateLimitingService("sliding-window", 1024, "deny"), new RateLimitProperties(true, 5, POLICIES),
+      meterRegistry);
+
+  @Test
+  void most_specific_pattern_and_method_decide_the_policy() {
+    assertThat(filter.policyFor("GET", "/api/health").name()).isEqualTo("probes");
+    assertThat(filter.policyFor("GET", "/actuator/health/liveness").name()).isEqualTo("probes");
+    assertThat(filter.policyFor("POST", "/auth/login").name()).isEqualTo("credentials");
+    assertThat(filter.policyFor("GET", "/auth/login").name()).isEqualTo("default");
+    assertThat(filter.policyFor("GET", "/api/projects/public").name()).isEqualTo("project");
+    assertThat(filter.policyFor("GET", "/api/projects").name()).isEqualTo("reads");
+    assertThat(filter.policyFor("GET", "/api/admin/users/7").name()).isEqualTo("reads");
+    assertThat(filter.policyFor("DELETE", "/api/admin/users/7").name()).isEqualTo("default");
+  }
+
+  @Test
+  void probes_are_never_limited() throws Exception {
+    for (int i = 0; i < 20; i++) {
+      assertThat(status("GET", "/api/health", "10.0.0.1")).isEqualTo(200);
+    }
+  }
+
+  @Test
+  void routes_of_one_policy_share_a_budget_per_client() throws Exception {
+    assertThat(status("GET", "/api/admin/users/1", "10.0.0.2")).isEqualTo(200);
+    assertThat(status("GET", "/api/admin/users/2", "10.0.0.2")).isEqualTo(200);
+    assertThat(status("GET", "/api/admin/users/3", "10.0.0.2")).isEqualTo(200);
+    assertThat(status("GET", "/api/admin/users/4", "10.0.0.2")).isEqualTo(429);
+    assertThat(status("GET", "/api/admin/users/4", "10.0.0.3")).isEqualTo(200);
+
+    assertThat(status("POST", "/auth/login", "10.0.0.2")).isEqualTo(200);
+    assertThat(status("POST", "/auth/register", "10.0.0.2")).isEqualTo(200);
+    assertThat(status("POST", "/auth/login", "10.0.0.2")).isEqualTo(429);
+  }
+
+  @Test
+  void limited_routes_report_their_budget_and_when_to_retry() throws Exception {
+    MockHttpServletResponse first = perform("POST", "/auth/login", "10.0.0.4");
+    assertThat(first.getHeader("X-RateLimit-Limit")).isEqualTo("2");
+    assertThat(first.getHeader("X-RateLimit-Remaining")).isEqualTo("1");
+    assertThat(first.getHeader("Retry-After")).isNull();
+
+    assertThat(perform("POST", "/auth/login", "10.0.0.4").getHeader("X-RateLimit-Remaining")).isEqualTo("0");
+
+    MockHttpServletResponse denied = perform("POST", "/auth/login", "10.0.0.4");
+    assertThat(denied.getStatus()).isEqualTo(429);
+    assertThat(denied.getHeader("X-RateLimit-Remaining")).isEqualTo("0");
+    assertThat(Long.parseLong(denied.getHeader("Retry-After"))).isBetween(1L, 120L);
+
+    MockHttpServletResponse probe = perform("GET", "/api/health", "10.0.0.4");
+    assertThat(probe.getHeader("X-RateLimit-Limit")).isNull();
+  }
+
+  @Test
+  void decisions_and_tracked_keys_are_published_per_policy() throws Exception {
+    perform("POST", "/auth/login", "10.0.0.5");
+    perform("POST", "/auth/login", "10.0.0.5");
+    perform("POST", "/auth/login", "10.0.0.5");
+    perform("POST", "/auth/login", "10.0.0.6");
+
+    assertThat(meterRegistry.get("http.rate-limit.requests")
+        .tags("policy", "credentials", "result", "allowed").counter().count()).isEqualTo(3);
+    assertThat(meterRegistry.get("http.rate-limit.requests")
+        .tags("policy", "credentials", "result", "denied").counter().count()).isEqualTo(1);
+    assertThat(meterRegistry.find("http.rate-limit.requests").tag("policy", "probes").counter()).isNull();
+  }
+
+  @Test
+  void forwarded_address_is_keyed_without_surrounding_spaces() {
+    MockHttpServletRequest spaced = new MockHttpServletRequest();
+    spaced.addHeader("X-Forwarded-For", "  203.0.113.9 , 10.0.0.1");
+    MockHttpServletRequest plain = new MockHttpServletRequest();
+    plain.addHeader("X-Real-IP", "203.0.113.9");
+
+    assertThat(RateLimitingFilter.clientKey(spaced)).isEqualTo(RateLimitingFilter.clientKey(plain));
+  }
+
+  @Test
+  void double_wildcard_must_end_the_pattern() {
+    RoutePolicyMatcher<String> matcher = new RoutePolicyMatcher<>();
+    assertThatThrownBy(() -> matcher.add("/api/**/users", List.of(), "x"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private int status(String method, String path, String clientIp) throws Exception {
+    return perform(method, path, clientIp).getStatus();
+  }
+
+  private MockHttpServletResponse perform(String method, String path, String clientIp) throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+    request.setRemoteAddr(clientIp);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request, response, new MockFilterChain());
+    return response;
+  }
+}
@@ -0,0 +1,93 @@
+package mindforge.test;
+
+import mindforge.dto.UserRequestDto;
+import mindforge.dto.UserResponseDto;
+import mindforge.repository.UserRepository;
+import mindforge.repository.UserRepositoryCustom.LoginAttemptState;
+import mindforge.service.AuthenticationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "security.account-lockout.max-attempts=1000")
+@ActiveProfiles("test")
+@TestPropertySource(properties = "security.login-state.write-behind.enabled=false")
+class AccountLockoutIntegrationTests {
+
+  @Autowired
+  private AuthenticationService authService;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Test
+  void parallel_failed_logins_are_all_counted() throws Exception {
+    int attempts = 16;
+    authService.register(UserRequestDto.builder().username("bruteforced").password("StrongPass123").build());
+    UserRequestDto wrongPassword = UserRequestDto.builder().username("bruteforced").password("WrongPass123").build();
+
+    ExecutorService pool = Executors.newFixedThreadPool(attempts);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (int i = 0; i < attempts; i++) {
+      results.add(pool.submit(() -> {
+        start.await();
+        return authService.login(wrongPassword).isPresent();
+      }));
+    }
+    start.countDown();
+    for (Future<Boolean> result : results) {
+      assertThat(result.get(60, TimeUnit.SECONDS)).isFalse();
+    }
+    pool.shutdown();
+
+    Integer counted = jdbcTemplate.queryForObject(
+        "SELECT failed_login_attempts FROM users WHERE username = 'bruteforced'", Integer.class);
+    assertThat(counted).isEqualTo(attempts);
+  }
+
+  @Test
+  void failed_logins_lock_at_threshold_and_success_resets() {
+    UserResponseDto user = authService.register(
+        UserRequestDto.builder().username("lockme").password("StrongPass123").build());
+    LocalDateTime now = LocalDateTime.now().withNano(0);
+    LocalDateTime lockUntil = now.plusMinutes(30);
+
+    LoginAttemptState first = userRepository.recordFailedLogin(user.getId(), 2, lockUntil, now).orElseThrow();
+    assertThat(first.failedLoginAttempts()).isEqualTo(1);
+    assertThat(first.accountLocked()).isFalse();
+
+    LoginAttemptState second = userRepository.recordFailedLogin(user.getId(), 2, lockUntil, now).orElseThrow();
+    assertThat(second.failedLoginAttempts()).isEqualTo(2);
+    assertThat(second.accountLocked()).isTrue();
+    assertThat(second.lockedUntil()).isEqualTo(lockUntil);
+
+    // Still locked: a correct password is refused and the lock stays
+    assertThat(userRepository.recordSuccessfulLogin(user.getId(), now)).isFalse();
+    assertThat(authService.login(UserRequestDto.builder().username("lockme").password("StrongPass123").build()))
+        .isEmpty();
+
+    // Once the lock has expired it is cleared and the next success resets the counter
+    assertThat(userRepository.unlockIfExpired(user.getId(), lockUntil.plusSeconds(1))).isTrue();
+    assertThat(userRepository.recordSuccessfulLogin(user.getId(), lockUntil.plusSeconds(1))).isTrue();
+    assertThat(jdbcTemplate.queryForObject(
+        "SELECT failed_login_attempts FROM users WHERE id = ?", Integer.class, user.getId())).isZero();
+  }
+}
@@ -0,0 +1,68 @@
+package mindforge.test;
+
+import mindforge.dto.UserRequestDto;
+import mindforge.service.AuthenticationService;
+import mindforge.service.LoginStateStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The parallel-failure case of {@link AccountLockoutIntegrationTests} with failures counted in
+ * {@link LoginStateStore} and written back by its flush.
+ */
+@SpringBootTest(properties = "security.account-lockout.max-attempts=1000")
+@ActiveProfiles("test")
+@TestPropertySource(properties = "security.login-state.write-behind.enabled=true")
+class AccountLockoutWriteBehindIntegrationTests {
+
+  @Autowired
+  private AuthenticationService authService;
+
+  @Autowired
+  private LoginStateStore loginStateStore;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Test
+  void parallel_failed_logins_are_all_counted_after_flush() throws Exception {
+    int attempts = 16;
+    authService.register(UserRequestDto.builder().username("bruteforced-wb").password("StrongPass123").build());
+    UserRequestDto wrongPassword = UserRequestDto.builder().username("bruteforced-wb").password("WrongPass123")
+        .build();
+
+    ExecutorService pool = Executors.newFixedThreadPool(attempts);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (int i = 0; i < attempts; i++) {
+      results.add(pool.submit(() -> {
+        start.await();
+        return authService.login(wrongPassword).isPresent();
+      }));
+    }
+    start.countDown();
+    for (Future<Boolean> result : results) {
+      assertThat(result.get(60, TimeUnit.SECONDS)).isFalse();
+    }
+    pool.shutdown();
+    loginStateStore.flush();
+
+    Integer counted = jdbcTemplate.queryForObject(
+        "SELECT failed_login_attempts FROM users WHERE username = 'bruteforced-wb'", Integer.class);
+    assertThat(counted).isEqualTo(attempts);
+  }
+}
@@ -0,0 +1,188 @@
+package mindforge.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mindforge.dto.BulkActionResult;
+import mindforge.dto.UserRequestDto;
+import mindforge.dto.UserSelectionDto;
+import mindforge.model.Project;
+import mindforge.model.User;
+import mindforge.repository.ProjectRepository;
+import mindforge.repository.UserRepository;
+import mindforge.repository.UserRepositoryCustom;
+import mindforge.service.AdminService;
+import mindforge.service.AuthenticationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class AdminBulkOperationsIntegrationTests {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private AdminService adminService;
+
+  @Autowired
+  private AuthenticationService authService;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private ProjectRepository projectRepository;
+
+  private Long callerId;
+  private String callerToken;
+
+  @BeforeEach
+  void signInAdmin() {
+    String caller = "bulk-admin-" + UUID.randomUUID();
+    callerId = register(caller);
+    authService.updateUserRole(caller, "ADMIN");
+    callerToken = authService.loginWithJwt(credentials(caller)).orElseThrow();
+  }
+
+  @Test
+  void locking_by_ids_blocks_logins_and_revokes_refresh_tokens() throws Exception {
+    Long first = register("bulk-lock-1");
+    Long second = register("bulk-lock-2");
+    String refreshToken = authService.loginWithTokens(credentials("bulk-lock-1"), "web").orElseThrow()
+        .getRefreshToken();
+
+    BulkActionResult result = bulk("lock", UserSelectionDto.builder().userIds(List.of(first, second, -1L)).build());
+
+    assertThat(result.affected()).isEqualTo(2);
+    assertThat(result.userIds()).containsExactly(first, second);
+    User locked = userRepository.findById(first).orElseThrow();
+    assertThat(locked.getAccountLocked()).isTrue();
+    assertThat(locked.getLockedUntil()).isNull();
+    assertThat(authService.login(credentials("bulk-lock-2"))).isEmpty();
+    assertThat(authService.refreshToken(refreshToken)).isEmpty();
+  }
+
+  @Test
+  void search_filter_selects_users_for_lock_and_unlock() throws Exception {
+    register("bulk-filter-a");
+    register("bulk-filter-b");
+    register("bulk-unfiltered");
+
+    UserSelectionDto selection = UserSelectionDto.builder().search("BULK-FILTER-").role("USER").build();
+    assertThat(bulk("lock", selection).affected()).isEqualTo(2);
+    assertThat(userRepository.findByUsername("bulk-unfiltered").orElseThrow().getAccountLocked()).isFalse();
+    assertThat(authService.login(credentials("bulk-filter-a"))).isEmpty();
+
+    assertThat(bulk("unlock", selection).affected()).isEqualTo(2);
+    assertThat(authService.login(credentials("bulk-filter-a"))).isPresent();
+  }
+
+  @Test
+  void role_change_counts_only_users_whose_role_changed() {
+    Long user = register("bulk-role-user");
+    Long admin = register("bulk-role-admin");
+    authService.updateUserRole("bulk-role-admin", "ADMIN");
+
+    BulkActionResult result = adminService.updateUserRoles(
+        UserSelectionDto.builder().userIds(List.of(user, admin)).build(), "ADMIN", callerId);
+
+    assertThat(result.userIds()).containsExactly(user);
+    assertThat(userRepository.findById(user).orElseThrow().getRole()).isEqualTo("ADMIN");
+  }
+
+  @Test
+  void lock_and_role_change_never_apply_to_the_calling_admin() throws Exception {
+    Long other = register("bulk-self-other");
+
+    BulkActionResult locked = bulk("lock", UserSelectionDto.builder().userIds(List.of(callerId, other)).build());
+    assertThat(locked.userIds()).containsExactly(other);
+    assertThat(userRepository.findById(callerId).orElseThrow().getAccountLocked()).isFalse();
+
+    BulkActionResult demoted = adminService.updateUserRoles(
+        UserSelectionDto.builder().search("bulk-admin-").role("ADMIN").build(), "USER", callerId);
+    assertThat(demoted.userIds()).doesNotContain(callerId);
+    assertThat(userRepository.findById(callerId).orElseThrow().getRole()).isEqualTo("ADMIN");
+  }
+
+  @Test
+  void selection_over_the_cap_changes_nothing() {
+    register("bulk-cap-1");
+    register("bulk-cap-2");
+    LocalDateTime now = LocalDateTime.now();
+
+    UserRepositoryCustom.UserSelection selection =
+        new UserRepositoryCustom.UserSelection(null, null, UserRepository.containsPattern("bulk-cap-"), null, 1);
+    assertThatThrownBy(() -> userRepository.lockAccounts(selection, now))
+        .isInstanceOf(UserRepositoryCustom.SelectionTooLargeException.class);
+    assertThat(userRepository.findByUsername("bulk-cap-1").orElseThrow().getAccountLocked()).isFalse();
+    assertThat(userRepository.findByUsername("bulk-cap-2").orElseThrow().getAccountLocked()).isFalse();
+
+    UserRepositoryCustom.UserSelection wider =
+        new UserRepositoryCustom.UserSelection(null, null, UserRepository.containsPattern("bulk-cap-"), null, 2);
+    assertThat(userRepository.lockAccounts(wider, now)).hasSize(2);
+  }
+
+  @Test
+  void delete_skips_admins_and_project_owners() throws Exception {
+    Long plain = register("bulk-delete-plain");
+    Long admin = register("bulk-delete-admin");
+    authService.updateUserRole("bulk-delete-admin", "ADMIN");
+    Long owner = register("bulk-delete-owner");
+    LocalDateTime now = LocalDateTime.now();
+    projectRepository.save(Project.builder().name("Kept").owner(userRepository.findById(owner).orElseThrow())
+        .isPublic(true).createdAt(now).updatedAt(now).build());
+
+    BulkActionResult result = bulk("delete", UserSelectionDto.builder().userIds(List.of(plain, admin, owner)).build());
+
+    assertThat(result.userIds()).containsExactly(plain);
+    assertThat(userRepository.existsById(plain)).isFalse();
+    assertThat(userRepository.existsById(admin)).isTrue();
+    assertThat(userRepository.existsById(owner)).isTrue();
+    assertThat(authService.findByUsername("bulk-delete-plain")).isEmpty();
+  }
+
+  @Test
+  void empty_selection_is_rejected() throws Exception {
+    mockMvc.perform(post("/api/admin/users/bulk/delete")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"search\":\"  \"}"))
+        .andExpect(status().isBadRequest());
+  }
+
+  private Long register(String username) {
+    return authService.register(credentials(username)).getId();
+  }
+
+  private static UserRequestDto credentials(String username) {
+    return UserRequestDto.builder().username(username).password("StrongPass123").build();
+  }
+
+  private BulkActionResult bulk(String action, UserSelectionDto selection) throws Exception {
+    String json = mockMvc.perform(post("/api/admin/users/bulk/" + action)
+            .header("Authorization", "Bearer " + callerToken)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(selection)))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+    return objectMapper.readValue(json, BulkActionResult.class);
+  }
+}
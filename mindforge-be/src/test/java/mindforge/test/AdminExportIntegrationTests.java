@@ -0,0 +1,118 @@
+package mindforge.test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mindforge.dto.CursorPage;
+import mindforge.dto.UserRequestDto;
+import mindforge.model.Project;
+import mindforge.model.User;
+import mindforge.repository.ProjectRepository;
+import mindforge.repository.UserRepository;
+import mindforge.service.AuthenticationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static mindforge.test.AsyncRequests.performAsync;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class AdminExportIntegrationTests {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private AuthenticationService authService;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private ProjectRepository projectRepository;
+
+  @Test
+  void users_are_streamed_as_one_json_object_per_line_with_search_filters() throws Exception {
+    for (String username : List.of("export-b", "export-a", "unrelated-export")) {
+      authService.register(UserRequestDto.builder().username(username).password("StrongPass123").build());
+    }
+
+    List<JsonNode> lines = exportLines("/api/admin/users/export?search=EXPORT-&role=USER");
+
+    assertThat(lines).extracting(line -> line.get("username").asText()).containsExactly("export-b", "export-a");
+    assertThat(lines.get(0).get("role").asText()).isEqualTo("USER");
+    assertThat(lines.get(0).has("password")).isFalse();
+    assertThat(exportLines("/api/admin/users/export?search=no-such-user-anywhere")).isEmpty();
+  }
+
+  @Test
+  void user_listing_searches_usernames_a_page_at_a_time() throws Exception {
+    for (String username : List.of("listed-a", "unlisted", "listed-b", "listed-c")) {
+      authService.register(UserRequestDto.builder().username(username).password("StrongPass123").build());
+    }
+
+    MvcResult first = mockMvc.perform(get("/api/admin/users").param("search", "LISTED-").param("limit", "2"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[*].username").value(contains("listed-a", "listed-b")))
+        .andReturn();
+    String cursor = first.getResponse().getHeader(CursorPage.NEXT_CURSOR_HEADER);
+    assertThat(cursor).isNotBlank();
+
+    MvcResult last = mockMvc.perform(get("/api/admin/users").param("search", "LISTED-").param("cursor", cursor))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[*].username").value(contains("listed-c")))
+        .andReturn();
+    assertThat(last.getResponse().getHeader(CursorPage.NEXT_CURSOR_HEADER)).isNull();
+  }
+
+  @Test
+  void projects_are_streamed_with_their_owner() throws Exception {
+    authService.register(UserRequestDto.builder().username("project-exporter").password("StrongPass123").build());
+    User owner = userRepository.findByUsername("project-exporter").orElseThrow();
+    LocalDateTime now = LocalDateTime.now();
+    projectRepository.save(Project.builder().name("Exported").owner(owner).isPublic(true)
+        .createdAt(now).updatedAt(now).build());
+
+    List<JsonNode> lines = exportLines("/api/admin/projects/export");
+
+    assertThat(lines).anySatisfy(line -> {
+      assertThat(line.get("name").asText()).isEqualTo("Exported");
+      assertThat(line.get("ownerUsername").asText()).isEqualTo("project-exporter");
+      assertThat(line.get("ownerId").asLong()).isEqualTo(owner.getId());
+    });
+  }
+
+  private List<JsonNode> exportLines(String url) throws Exception {
+    String body = performAsync(mockMvc, get(url))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+        .andReturn().getResponse().getContentAsString();
+    List<JsonNode> lines = new ArrayList<>();
+    for (String line : body.split("\n")) {
+      if (!line.isEmpty()) {
+        lines.add(objectMapper.readTree(line));
+      }
+    }
+    assertThat(body).satisfiesAnyOf(b -> assertThat(b).isEmpty(), b -> assertThat(b).endsWith("\n"));
+    return lines;
+  }
+}
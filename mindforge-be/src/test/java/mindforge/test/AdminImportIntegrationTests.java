@@ -0,0 +1,105 @@
+package mindforge.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mindforge.dto.UserImportReport;
+import mindforge.dto.UserImportReport.RowFailure;
+import mindforge.dto.UserRequestDto;
+import mindforge.model.User;
+import mindforge.repository.UserRepository;
+import mindforge.service.AuthenticationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Small batches, so a run spans several of them
+@SpringBootTest(properties = "security.user-import.batch-size=3")
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class AdminImportIntegrationTests {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private AuthenticationService authService;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Test
+  void csv_rows_are_imported_and_rejected_rows_reported() throws Exception {
+    authService.register(UserRequestDto.builder().username("existing-importer").password("StrongPass123").build());
+    String csv = """
+        username,password,email,first_name
+        import-a,StrongPass123,a@import.test,Ann
+        "import-b","Strong,Pass""123",,
+        import-weak,short,,
+
+        existing-importer,StrongPass123,,
+        import-dup,StrongPass123,,
+        import-dup,StrongPass123,,
+        ,StrongPass123,,
+        """;
+
+    UserImportReport report = importUsers(new MediaType("text", "csv"), csv);
+
+    assertThat(report.imported()).isEqualTo(3);
+    assertThat(report.failed()).isEqualTo(4);
+    assertThat(report.failures()).extracting(RowFailure::row).containsExactly(3L, 4L, 6L, 7L);
+    assertThat(report.failures()).extracting(RowFailure::reason).containsExactly(
+        "Password must be at least 8 characters long", "Username already exists", "Duplicate username in import",
+        "Username is required");
+
+    User imported = userRepository.findByUsername("import-a").orElseThrow();
+    assertThat(imported.getEmail()).isEqualTo("a@import.test");
+    assertThat(imported.getFirstName()).isEqualTo("Ann");
+    assertThat(imported.getRole()).isEqualTo("USER");
+    assertThat(authService.login(UserRequestDto.builder().username("import-b").password("Strong,Pass\"123").build()))
+        .isPresent();
+  }
+
+  @Test
+  void ndjson_rows_are_imported_with_malformed_lines_and_taken_emails_reported() throws Exception {
+    String ndjson = """
+        {"username":"ndjson-a","password":"StrongPass123","email":"shared@import.test"}
+        not json
+        {"username":"ndjson-b","password":"StrongPass123","email":"shared@import.test"}
+        {"username":"ndjson-c","password":"StrongPass123"}
+        """;
+
+    UserImportReport report = importUsers(MediaType.APPLICATION_NDJSON, ndjson);
+
+    assertThat(report.imported()).isEqualTo(2);
+    assertThat(report.failures()).containsExactly(
+        new RowFailure(2, null, "Malformed JSON row"),
+        new RowFailure(3, "ndjson-b", "Username or email already exists"));
+    assertThat(userRepository.existsByUsername("ndjson-c")).isTrue();
+    assertThat(userRepository.existsByUsername("ndjson-b")).isFalse();
+  }
+
+  @Test
+  void csv_without_a_password_column_is_rejected() throws Exception {
+    mockMvc.perform(post("/api/admin/users/import")
+            .contentType(new MediaType("text", "csv"))
+            .content("username,email\nno-password,x@import.test\n"))
+        .andExpect(status().isBadRequest());
+  }
+
+  private UserImportReport importUsers(MediaType contentType, String body) throws Exception {
+    String json = mockMvc.perform(post("/api/admin/users/import").contentType(contentType).content(body))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+    return objectMapper.readValue(json, UserImportReport.class);
+  }
+}
@@ -0,0 +1,26 @@
+package mindforge.test;
+
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Performs a request against an endpoint that completes asynchronously, such as a streamed export,
+ * and returns the result of the async dispatch, so status and body can be asserted as usual.
+ */
+final class AsyncRequests {
+
+  private AsyncRequests() {
+  }
+
+  static ResultActions performAsync(MockMvc mockMvc, RequestBuilder request) throws Exception {
+    MvcResult started = mockMvc.perform(request)
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    return mockMvc.perform(asyncDispatch(started));
+  }
+}
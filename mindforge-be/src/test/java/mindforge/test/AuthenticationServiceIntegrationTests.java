@@ -2,12 +2,17 @@ package mindforge.test;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import mindforge.dto.AuthenticationResponseDto;
+import mindforge.dto.CursorPage;
 import mindforge.dto.UserRequestDto;
 import mindforge.dto.UserResponseDto;
+import mindforge.service.AuthenticationService;
 import mindforge.service.JwtService;
+import mindforge.service.RefreshTokenService;
+import mindforge.service.UsernameFilter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
@@ -15,8 +20,22 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
@@ -38,9 +57,18 @@ class AuthenticationServiceIntegrationTests {
   @Autowired
   private JdbcTemplate jdbcTemplate;
 
+  @Value("${jwt.refresh-session.cache.ttl}")
+  private Duration refreshSessionCacheTtl;
+
   @Autowired
   private JwtService jwtService;
 
+  @Autowired
+  private AuthenticationService authenticationService;
+
+  @Autowired
+  private UsernameFilter usernameFilter;
+
   @BeforeEach
   void checkDatabase() {
     try {
@@ -229,6 +257,96 @@ class AuthenticationServiceIntegrationTests {
             .andExpect(status().isUnauthorized());
     }
 
+  @Test
+  void refresh_sessions_are_per_device_and_revocable() throws Exception {
+    UserRequestDto request = UserRequestDto.builder()
+        .username("sessionuser")
+        .password("StrongPass123")
+        .build();
+
+    mockMvc.perform(post("/auth/register")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(request)))
+        .andExpect(status().isCreated());
+
+    AuthenticationResponseDto laptop = loginFrom("laptop", request);
+    AuthenticationResponseDto phone = loginFrom("phone", request);
+    assertThat(laptop.getRefreshToken()).isNotEqualTo(phone.getRefreshToken());
+
+    // Logging in again from the same device replaces its session
+    AuthenticationResponseDto laptopAgain = loginFrom("laptop", request);
+    refresh(laptop.getRefreshToken()).andExpect(status().isUnauthorized());
+    refresh(laptopAgain.getRefreshToken())
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.username").value("sessionuser"));
+
+    // Revoke one device
+    mockMvc.perform(post("/auth/logout")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(Map.of("refreshToken", laptopAgain.getRefreshToken()))))
+        .andExpect(status().isNoContent());
+    refresh(laptopAgain.getRefreshToken()).andExpect(status().isUnauthorized());
+    refresh(phone.getRefreshToken()).andExpect(status().isOk());
+
+    // Revoke all devices
+    mockMvc.perform(post("/auth/logout-all")
+        .header("Authorization", "Bearer " + phone.getToken()))
+        .andExpect(status().isNoContent());
+    refresh(phone.getRefreshToken()).andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  void logins_without_a_device_id_keep_separate_sessions() throws Exception {
+    UserRequestDto request = UserRequestDto.builder()
+        .username("anonymous-device-user")
+        .password("StrongPass123")
+        .build();
+    authenticationService.register(request);
+
+    // Two browsers with the same User-Agent and no device id must not evict each other
+    AuthenticationResponseDto first = loginFrom(null, request);
+    AuthenticationResponseDto second = loginFrom(null, request);
+
+    refresh(first.getRefreshToken()).andExpect(status().isOk());
+    refresh(second.getRefreshToken()).andExpect(status().isOk());
+  }
+
+  @Test
+  void sessions_ended_elsewhere_stop_refreshing_within_the_cache_ttl() throws Exception {
+    UserRequestDto request = UserRequestDto.builder()
+        .username("elsewhere-user")
+        .password("StrongPass123")
+        .build();
+    Long userId = authenticationService.register(request).getId();
+    AuthenticationResponseDto session = loginFrom("laptop", request);
+    refresh(session.getRefreshToken()).andExpect(status().isOk());
+
+    // Another instance signs the user out: the row is gone, this instance's cache is not told
+    jdbcTemplate.update("DELETE FROM refresh_sessions WHERE user_id = ?", userId);
+    Thread.sleep(refreshSessionCacheTtl.toMillis() + 50);
+
+    refresh(session.getRefreshToken()).andExpect(status().isUnauthorized());
+  }
+
+  private AuthenticationResponseDto loginFrom(String deviceId, UserRequestDto request) throws Exception {
+    MockHttpServletRequestBuilder login = post("/auth/login")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(request));
+    if (deviceId != null) {
+      login.header(RefreshTokenService.DEVICE_ID_HEADER, deviceId);
+    }
+    MvcResult result = mockMvc.perform(login)
+        .andExpect(status().isOk())
+        .andReturn();
+    return objectMapper.readValue(result.getResponse().getContentAsString(), AuthenticationResponseDto.class);
+  }
+
+  private ResultActions refresh(String refreshToken) throws Exception {
+    return mockMvc.perform(post("/auth/refresh")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(Map.of("refreshToken", refreshToken))));
+  }
+
     @Test
     void register_fails_with_duplicate_username() throws Exception {
     UserRequestDto request = UserRequestDto.builder()
@@ -247,6 +365,129 @@ class AuthenticationServiceIntegrationTests {
         .andExpect(status().isConflict());
   }
 
+  @Test
+  void concurrent_registrations_of_one_username_create_one_user() throws Exception {
+    int attempts = 8;
+    UserRequestDto request = UserRequestDto.builder()
+        .username("racer")
+        .password("StrongPass123")
+        .build();
+
+    ExecutorService pool = Executors.newFixedThreadPool(attempts);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (int i = 0; i < attempts; i++) {
+      results.add(pool.submit(() -> {
+        start.await();
+        try {
+          authenticationService.register(request);
+          return true;
+        } catch (IllegalArgumentException e) {
+          assertThat(e).hasMessage("Username already exists");
+          return false;
+        }
+      }));
+    }
+    start.countDown();
+
+    int created = 0;
+    for (Future<Boolean> result : results) {
+      if (result.get(30, TimeUnit.SECONDS)) {
+        created++;
+      }
+    }
+    pool.shutdown();
+
+    assertThat(created).isEqualTo(1);
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE username = 'racer'", Integer.class))
+        .isEqualTo(1);
+  }
+
+  @Test
+  void search_matches_substrings_ignoring_case_and_treats_wildcards_literally() {
+    for (String username : List.of("Trigram_Alpha", "trigram%beta", "xTRIGRAMgamma")) {
+      authenticationService.register(UserRequestDto.builder().username(username).password("StrongPass123").build());
+    }
+
+    assertThat(searchedUsernames("rigram", null, "nobody"))
+        .containsExactlyInAnyOrder("Trigram_Alpha", "trigram%beta", "xTRIGRAMgamma");
+    assertThat(searchedUsernames("TRIGRAM_", null, "nobody")).containsExactly("Trigram_Alpha");
+    assertThat(searchedUsernames("m%b", null, "nobody")).containsExactly("trigram%beta");
+    assertThat(searchedUsernames("rigram", "USER", "xTRIGRAMgamma"))
+        .containsExactlyInAnyOrder("Trigram_Alpha", "trigram%beta");
+  }
+
+  @Test
+  void search_pages_follow_the_cursor_until_every_match_was_returned_once() {
+    for (int i = 0; i < 5; i++) {
+      authenticationService.register(UserRequestDto.builder().username("keyset-" + i).password("StrongPass123").build());
+    }
+
+    List<String> seen = new ArrayList<>();
+    String cursor = null;
+    int pages = 0;
+    do {
+      CursorPage<UserResponseDto> page = authenticationService.searchUsers("keyset-", null, "nobody", cursor, 2);
+      assertThat(page.items()).hasSizeLessThanOrEqualTo(2);
+      page.items().forEach(user -> seen.add(user.getUsername()));
+      cursor = page.nextCursor();
+      pages++;
+    } while (cursor != null);
+
+    assertThat(seen).containsExactly("keyset-0", "keyset-1", "keyset-2", "keyset-3", "keyset-4");
+    assertThat(pages).isEqualTo(3);
+    assertThatThrownBy(() -> authenticationService.searchUsers(null, null, "nobody", "not a cursor", 2))
+        .isInstanceOf(CursorPage.InvalidCursorException.class);
+  }
+
+  @Test
+  void search_leaves_out_the_caller_without_shortening_the_page() {
+    for (int i = 0; i < 4; i++) {
+      authenticationService.register(UserRequestDto.builder().username("caller-" + i).password("StrongPass123").build());
+    }
+
+    CursorPage<UserResponseDto> first = authenticationService.searchUsers("caller-", null, "caller-1", null, 2);
+    assertThat(first.items()).extracting(UserResponseDto::getUsername).containsExactly("caller-0", "caller-2");
+    assertThat(first.items().get(0).getEmail()).isNull();
+
+    CursorPage<UserResponseDto> second = authenticationService.searchUsers("caller-", null, "caller-1",
+        first.nextCursor(), 2);
+    assertThat(second.items()).extracting(UserResponseDto::getUsername).containsExactly("caller-3");
+    assertThat(second.nextCursor()).isNull();
+  }
+
+  @Test
+  void user_search_endpoint_returns_the_next_cursor_in_a_header() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      authenticationService.register(UserRequestDto.builder().username("header-page-" + i).password("StrongPass123").build());
+    }
+    String token = jwtService.generateToken("page-admin", 1L, "ADMIN");
+
+    MvcResult first = mockMvc.perform(get("/auth/users").param("search", "header-page-").param("limit", "2")
+            .header("Authorization", "Bearer " + token))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(2))
+        .andReturn();
+    String cursor = first.getResponse().getHeader(CursorPage.NEXT_CURSOR_HEADER);
+    assertThat(cursor).isNotBlank();
+
+    MvcResult last = mockMvc.perform(get("/auth/users").param("search", "header-page-").param("cursor", cursor)
+            .header("Authorization", "Bearer " + token))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].username").value("header-page-2"))
+        .andReturn();
+    assertThat(last.getResponse().getHeader(CursorPage.NEXT_CURSOR_HEADER)).isNull();
+
+    mockMvc.perform(get("/auth/users").param("cursor", "%%%").header("Authorization", "Bearer " + token))
+        .andExpect(status().isBadRequest());
+  }
+
+  private List<String> searchedUsernames(String term, String role, String currentUsername) {
+    return authenticationService.searchUsers(term, role, currentUsername, null, null).items().stream()
+        .map(UserResponseDto::getUsername)
+        .toList();
+  }
+
   @Test
   void login_fails_with_wrong_password() throws Exception {
     UserRequestDto registerRequest = UserRequestDto.builder()
@@ -269,4 +510,27 @@ class AuthenticationServiceIntegrationTests {
         .content(objectMapper.writeValueAsString(wrongLogin)))
         .andExpect(status().isUnauthorized());
   }
+
+  @Test
+  void users_committed_below_the_highest_synced_id_can_still_log_in() {
+    UserRequestDto earlier = UserRequestDto.builder().username("filter-sync-earlier").password("StrongPass123").build();
+    // Another transaction holds this id and has not committed its user yet
+    authenticationService.register(UserRequestDto.builder().username("filter-sync-pending").password("StrongPass123")
+        .build());
+    long pendingId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'filter-sync-pending'",
+        Long.class);
+    jdbcTemplate.update("DELETE FROM users WHERE id = ?", pendingId);
+    usernameFilter.rebuild();
+    authenticationService.register(UserRequestDto.builder().username("filter-sync-later").password("StrongPass123")
+        .build());
+    usernameFilter.syncNewUsernames();
+
+    LocalDateTime now = LocalDateTime.now();
+    jdbcTemplate.update("INSERT INTO users (id, username, password, role, failed_login_attempts, account_locked,"
+            + " created_at, updated_at) VALUES (?, ?, ?, 'USER', 0, FALSE, ?, ?)",
+        pendingId, earlier.getUsername(), authenticationService.encodePassword(earlier.getPassword()), now, now);
+    usernameFilter.syncNewUsernames();
+
+    assertThat(authenticationService.login(earlier)).isPresent();
+  }
 }
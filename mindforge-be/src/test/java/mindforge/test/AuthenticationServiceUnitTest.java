@@ -1,18 +1,28 @@
 package mindforge.test;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import mindforge.dto.UserRequestDto;
 import mindforge.dto.UserResponseDto;
 import mindforge.model.User;
+import mindforge.repository.TokenRevocationRepository;
 import mindforge.repository.UserRepository;
 import mindforge.service.AuthenticationService;
 import mindforge.service.PasswordValidationService;
+import mindforge.service.RefreshTokenService;
 import mindforge.service.JwtService;
+import mindforge.service.LoginStateStore;
+import mindforge.service.ProjectCache;
+import mindforge.service.TokenRevocationRegistry;
+import mindforge.service.UsernameFilter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -25,6 +35,7 @@ class AuthenticationServiceUnitTest {
   private PasswordEncoder passwordEncoder;
   private JwtService jwtService;
   private PasswordValidationService passwordValidationService;
+  private UsernameFilter usernameFilter;
 
   @BeforeEach
   void setUp() {
@@ -32,13 +43,19 @@ class AuthenticationServiceUnitTest {
     passwordEncoder = new BCryptPasswordEncoder();
     jwtService = mock(JwtService.class);
     passwordValidationService = mock(PasswordValidationService.class);
+    usernameFilter = mock(UsernameFilter.class);
+    when(usernameFilter.mightContainForLogin(anyString())).thenReturn(true);
 
     // Mock password validation to return valid result
     PasswordValidationService.PasswordValidationResult validResult =
         new PasswordValidationService.PasswordValidationResult(true, PasswordValidationService.PasswordStrength.STRONG, "Strong password");
     when(passwordValidationService.validatePassword(anyString())).thenReturn(validResult);
+    when(userRepository.recordSuccessfulLogin(any(), any())).thenReturn(true);
 
-    authService = new AuthenticationService(userRepository, passwordEncoder, jwtService, passwordValidationService);
+    authService = new AuthenticationService(userRepository, passwordEncoder, jwtService, passwordValidationService,
+        new TokenRevocationRegistry(mock(TokenRevocationRepository.class), 3600_000, Duration.ofSeconds(60),
+            new SimpleMeterRegistry()), mock(RefreshTokenService.class), usernameFilter,
+        new LoginStateStore(userRepository, 5, 30, false), mock(ProjectCache.class));
   }
 
   @Test
@@ -48,14 +65,15 @@ class AuthenticationServiceUnitTest {
         .password("password")
         .build();
 
-    when(userRepository.existsByUsername("newuser")).thenReturn(false);
-    when(userRepository.save(any(User.class))).thenAnswer(i -> i.getArgument(0));
+    when(userRepository.insertIfAbsent(any(User.class))).thenReturn(OptionalLong.of(7L));
 
     UserResponseDto response = authService.register(request);
 
+    assertThat(response.getId()).isEqualTo(7L);
     assertThat(response.getUsername()).isEqualTo("newuser");
     assertThat(response.getRole()).isEqualTo("USER");
-    verify(userRepository).save(any(User.class));
+    verify(userRepository).insertIfAbsent(any(User.class));
+    verify(userRepository, never()).existsByUsername(anyString());
   }
 
   @Test
@@ -65,7 +83,7 @@ class AuthenticationServiceUnitTest {
         .password("password")
         .build();
 
-    when(userRepository.existsByUsername("dupuser")).thenReturn(true);
+    when(userRepository.insertIfAbsent(any(User.class))).thenReturn(OptionalLong.empty());
 
     assertThatThrownBy(() -> authService.register(request))
         .isInstanceOf(RuntimeException.class)
@@ -112,4 +130,108 @@ class AuthenticationServiceUnitTest {
 
     assertThat(login).isEmpty();
   }
+
+  @Test
+  void login_reencodesPasswordHashedWithLowerStrength() {
+    UserRequestDto request = UserRequestDto.builder()
+        .username("legacy")
+        .password("password")
+        .build();
+
+    User legacyUser = User.builder()
+        .username("legacy")
+        .password(new BCryptPasswordEncoder(4).encode("password"))
+        .role("USER")
+        .build();
+
+    when(userRepository.findByUsername("legacy")).thenReturn(Optional.of(legacyUser));
+
+    assertThat(authService.login(request)).isPresent();
+    assertThat(legacyUser.getPassword()).startsWith("$2a$10$");
+    assertThat(passwordEncoder.matches("password", legacyUser.getPassword())).isTrue();
+    verify(userRepository).updatePassword(legacyUser.getId(), legacyUser.getPassword());
+  }
+
+  @Test
+  void login_skipsDatabase_whenFilterRulesOutUsername() {
+    UserRequestDto request = UserRequestDto.builder()
+        .username("ghost")
+        .password("password")
+        .build();
+
+    when(usernameFilter.mightContainForLogin("ghost")).thenReturn(false);
+
+    assertThat(authService.login(request)).isEmpty();
+    assertThat(authService.loginWithTokens(request, "test")).isEmpty();
+    verify(userRepository, never()).findByUsername("ghost");
+  }
+
+  @Test
+  void register_addsUsernameToFilter() {
+    UserRequestDto request = UserRequestDto.builder()
+        .username("fresh")
+        .password("password")
+        .build();
+
+    when(userRepository.insertIfAbsent(any(User.class))).thenReturn(OptionalLong.of(8L));
+
+    authService.register(request);
+
+    verify(usernameFilter).add("fresh");
+  }
+
+  @Test
+  void updateUserProfile_checksDatabaseForNewUsername_evenWhenFilterRulesItOut() {
+    User user = User.builder()
+        .id(3L)
+        .username("before")
+        .password(authService.encodePassword("password"))
+        .role("USER")
+        .build();
+    UserRequestDto rename = UserRequestDto.builder()
+        .username("taken")
+        .build();
+
+    when(userRepository.findByUsername("before")).thenReturn(Optional.of(user));
+    // A name registered on another instance is missing from this filter until the next sync
+    when(usernameFilter.mightContain("taken")).thenReturn(false);
+    when(userRepository.existsByUsername("taken")).thenReturn(true);
+
+    assertThatThrownBy(() -> authService.updateUserProfile("before", rename))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Username already exists");
+    verify(userRepository, never()).save(any(User.class));
+  }
+
+  @Test
+  void login_countsFailureInDatabase_andRejectsLockedAccount() {
+    UserRequestDto request = UserRequestDto.builder()
+        .username("locked")
+        .password("password")
+        .build();
+
+    User user = User.builder()
+        .id(5L)
+        .username("locked")
+        .password(authService.encodePassword("password"))
+        .role("USER")
+        .accountLocked(true)
+        .lockedUntil(LocalDateTime.now().plusMinutes(10))
+        .build();
+
+    when(userRepository.findByUsername("locked")).thenReturn(Optional.of(user));
+
+    assertThat(authService.loginWithTokens(request, "test")).isEmpty();
+    verify(userRepository, never()).recordSuccessfulLogin(any(), any());
+
+    user.setAccountLocked(false);
+    user.setLockedUntil(null);
+    UserRequestDto wrongPassword = UserRequestDto.builder()
+        .username("locked")
+        .password("wrong")
+        .build();
+    assertThat(authService.login(wrongPassword)).isEmpty();
+    verify(userRepository).recordFailedLogin(eq(5L), anyInt(), any(), any());
+    verify(userRepository, never()).save(any(User.class));
+  }
 }
@@ -0,0 +1,89 @@
+package mindforge.test;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mindforge.MindforgeApplication;
+import mindforge.service.ClusterRateLimitCoordinator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two application instances sharing one database enforce one login budget between them.
+ */
+class ClusterRateLimitIntegrationTests {
+
+  private static final int LIMIT = 10;
+  private static final int NODES = 2;
+
+  private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+  private final TestRestTemplate http = new TestRestTemplate();
+
+  @AfterEach
+  void stopNodes() {
+    nodes.forEach(ConfigurableApplicationContext::close);
+  }
+
+  @Test
+  void replicas_share_one_login_budget() {
+    String database = "jdbc:h2:mem:cluster_" + UUID.randomUUID()
+        + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+    for (int i = 0; i < NODES; i++) {
+      nodes.add(new SpringApplicationBuilder(MindforgeApplication.class)
+          .profiles("test")
+          .run("--spring.datasource.url=" + database,
+              "--spring.jpa.hibernate.ddl-auto=update",
+              "--server.port=0",
+              "--rate-limiting.enabled=true",
+              "--security.rate-limit.cluster.enabled=true",
+              // Synced by the test, not the scheduler
+              "--security.rate-limit.cluster.sync-interval-ms=3600000",
+              "--RATE_LIMIT_CREDENTIALS_PER_MINUTE=" + LIMIT));
+    }
+    syncAll();
+    // Both heartbeats landed in the one database
+    nodes.forEach(node -> assertThat(node.getBean(ClusterRateLimitCoordinator.class).nodes()).isEqualTo(NODES));
+
+    int allowed = 0;
+    for (int request = 0; request < 4 * LIMIT; request++) {
+      if (login(nodes.get(request % NODES)) != 429) {
+        allowed++;
+      }
+      if (request % 4 == 3) {
+        syncAll();
+      }
+    }
+
+    // Without sharing each node would admit the full limit
+    int worstCase = LIMIT + (NODES - 1) * ((LIMIT + NODES - 1) / NODES);
+    assertThat(allowed).isBetween(LIMIT, worstCase);
+    nodes.forEach(node -> assertThat(node.getBean(MeterRegistry.class)
+        .find("http.rate-limit.cluster.sync-errors").counters()).isNotEmpty()
+        .allSatisfy(errors -> assertThat(errors.count()).isZero()));
+  }
+
+  private void syncAll() {
+    nodes.forEach(node -> node.getBean(ClusterRateLimitCoordinator.class).sync());
+  }
+
+  private int login(ConfigurableApplicationContext node) {
+    int port = ((ServletWebServerApplicationContext) node).getWebServer().getPort();
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.set("X-Forwarded-For", "198.51.100.7");
+    return http.postForEntity("http://localhost:" + port + "/auth/login",
+        new HttpEntity<>("{\"username\":\"nobody\",\"password\":\"WrongPass123\"}", headers), String.class)
+        .getStatusCode().value();
+  }
+}
@@ -1,28 +1,38 @@
 
 package mindforge.test;
 
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import mindforge.service.JwtService;
+import mindforge.service.VerifiedTokenCache;
+import mindforge.service.VerifiedToken;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 
+import java.util.Date;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import io.jsonwebtoken.security.Keys;
 
 class JwtServiceUnitTest {
 
   private JwtService jwtService;
+  private SecretKey secretKey;
 
   @BeforeEach
   void setUp() {
     String secret = "supersecretkeysupersecretkey12341234";
-    SecretKey secretKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    secretKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
     long expirationMillis = 3600_000; // 1 Stunde
-    long refreshExpirationMillis = 604800000; // 7 Tage
-    jwtService = new JwtService(secretKey, expirationMillis, refreshExpirationMillis);
+    jwtService = new JwtService(secretKey, expirationMillis);
   }
 
   @Test
@@ -37,4 +47,77 @@ class JwtServiceUnitTest {
 
     assertThat(extractedUsername).isEqualTo(username);
   }
+
+  @Test
+  void generateToken_carriesUserIdAndRoleClaims() {
+    VerifiedToken verified = jwtService.verifyToken(jwtService.generateToken("admin", 42L, "ADMIN"));
+
+    assertThat(verified.subject()).isEqualTo("admin");
+    assertThat(verified.userId()).isEqualTo(42L);
+    assertThat(verified.role()).isEqualTo("ADMIN");
+  }
+
+  @Test
+  void verifyToken_readsClaimsWrittenByJjwt() {
+    long issuedAt = System.currentTimeMillis() / 1000;
+    String token = Jwts.builder()
+        .setSubject("j\u00fcrgen \"quoted\"")
+        .claim("role", "ADMIN")
+        .claim("nested", java.util.Map.of("a", java.util.List.of(1, "}")))
+        .setIssuedAt(new Date(issuedAt * 1000))
+        .setExpiration(new Date((issuedAt + 60) * 1000))
+        .signWith(secretKey, SignatureAlgorithm.HS256)
+        .compact();
+
+    VerifiedToken verified = jwtService.verifyToken(token);
+
+    assertThat(verified.subject()).isEqualTo("j\u00fcrgen \"quoted\"");
+    assertThat(verified.role()).isEqualTo("ADMIN");
+    assertThat(verified.issuedAt()).isEqualTo(issuedAt);
+    assertThat(verified.expiresAt()).isEqualTo(issuedAt + 60);
+  }
+
+  @Test
+  void verifyToken_rejectsTamperedPayload() {
+    String token = jwtService.generateToken("testuser");
+    String forged = jwtService.generateToken("admin");
+    String[] parts = token.split("\\.");
+    String tampered = parts[0] + "." + forged.split("\\.")[1] + "." + parts[2];
+
+    assertThatThrownBy(() -> jwtService.extractUsername(tampered)).isInstanceOf(JwtException.class);
+  }
+
+  @Test
+  void verifyToken_rejectsUnsignedAndForeignAlgorithms() {
+    String payload = jwtService.generateToken("testuser").split("\\.")[1];
+
+    assertThatThrownBy(() -> jwtService.extractUsername("eyJhbGciOiJub25lIn0." + payload + "."))
+        .isInstanceOf(JwtException.class);
+    assertThatThrownBy(() -> jwtService.extractUsername("not-a-token")).isInstanceOf(JwtException.class);
+  }
+
+  @Test
+  void verifyToken_rejectsExpiredToken() {
+    JwtService expiringService = new JwtService(secretKey, -1_000);
+    String token = expiringService.generateToken("testuser");
+
+    assertThatThrownBy(() -> jwtService.extractUsername(token)).isInstanceOf(ExpiredJwtException.class);
+  }
+
+  @Test
+  void verifyToken_servesRepeatedTokensFromCache() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    JwtService cachingService = new JwtService(secretKey, 3600_000,
+        new VerifiedTokenCache(true, 100, registry));
+    String token = cachingService.generateToken("testuser");
+
+    VerifiedToken first = cachingService.verifyToken(token);
+    VerifiedToken second = cachingService.verifyToken(token);
+
+    assertThat(second).isSameAs(first);
+    assertThat(registry.get("cache.gets").tag("cache", VerifiedTokenCache.CACHE_NAME).tag("result", "hit")
+        .functionCounter().count()).isEqualTo(1.0);
+    assertThatThrownBy(() -> cachingService.verifyToken(token.substring(0, token.length() - 2) + "xx"))
+        .isInstanceOf(JwtException.class);
+  }
 }
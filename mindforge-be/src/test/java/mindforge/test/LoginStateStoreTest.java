@@ -0,0 +1,119 @@
+package mindforge.test;
+
+import mindforge.model.User;
+import mindforge.repository.UserRepository;
+import mindforge.repository.UserRepositoryCustom.LoginAttemptState;
+import mindforge.repository.UserRepositoryCustom.LoginStateUpdate;
+import mindforge.service.LoginStateStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class LoginStateStoreTest {
+
+  private UserRepository userRepository;
+  private LoginStateStore store;
+  private User user;
+
+  @BeforeEach
+  void setUp() {
+    userRepository = mock(UserRepository.class);
+    store = new LoginStateStore(userRepository, 3, 30, true);
+    user = User.builder().id(42L).username("alice").failedLoginAttempts(0).accountLocked(false).build();
+  }
+
+  @Test
+  void failures_are_buffered_and_flushed_as_one_delta() {
+    LocalDateTime now = LocalDateTime.now();
+    store.recordFailure(user, now);
+    LoginAttemptState state = store.recordFailure(user, now.plusSeconds(1)).orElseThrow();
+
+    assertThat(state.failedLoginAttempts()).isEqualTo(2);
+    assertThat(state.accountLocked()).isFalse();
+    verifyNoInteractions(userRepository);
+
+    assertThat(store.flush()).isEqualTo(1);
+    assertThat(flushed()).containsExactly(new LoginStateUpdate(42L, false, 2, now.plusSeconds(1)));
+  }
+
+  @Test
+  void lock_is_written_through_at_the_threshold() {
+    LocalDateTime now = LocalDateTime.now();
+    store.recordFailure(user, now);
+    store.recordFailure(user, now);
+    LoginAttemptState state = store.recordFailure(user, now).orElseThrow();
+
+    assertThat(state.accountLocked()).isTrue();
+    verify(userRepository).lockAccount(42L, 3, now.plusMinutes(30), now);
+    assertThat(store.isLocked(user, now.plusMinutes(1))).isTrue();
+    assertThat(store.recordSuccess(user, now.plusMinutes(1))).isFalse();
+    // The lock carried the count, nothing is left to flush
+    assertThat(store.flush()).isZero();
+
+    assertThat(store.isLocked(user, now.plusMinutes(31))).isFalse();
+    verify(userRepository).unlockIfExpired(42L, now.plusMinutes(31));
+  }
+
+  @Test
+  void success_resets_and_idle_entries_are_dropped() {
+    LocalDateTime now = LocalDateTime.now();
+    store.recordFailure(user, now);
+    assertThat(store.recordSuccess(user, now)).isTrue();
+
+    assertThat(store.flush()).isEqualTo(1);
+    assertThat(flushed()).containsExactly(new LoginStateUpdate(42L, true, 0, now));
+
+    // Untouched for a full interval: dropped, so the next login reseeds from the row
+    store.flush();
+    User lockedByAdmin = User.builder().id(42L).username("alice").accountLocked(true).build();
+    assertThat(store.isLocked(lockedByAdmin, now)).isTrue();
+  }
+
+  @Test
+  void failed_flush_is_retried() {
+    LocalDateTime now = LocalDateTime.now();
+    store.recordFailure(user, now);
+    doThrow(new IllegalStateException("database down"))
+        .when(userRepository).applyLoginStates(anyList(), anyInt(), any(), any());
+
+    assertThat(store.flush()).isZero();
+    store.recordFailure(user, now);
+
+    doThrow(new IllegalStateException("still down")).doNothing()
+        .when(userRepository).applyLoginStates(anyList(), anyInt(), any(), any());
+    store.flush();
+    assertThat(store.flush()).isEqualTo(1);
+    verify(userRepository, times(3)).applyLoginStates(anyList(), eq(3), any(), any());
+  }
+
+  @Test
+  void evicted_entries_lose_unflushed_attempts() {
+    store.recordFailure(user, LocalDateTime.now());
+    store.evict(42L);
+
+    assertThat(store.flush()).isZero();
+    verify(userRepository, never()).applyLoginStates(anyList(), anyInt(), any(), any());
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<LoginStateUpdate> flushed() {
+    ArgumentCaptor<List<LoginStateUpdate>> captor = ArgumentCaptor.forClass(List.class);
+    verify(userRepository).applyLoginStates(captor.capture(), eq(3), any(), any());
+    return captor.getValue();
+  }
+}
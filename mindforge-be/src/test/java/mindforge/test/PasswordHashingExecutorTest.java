@@ -0,0 +1,92 @@
+package mindforge.test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mindforge.service.PasswordHashingExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingExecutorTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1, Duration.ofMillis(200), registry);
+
+  @AfterEach
+  void tearDown() {
+    executor.destroy();
+  }
+
+  @Test
+  void submit_rejectsWorkOnceQueueIsFull() throws Exception {
+    CountDownLatch running = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    CompletableFuture<String> busy = executor.submit(() -> {
+      running.countDown();
+      await(release);
+      return "first";
+    });
+    assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+    CompletableFuture<String> queued = executor.submit(() -> "second");
+
+    assertThatThrownBy(() -> executor.submit(() -> "third")).isInstanceOf(RejectedExecutionException.class);
+    assertThat(registry.get("auth.password-hashing.rejected").counter().count()).isEqualTo(1.0);
+    assertThat(registry.get("executor.queued").tag("name", PasswordHashingExecutor.METRIC_NAME).gauge().value())
+        .isEqualTo(1.0);
+
+    release.countDown();
+    assertThat(busy.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+    assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+    assertThat(registry.get("auth.password-hashing.wait").timer().count()).isEqualTo(2);
+  }
+
+  @Test
+  void call_waitsForThePoolAndRunsInPlaceOnHashingThreads() throws Exception {
+    assertThat(executor.call(() -> Thread.currentThread().getName())).startsWith("password-hashing-");
+
+    // A single hashing thread calling back into the pool must not wait on itself
+    CompletableFuture<String> nested = executor.submit(() -> executor.call(() -> "nested"));
+    assertThat(nested.get(5, TimeUnit.SECONDS)).isEqualTo("nested");
+  }
+
+  @Test
+  void call_givesUpAfterTheTimeoutAndSkipsTheQueuedWork() throws Exception {
+    CountDownLatch running = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<String> busy = executor.submit(() -> {
+      running.countDown();
+      await(release);
+      return "first";
+    });
+    assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+    AtomicBoolean ran = new AtomicBoolean();
+    assertThatThrownBy(() -> executor.call(() -> ran.getAndSet(true)))
+        .isInstanceOf(PasswordHashingExecutor.HashingTimeoutException.class)
+        .isInstanceOf(RejectedExecutionException.class);
+    assertThat(registry.get("auth.password-hashing.timeouts").counter().count()).isEqualTo(1.0);
+
+    release.countDown();
+    assertThat(busy.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+    // The pool drains the abandoned entry without running it
+    assertThat(executor.submit(() -> "after").get(5, TimeUnit.SECONDS)).isEqualTo("after");
+    assertThat(ran).isFalse();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
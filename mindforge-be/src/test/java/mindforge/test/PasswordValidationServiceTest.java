@@ -0,0 +1,91 @@
+package mindforge.test;
+
+import mindforge.service.CommonPasswordDictionary;
+import mindforge.service.PasswordValidationService;
+import mindforge.service.PasswordValidationService.PasswordStrength;
+import mindforge.service.PasswordValidationService.PasswordValidationResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordValidationServiceTest {
+
+  private final PasswordValidationService service = new PasswordValidationService(new CommonPasswordDictionary(""));
+
+  @Test
+  void scoresLengthAndCharacterClasses() {
+    assertThat(strength("Kx7#mQ2!vRt9")).isEqualTo(PasswordStrength.STRONG);
+    assertThat(strength("Kx7mQ2vR")).isEqualTo(PasswordStrength.GOOD);
+    assertThat(strength("kxmqvrtz")).isEqualTo(PasswordStrength.FAIR);
+  }
+
+  @Test
+  void penalizesRunsOfTheSameCharacter() {
+    assertThat(strength("Kx7mQ2vRwtpz")).isEqualTo(PasswordStrength.STRONG);
+    assertThat(strength("Kx7mQ2vRwwwz")).isEqualTo(PasswordStrength.GOOD);
+    assertThat(strength("kxmqvrzz")).isEqualTo(PasswordStrength.FAIR);
+    assertThat(strength("kxmqvzzz")).isEqualTo(PasswordStrength.WEAK);
+  }
+
+  @Test
+  void penalizesSequencesAndWellKnownFragments() {
+    assertThat(strength("kxmqvabc")).isEqualTo(PasswordStrength.WEAK);
+    assertThat(strength("kxmqvCBA")).isEqualTo(PasswordStrength.FAIR);
+    assertThat(strength("kxmqv321")).isEqualTo(PasswordStrength.FAIR);
+    assertThat(strength("kxmqv135")).isEqualTo(PasswordStrength.GOOD);
+    assertThat(strength("xAdMiNkv")).isEqualTo(PasswordStrength.FAIR);
+    assertThat(strength("kQwErtzv")).isEqualTo(PasswordStrength.FAIR);
+  }
+
+  @Test
+  void runPenaltiesMoveThePasswordsAtTheGoodFairBoundary() {
+    // Length, lowercase and digits score 3, just GOOD
+    assertThat(strength("kxmqvr78")).isEqualTo(PasswordStrength.GOOD);
+    // Ascending runs other than 123 and descending runs cost a point
+    assertThat(strength("kxmqv789")).isEqualTo(PasswordStrength.FAIR);
+    assertThat(strength("kxmqv987")).isEqualTo(PasswordStrength.FAIR);
+    assertThat(strength("kxmqvrrr9")).isEqualTo(PasswordStrength.FAIR);
+    assertThat(service.validatePassword("kxmqv987").isValid()).isTrue();
+    // Both penalties take a GOOD score below FAIR, so the password is rejected
+    PasswordValidationResult result = service.validatePassword("kxm789zzz");
+    assertThat(result.getStrength()).isEqualTo(PasswordStrength.WEAK);
+    assertThat(result.isValid()).isFalse();
+  }
+
+  @Test
+  void rejectsPasswordsFromTheDictionaryIgnoringCase(@TempDir Path dir) throws Exception {
+    Path list = dir.resolve("common.txt");
+    Files.write(list, List.of("Summer2024!", "", "  Tr0ub4dor&3  ", "summer2024!"));
+    Path file = dir.resolve("common.bin");
+    assertThat(CommonPasswordDictionary.write(list, file)).isEqualTo(2);
+
+    CommonPasswordDictionary dictionary = new CommonPasswordDictionary(file.toString());
+    assertThat(dictionary.size()).isEqualTo(2);
+    assertThat(dictionary.contains("tr0ub4dor&3")).isTrue();
+    assertThat(dictionary.contains("Tr0ub4dor&4")).isFalse();
+
+    PasswordValidationResult result = new PasswordValidationService(dictionary).validatePassword("SUMMER2024!");
+    assertThat(result.isValid()).isFalse();
+    assertThat(result.getStrength()).isEqualTo(PasswordStrength.WEAK);
+    assertThat(new PasswordValidationService(dictionary).validatePassword("Kx7#mQ2!vRt9").isValid()).isTrue();
+  }
+
+  @Test
+  void refusesFilesThatAreNotDictionaries(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("plain.txt");
+    Files.writeString(file, "password\n123456\n");
+
+    assertThatThrownBy(() -> new CommonPasswordDictionary(file.toString()))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  private PasswordStrength strength(String password) {
+    return service.validatePassword(password).getStrength();
+  }
+}
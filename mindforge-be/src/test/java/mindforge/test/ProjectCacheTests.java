@@ -0,0 +1,169 @@
+package mindforge.test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import mindforge.dto.ProjectDto;
+import mindforge.dto.UserRequestDto;
+import mindforge.model.Project;
+import mindforge.model.User;
+import mindforge.repository.ProjectRepository;
+import mindforge.repository.UserRepository;
+import mindforge.service.AuthenticationService;
+import mindforge.service.ProjectCache;
+import mindforge.service.ProjectService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    // Statistics are global; keep the periodic username scan from landing inside a measurement
+    "security.username-filter.enabled=false"
+})
+@ActiveProfiles("test")
+class ProjectCacheTests {
+
+  private static final int PAGE = 2;
+
+  @Autowired
+  private ProjectService projectService;
+
+  @Autowired
+  private ProjectCache projectCache;
+
+  @Autowired
+  private ProjectRepository projectRepository;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private AuthenticationService authService;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private Statistics statistics;
+
+  @BeforeEach
+  void setUp() {
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    projectCache.invalidateAll();
+    if (!userRepository.existsByUsername("cache-owner")) {
+      User owner = register("cache-owner");
+      for (int p = 0; p < 3 * PAGE; p++) {
+        save(owner, "cached-" + p);
+      }
+    }
+  }
+
+  @Test
+  void hits_skip_the_database_and_serve_the_same_bytes() throws IOException {
+    long id = ids(projectService.getPublicProjectsJson(null, PAGE))[0];
+
+    ProjectCache.Json first = projectService.getProjectJson(id);
+    assertThat(statements(() -> projectService.getProjectJson(id))).isZero();
+    assertThat(projectService.getProjectJson(id).body()).isSameAs(first.body());
+    assertThat(objectMapper.readValue(first.body(), ProjectDto.class).getOwnerUsername()).isEqualTo("cache-owner");
+
+    assertThat(statements(() -> projectService.getPublicProjectsJson(null, PAGE))).isZero();
+
+    assertThat(meterRegistry.get("cache.hit.ratio").tag("cache", ProjectCache.PROJECTS).gauge().value())
+        .isGreaterThan(0);
+    assertThat(meterRegistry.get("projects.cache.staleness").tag("cache", ProjectCache.PUBLIC_PAGES).timer()
+        .count()).isGreaterThan(0);
+  }
+
+  @Test
+  void an_update_drops_only_what_shows_the_project() throws IOException {
+    ProjectCache.Json firstPage = projectService.getPublicProjectsJson(null, PAGE);
+    ProjectCache.Json secondPage = projectService.getPublicProjectsJson(firstPage.nextCursor(), PAGE);
+    long changed = ids(secondPage)[0];
+    long untouched = ids(firstPage)[0];
+    projectService.getProjectJson(changed);
+    projectService.getProjectJson(untouched);
+
+    ProjectDto changes = ProjectDto.builder().name("cached-updated").isPublic(true).build();
+    projectService.updateProject("cache-owner", changed, changes);
+
+    assertThat(statements(() -> projectService.getPublicProjectsJson(null, PAGE))).isZero();
+    assertThat(statements(() -> projectService.getProjectJson(untouched))).isZero();
+    assertThat(statements(() -> projectService.getPublicProjectsJson(firstPage.nextCursor(), PAGE))).isEqualTo(1);
+    assertThat(new String(projectService.getProjectJson(changed).body())).contains("cached-updated");
+  }
+
+  @Test
+  void a_new_project_drops_the_last_page_only() throws IOException {
+    User owner = register("cache-creator");
+    ProjectCache.Json firstPage = projectService.getPublicProjectsJson(null, PAGE);
+    ProjectCache.Json everything = projectService.getPublicProjectsJson(null, 200);
+    assertThat(everything.nextCursor()).isNull();
+
+    Project created = save(owner, "cached-new");
+    projectCache.projectChanged(created.getId());
+
+    assertThat(statements(() -> projectService.getPublicProjectsJson(null, PAGE))).isZero();
+    assertThat(ids(projectService.getPublicProjectsJson(null, 200))).contains(created.getId());
+    assertThat(projectService.getPublicProjectsJson(null, PAGE).body()).isSameAs(firstPage.body());
+  }
+
+  @Test
+  void an_owner_rename_drops_entries_showing_the_owner() {
+    User owner = register("cache-renamed");
+    long id = save(owner, "cached-by-renamed").getId();
+    assertThat(new String(projectService.getProjectJson(id).body())).contains("\"cache-renamed\"");
+    projectService.getPublicProjectsJson(null, 200);
+
+    authService.updateUserProfile("cache-renamed",
+        UserRequestDto.builder().username("cache-renamed-2").build());
+
+    assertThat(new String(projectService.getProjectJson(id).body())).contains("\"cache-renamed-2\"");
+    assertThat(new String(projectService.getPublicProjectsJson(null, 200).body()))
+        .contains("\"cache-renamed-2\"")
+        .doesNotContain("\"cache-renamed\"");
+  }
+
+  private User register(String username) {
+    authService.register(UserRequestDto.builder().username(username).password("StrongPass123").build());
+    return userRepository.findByUsername(username).orElseThrow();
+  }
+
+  private Project save(User owner, String name) {
+    LocalDateTime now = LocalDateTime.now();
+    return projectRepository.save(Project.builder().name(name).owner(owner).isPublic(true)
+        .createdAt(now).updatedAt(now).build());
+  }
+
+  private long[] ids(ProjectCache.Json json) throws IOException {
+    JsonNode items = objectMapper.readTree(json.body());
+    long[] ids = new long[items.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = items.get(i).get("id").asLong();
+    }
+    return ids;
+  }
+
+  private long statements(Supplier<?> work) {
+    statistics.clear();
+    work.get();
+    return statistics.getPrepareStatementCount();
+  }
+}
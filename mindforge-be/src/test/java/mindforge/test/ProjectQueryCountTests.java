@@ -0,0 +1,121 @@
+package mindforge.test;
+
+import jakarta.persistence.EntityManagerFactory;
+import mindforge.dto.ProjectDto;
+import mindforge.dto.UserRequestDto;
+import mindforge.model.Project;
+import mindforge.model.User;
+import mindforge.repository.ProjectRepository;
+import mindforge.repository.UserRepository;
+import mindforge.service.AuthenticationService;
+import mindforge.service.ProjectService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Project reads must cost a constant number of statements however many projects and owners there are;
+ * an owner loaded per row shows up here as a count that grows with the data.
+ */
+@SpringBootTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    // Statistics are global; keep the periodic username scan from landing inside a measurement
+    "security.username-filter.enabled=false"
+})
+@ActiveProfiles("test")
+class ProjectQueryCountTests {
+
+  private static final int OWNERS = 5;
+  private static final int PROJECTS_PER_OWNER = 4;
+
+  @Autowired
+  private ProjectService projectService;
+
+  @Autowired
+  private ProjectRepository projectRepository;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private AuthenticationService authService;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  private Statistics statistics;
+  private Long someProjectId;
+
+  @BeforeEach
+  void setUp() {
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    if (userRepository.existsByUsername("owner-0")) {
+      someProjectId = projectRepository.findViewsByOwnerUsername("owner-0").get(0).getId();
+      return;
+    }
+    LocalDateTime now = LocalDateTime.now();
+    for (int o = 0; o < OWNERS; o++) {
+      authService.register(UserRequestDto.builder().username("owner-" + o).password("StrongPass123").build());
+      User owner = userRepository.findByUsername("owner-" + o).orElseThrow();
+      List<Project> projects = new ArrayList<>();
+      for (int p = 0; p < PROJECTS_PER_OWNER; p++) {
+        projects.add(Project.builder().name("project-" + o + "-" + p).owner(owner)
+            .isPublic(p % 2 == 0).createdAt(now).updatedAt(now).build());
+      }
+      someProjectId = projectRepository.saveAll(projects).get(0).getId();
+    }
+  }
+
+  @Test
+  void inserts_are_batched() {
+    User owner = userRepository.findByUsername("owner-0").orElseThrow();
+    LocalDateTime now = LocalDateTime.now();
+    List<Project> projects = new ArrayList<>();
+    for (int p = 0; p < 120; p++) {
+      projects.add(Project.builder().name("batched-" + p).owner(owner).createdAt(now).updatedAt(now).build());
+    }
+
+    // Three nextval calls reserve the ids, three JDBC batches of at most 50 rows write them
+    assertThat(statements(() -> projectRepository.saveAll(projects))).isLessThanOrEqualTo(6);
+    assertThat(projects).allSatisfy(project -> assertThat(project.getId()).isNotNull());
+    projectRepository.deleteAll(projects);
+  }
+
+  @Test
+  void listings_run_a_single_statement() {
+    assertThat(statements(() -> projectService.getAllProjects(null, 200).items())).isEqualTo(1);
+    assertThat(statements(() -> projectService.getPublicProjects(null, 200).items())).isEqualTo(1);
+    assertThat(statements(() -> projectService.getUserProjects("owner-1"))).isEqualTo(1);
+    assertThat(statements(() -> projectService.getProjectById(someProjectId))).isEqualTo(1);
+
+    assertThat(projectService.getAllProjects(null, 200).items())
+        .hasSizeGreaterThanOrEqualTo(OWNERS * PROJECTS_PER_OWNER)
+        .allSatisfy(project -> assertThat(project.getOwnerUsername()).isNotNull());
+  }
+
+  @Test
+  void ownership_checks_fetch_the_owner_with_the_project() {
+    ProjectDto changes = ProjectDto.builder().name("renamed").description("changed").build();
+    String owner = projectService.getProjectById(someProjectId).getOwnerUsername();
+
+    assertThat(statements(() -> projectService.updateProject(owner, someProjectId, changes))).isLessThanOrEqualTo(2);
+    assertThat(projectService.getProjectById(someProjectId).getName()).isEqualTo("renamed");
+  }
+
+  private long statements(Supplier<?> work) {
+    statistics.clear();
+    work.get();
+    return statistics.getPrepareStatementCount();
+  }
+}
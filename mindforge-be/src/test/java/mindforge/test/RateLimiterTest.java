@@ -0,0 +1,121 @@
+package mindforge.test;
+
+import mindforge.service.RateLimiter;
+import mindforge.service.RateLimiter.Algorithm;
+import mindforge.service.RateLimiter.OverflowPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTest {
+
+  private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+  private RateLimiter limiter(Algorithm algorithm, int permits, int maxKeys, OverflowPolicy overflow) {
+    return new RateLimiter(algorithm, permits, Duration.ofMinutes(1), maxKeys, overflow, clock::get);
+  }
+
+  @Test
+  void token_bucket_allows_a_burst_and_refills_at_the_sustained_rate() {
+    RateLimiter limiter = limiter(Algorithm.TOKEN_BUCKET, 6, 16, OverflowPolicy.DENY);
+
+    for (int remaining = 5; remaining >= 0; remaining--) {
+      assertThat(limiter.tryAcquire(7)).isEqualTo(remaining);
+    }
+    long denied = limiter.tryAcquire(7);
+    assertThat(RateLimiter.isAllowed(denied)).isFalse();
+    assertThat(RateLimiter.retryAfterNanos(denied)).isEqualTo(TimeUnit.SECONDS.toNanos(10));
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    assertThat(limiter.tryAcquire(7)).isZero();
+    assertThat(limiter.tryAcquire(8)).isEqualTo(5);
+  }
+
+  @Test
+  void sliding_window_weights_the_previous_window() {
+    RateLimiter limiter = limiter(Algorithm.SLIDING_WINDOW, 10, 16, OverflowPolicy.DENY);
+    for (int i = 0; i < 10; i++) {
+      assertThat(RateLimiter.isAllowed(limiter.tryAcquire(1))).isTrue();
+    }
+    assertThat(RateLimiter.isAllowed(limiter.tryAcquire(1))).isFalse();
+
+    // Half-way into the next window half of the previous count still applies
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(90));
+    assertThat(limiter.remaining(1)).isEqualTo(5);
+    for (int i = 0; i < 5; i++) {
+      assertThat(RateLimiter.isAllowed(limiter.tryAcquire(1))).isTrue();
+    }
+    long denied = limiter.tryAcquire(1);
+    assertThat(RateLimiter.isAllowed(denied)).isFalse();
+    assertThat(RateLimiter.retryAfterNanos(denied)).isPositive();
+  }
+
+  @Test
+  void overflow_policy_applies_when_the_table_is_full() {
+    RateLimiter deny = limiter(Algorithm.TOKEN_BUCKET, 1, 8, OverflowPolicy.DENY);
+    RateLimiter shared = limiter(Algorithm.TOKEN_BUCKET, 1, 8, OverflowPolicy.SHARED);
+    for (long key = 2; key < 1_000; key++) {
+      deny.tryAcquire(key);
+      shared.tryAcquire(key);
+    }
+    assertThat(deny.activeKeys()).isEqualTo(deny.capacity());
+    assertThat(RateLimiter.isAllowed(deny.tryAcquire(5_000))).isFalse();
+    // All overflowing keys drew from one bucket, which is empty by now
+    assertThat(RateLimiter.isAllowed(shared.tryAcquire(5_000))).isFalse();
+  }
+
+  @Test
+  void sweep_evicts_only_keys_back_at_full_budget() {
+    RateLimiter limiter = limiter(Algorithm.TOKEN_BUCKET, 2, 16, OverflowPolicy.DENY);
+    limiter.tryAcquire(1);
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(31));
+    limiter.tryAcquire(2);
+
+    assertThat(limiter.sweep()).isEqualTo(1);
+    assertThat(limiter.activeKeys()).isEqualTo(1);
+    assertThat(limiter.remaining(2)).isEqualTo(1);
+
+    limiter.reset(2);
+    assertThat(limiter.activeKeys()).isZero();
+    assertThat(limiter.remaining(2)).isEqualTo(2);
+  }
+
+  @Test
+  void parallel_acquires_never_exceed_the_limit() throws Exception {
+    int threads = 16;
+    RateLimiter limiter = limiter(Algorithm.SLIDING_WINDOW, 1_000, 1024, OverflowPolicy.DENY);
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Integer>> results = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      results.add(pool.submit(() -> {
+        start.await();
+        int allowed = 0;
+        for (int i = 0; i < 500; i++) {
+          if (RateLimiter.isAllowed(limiter.tryAcquire(42))) {
+            allowed++;
+          }
+          limiter.sweep();
+        }
+        return allowed;
+      }));
+    }
+    start.countDown();
+    int allowed = 0;
+    for (Future<Integer> result : results) {
+      allowed += result.get(30, TimeUnit.SECONDS);
+    }
+    pool.shutdown();
+    assertThat(allowed).isEqualTo(1_000);
+  }
+}
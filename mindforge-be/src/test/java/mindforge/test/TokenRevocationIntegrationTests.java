@@ -0,0 +1,64 @@
+package mindforge.test;
+
+import mindforge.MindforgeApplication;
+import mindforge.service.TokenRevocationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A revocation made on one instance reaches another instance sharing its database with the next poll.
+ */
+class TokenRevocationIntegrationTests {
+
+  private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+  @AfterEach
+  void stopNodes() {
+    nodes.forEach(ConfigurableApplicationContext::close);
+  }
+
+  @Test
+  void revocations_reach_other_replicas_with_the_next_poll() {
+    String database = "jdbc:h2:mem:revocations_" + UUID.randomUUID()
+        + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+    for (int i = 0; i < 2; i++) {
+      nodes.add(new SpringApplicationBuilder(MindforgeApplication.class)
+          .profiles("test")
+          .run("--spring.datasource.url=" + database,
+              "--spring.jpa.hibernate.ddl-auto=update",
+              "--server.port=0",
+              // Polled by the test, not the scheduler
+              "--jwt.revocation.poll-interval-ms=3600000"));
+    }
+    TokenRevocationRegistry revoking = nodes.get(0).getBean(TokenRevocationRegistry.class);
+    TokenRevocationRegistry other = nodes.get(1).getBean(TokenRevocationRegistry.class);
+    long issuedBefore = System.currentTimeMillis() / 1000 - 5;
+
+    revoking.revoke("alice");
+    revoking.revokeAll(List.of("bob", "carol"));
+    assertThat(revoking.isRevoked("alice", issuedBefore)).isTrue();
+    assertThat(other.isRevoked("alice", issuedBefore)).isFalse();
+
+    other.poll();
+    assertThat(other.isRevoked("alice", issuedBefore)).isTrue();
+    assertThat(other.isRevoked("bob", issuedBefore)).isTrue();
+    assertThat(other.isRevoked("carol", issuedBefore)).isTrue();
+    assertThat(other.isRevoked("dave", issuedBefore)).isFalse();
+
+    // Revoking again on the other replica moves the shared row forward, never back
+    JdbcTemplate jdbcTemplate = nodes.get(0).getBean(JdbcTemplate.class);
+    String revokedAt = "SELECT revoked_at_ms FROM token_revocations WHERE username = 'alice'";
+    long first = jdbcTemplate.queryForObject(revokedAt, Long.class);
+    other.revoke("alice");
+    assertThat(jdbcTemplate.queryForObject(revokedAt, Long.class)).isGreaterThanOrEqualTo(first);
+  }
+}
@@ -0,0 +1,135 @@
+package mindforge.test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mindforge.repository.UserRepository;
+import mindforge.service.UsernameFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UsernameFilterTest {
+
+  private UserRepository userRepository;
+  private UsernameFilter filter;
+
+  @BeforeEach
+  void setUp() {
+    userRepository = mock(UserRepository.class);
+    when(userRepository.findUsernamesAfter(any(), any())).thenReturn(List.of());
+    filter = new UsernameFilter(userRepository, new SimpleMeterRegistry(), true, 10_000, 0.01,
+        Duration.ofSeconds(60), true);
+  }
+
+  @Test
+  void answersMaybeUntilLoaded() {
+    assertThat(filter.mightContain("anyone")).isTrue();
+    filter.load();
+    assertThat(filter.mightContain("anyone")).isFalse();
+  }
+
+  @Test
+  void loadsExistingUsernamesInKeysetPages() {
+    UserRepository.UsernameEntry alice = entry(1L, "alice");
+    UserRepository.UsernameEntry bob = entry(2L, "bob");
+    when(userRepository.findUsernamesAfter(eq(0L), any())).thenReturn(List.of(alice, bob));
+
+    filter.load();
+
+    assertThat(filter.mightContain("alice")).isTrue();
+    assertThat(filter.mightContain("bob")).isTrue();
+    assertThat(filter.mightContain("carol")).isFalse();
+  }
+
+  @Test
+  void keepsRemovedNamesUntilTheNextRebuild() {
+    filter.load();
+
+    filter.add("dave");
+    filter.add("david");
+    assertThat(filter.mightContain("dave")).isTrue();
+
+    // dave was renamed to david; only the rebuild forgets the old name
+    when(userRepository.findUsernamesAfter(eq(0L), any())).thenReturn(List.of(entry(4L, "david")));
+    filter.rebuild();
+    assertThat(filter.mightContain("dave")).isFalse();
+    assertThat(filter.mightContain("david")).isTrue();
+  }
+
+  @Test
+  void neverReportsAKnownUsernameAsAbsent() {
+    filter.load();
+    IntStream.range(0, 5_000).forEach(i -> filter.add("user" + i));
+
+    assertThat(IntStream.range(0, 5_000).allMatch(i -> filter.mightContain("user" + i))).isTrue();
+  }
+
+  @Test
+  void syncPicksUpNamesCommittedOutOfIdOrder() {
+    filter.load();
+    LocalDateTime written = LocalDateTime.now();
+    // Pooled id blocks commit out of order: the lower id shows up after the higher one
+    when(userRepository.findUsernamesUpdatedAfter(any(), eq(0L), any()))
+        .thenReturn(List.of(change(120L, "erin", written), change(7L, "frank", written.plusSeconds(1))));
+
+    filter.syncNewUsernames();
+    filter.syncNewUsernames();
+
+    assertThat(filter.mightContain("erin")).isTrue();
+    assertThat(filter.mightContain("frank")).isTrue();
+  }
+
+  @Test
+  void loginsOnlyTrustMissesWhenShortCircuitIsEnabled() {
+    UsernameFilter multiInstance = new UsernameFilter(userRepository, new SimpleMeterRegistry(), true, 10_000,
+        0.01, Duration.ofSeconds(60), false);
+    filter.load();
+    multiInstance.load();
+
+    assertThat(filter.mightContainForLogin("ghost")).isFalse();
+    assertThat(multiInstance.mightContain("ghost")).isFalse();
+    assertThat(multiInstance.mightContainForLogin("ghost")).isTrue();
+  }
+
+  private static UserRepository.UsernameChange change(Long id, String username, LocalDateTime updatedAt) {
+    return new UserRepository.UsernameChange() {
+      @Override
+      public Long getId() {
+        return id;
+      }
+
+      @Override
+      public String getUsername() {
+        return username;
+      }
+
+      @Override
+      public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+      }
+    };
+  }
+
+  private static UserRepository.UsernameEntry entry(Long id, String username) {
+    return new UserRepository.UsernameEntry() {
+      @Override
+      public Long getId() {
+        return id;
+      }
+
+      @Override
+      public String getUsername() {
+        return username;
+      }
+    };
+  }
+}
@@ -0,0 +1,18 @@
+--liquibase formatted sql
+
+--changeset mindforge:create-refresh-sessions-table
+CREATE TABLE refresh_sessions (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    token_hash BYTEA NOT NULL,
+    device VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+CREATE UNIQUE INDEX idx_refresh_sessions_token_hash ON refresh_sessions (token_hash);
+CREATE INDEX idx_refresh_sessions_user_device ON refresh_sessions (user_id, device);
+CREATE INDEX idx_refresh_sessions_expires_at ON refresh_sessions (expires_at);
+
+--changeset mindforge:drop-users-refresh-token
+ALTER TABLE users DROP COLUMN refresh_token;
@@ -0,0 +1,17 @@
+--liquibase formatted sql
+
+--changeset mindforge:create-rate-limit-tables
+CREATE TABLE rate_limit_counters (
+    policy VARCHAR(64) NOT NULL,
+    key_hash BIGINT NOT NULL,
+    window_index BIGINT NOT NULL,
+    request_count BIGINT NOT NULL,
+    expires_at_ms BIGINT NOT NULL,
+    PRIMARY KEY (policy, key_hash, window_index)
+);
+CREATE INDEX idx_rate_limit_counters_expires_at ON rate_limit_counters (expires_at_ms);
+
+CREATE TABLE rate_limit_nodes (
+    node_id VARCHAR(64) PRIMARY KEY,
+    last_seen_ms BIGINT NOT NULL
+);
@@ -0,0 +1,8 @@
+--liquibase formatted sql
+
+--changeset mindforge:create-pg-trgm-extension dbms:postgresql
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+--changeset mindforge:index-users-username-trigram dbms:postgresql runInTransaction:false
+-- Serves LOWER(username) LIKE '%term%' for terms of three or more characters
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_username_lower_trgm ON users USING gin (LOWER(username) gin_trgm_ops);
@@ -0,0 +1,17 @@
+--liquibase formatted sql
+
+--changeset mindforge:create-pooled-id-sequences dbms:postgresql
+-- Hibernate's pooled optimizer reserves INCREMENT BY ids per nextval, so inserts need no generated-key
+-- round-trip and can be batched. The increment must match allocationSize on the entities.
+-- A nextval of V reserves ids V-49..V; starting at MAX(id) + 50 keeps existing ids out of the first block.
+CREATE SEQUENCE IF NOT EXISTS users_seq INCREMENT BY 50;
+SELECT setval('users_seq', COALESCE((SELECT MAX(id) FROM users), 0) + 50, false);
+CREATE SEQUENCE IF NOT EXISTS projects_seq INCREMENT BY 50;
+SELECT setval('projects_seq', COALESCE((SELECT MAX(id) FROM projects), 0) + 50, false);
+
+--changeset mindforge:use-pooled-id-sequences-as-defaults dbms:postgresql
+-- Plain SQL inserts draw from the same sequences; the BIGSERIAL ones would hand out ids inside Hibernate's blocks
+ALTER TABLE users ALTER COLUMN id SET DEFAULT nextval('users_seq');
+ALTER TABLE projects ALTER COLUMN id SET DEFAULT nextval('projects_seq');
+DROP SEQUENCE IF EXISTS users_id_seq;
+DROP SEQUENCE IF EXISTS projects_id_seq;
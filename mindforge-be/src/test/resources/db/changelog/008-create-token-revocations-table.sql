@@ -0,0 +1,9 @@
+--liquibase formatted sql
+
+--changeset mindforge:create-token-revocations-table
+-- Read by every instance's TokenRevocationRegistry poll, so revocations reach all replicas within seconds
+CREATE TABLE token_revocations (
+    username VARCHAR(255) PRIMARY KEY,
+    revoked_at_ms BIGINT NOT NULL
+);
+CREATE INDEX idx_token_revocations_revoked_at ON token_revocations (revoked_at_ms);
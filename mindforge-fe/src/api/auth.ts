@@ -26,6 +26,18 @@ apiClient.interceptors.request.use(
   }
 );
 
+// Random id of this browser profile; a new login from it replaces its previous refresh session
+const DEVICE_ID_KEY = 'deviceId';
+
+const deviceId = (): string => {
+  let id = localStorage.getItem(DEVICE_ID_KEY);
+  if (!id) {
+    id = crypto.randomUUID();
+    localStorage.setItem(DEVICE_ID_KEY, id);
+  }
+  return id;
+};
+
 // Types based on OpenAPI spec
 export interface UserRegister {
   username: string;
@@ -71,6 +83,26 @@ export interface AdminUserInfo {
   updatedAt?: string;
 }
 
+// Users a bulk admin operation applies to: the listed ids, narrowed by the optional filters
+export interface UserSelection {
+  userIds?: number[];
+  search?: string;
+  role?: string;
+}
+
+export interface BulkActionResult {
+  affected: number;
+  userIds: number[];
+}
+
+// Keyset-paginated listings return a plain array and the next page's cursor in this header
+const NEXT_CURSOR_HEADER = 'x-next-cursor';
+
+export interface Page<T> {
+  items: T[];
+  nextCursor?: string;
+}
+
 // API methods
 export const authApi = {
   // Register a new user
@@ -81,7 +113,9 @@ export const authApi = {
 
   // Login user
   login: async (credentials: UserLogin): Promise<AuthToken> => {
-    const response: AxiosResponse<AuthToken> = await apiClient.post('/auth/login', credentials);
+    const response: AxiosResponse<AuthToken> = await apiClient.post('/auth/login', credentials, {
+      headers: { 'X-Device-Id': deviceId() },
+    });
     const data = response.data;
     // Store tokens
     if (data.token) localStorage.setItem('jwt', data.token);
@@ -101,6 +135,17 @@ export const authApi = {
     return data;
   },
 
+  // Logout: end the server-side session of this device, then drop local tokens
+  logout: async (): Promise<void> => {
+    const refreshToken = localStorage.getItem('refreshToken');
+    try {
+      if (refreshToken) await apiClient.post('/auth/logout', { refreshToken });
+    } finally {
+      localStorage.removeItem('jwt');
+      localStorage.removeItem('refreshToken');
+    }
+  },
+
   // Get current user info
   me: async (): Promise<UserInfo> => {
     const response: AxiosResponse<UserInfo> = await apiClient.get('/auth/me');
@@ -120,10 +165,12 @@ export const authApi = {
   },
 
   // Admin API methods
-  // Get all users (admin only)
-  getAllUsers: async (): Promise<AdminUserInfo[]> => {
-    const response: AxiosResponse<AdminUserInfo[]> = await apiClient.get('/api/admin/users');
-    return response.data;
+  // Get one page of users (admin only), optionally only usernames containing search; nextCursor is undefined on the last page
+  getUsersPage: async (cursor?: string, limit?: number, search?: string): Promise<Page<AdminUserInfo>> => {
+    const response: AxiosResponse<AdminUserInfo[]> = await apiClient.get('/api/admin/users', {
+      params: { cursor, limit, search: search || undefined },
+    });
+    return { items: response.data, nextCursor: response.headers[NEXT_CURSOR_HEADER] || undefined };
   },
 
   // Get user by ID (admin only)
@@ -155,6 +202,32 @@ export const authApi = {
     const response: AxiosResponse<AdminUserInfo> = await apiClient.post(`/api/admin/users/${userId}/unlock`);
     return response.data;
   },
+
+  // Lock the selected user accounts in one request (admin only)
+  bulkLockUsers: async (selection: UserSelection): Promise<BulkActionResult> => {
+    const response: AxiosResponse<BulkActionResult> = await apiClient.post('/api/admin/users/bulk/lock', selection);
+    return response.data;
+  },
+
+  // Unlock the selected user accounts in one request (admin only)
+  bulkUnlockUsers: async (selection: UserSelection): Promise<BulkActionResult> => {
+    const response: AxiosResponse<BulkActionResult> = await apiClient.post('/api/admin/users/bulk/unlock', selection);
+    return response.data;
+  },
+
+  // Give the selected users a role in one request (admin only)
+  bulkUpdateUserRole: async (selection: UserSelection, role: string): Promise<BulkActionResult> => {
+    const response: AxiosResponse<BulkActionResult> = await apiClient.put('/api/admin/users/bulk/role', selection, {
+      params: { role },
+    });
+    return response.data;
+  },
+
+  // Delete the selected users in one request; admins and project owners are skipped (admin only)
+  bulkDeleteUsers: async (selection: UserSelection): Promise<BulkActionResult> => {
+    const response: AxiosResponse<BulkActionResult> = await apiClient.post('/api/admin/users/bulk/delete', selection);
+    return response.data;
+  },
 };
 
 export default apiClient;
\ No newline at end of file